@@ -0,0 +1,94 @@
+package com.toxicrain.benchmark;
+
+import com.toxicrain.artifacts.TileGrid;
+import com.toxicrain.core.json.MapInfoParser;
+
+import java.util.Random;
+
+/**
+ * Makes maps for the benchmarks, laid out like the maps in resources/json:
+ * a wall border, slow '1' floor, some other floor types and scattered wall blocks.
+ * The same size and seed always make the same map, so runs can be compared.
+ *
+ * @author strubium
+ */
+public class MapGenerator {
+
+    /** The seed used by {@link #load(int)} */
+    public static final long DEFAULT_SEED = 2024;
+
+    private static final char WALL = ':';
+    private static final char[] FLOORS = {'1', '1', '1', '2', '3'};
+
+    /**
+     * Makes a square map
+     *
+     * @param size the width and height of the map in tiles
+     * @param seed the seed for where walls and floor types go
+     * @return the map in the same JSON format as resources/json/map.json
+     */
+    public static String generateJson(int size, long seed) {
+        Random random = new Random(seed);
+        StringBuilder json = new StringBuilder(size * (size + 4) + 256);
+        json.append("[{\"type\":\"map\",\"playerx\":2,\"playery\":-2,")
+                .append("\"xsize\":").append(size).append(",\"ysize\":").append(size).append(",\"slices\":[[");
+
+        for (int row = 0; row < size; row++) {
+            if (row > 0) json.append(',');
+            json.append('"');
+            for (int col = 0; col < size; col++) {
+                boolean border = row == 0 || col == 0 || row == size - 1 || col == size - 1;
+                if (border || random.nextInt(10) == 0) {
+                    json.append(WALL);
+                } else {
+                    json.append(FLOORS[random.nextInt(FLOORS.length)]);
+                }
+            }
+            json.append('"');
+        }
+
+        json.append("]],\"lighting\":[");
+        int lights = Math.max(1, size / 10);
+        for (int i = 0; i < lights; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"x\":").append(random.nextInt(size) * 2)
+                    .append(",\"y\":").append(random.nextInt(size) * -2)
+                    .append(",\"strength\":").append(5 + random.nextInt(10)).append('}');
+        }
+        json.append("]}]");
+        return json.toString();
+    }
+
+    /**
+     * Replaces the loaded map with a generated one, filling {@link MapInfoParser} and the tile grid
+     *
+     * @param size the width and height of the map in tiles
+     */
+    public static void load(int size) {
+        MapInfoParser.clear();
+        MapInfoParser.parseMapJson(generateJson(size, DEFAULT_SEED));
+    }
+
+    /**
+     * Picks world positions at the centers of floor tiles, for things that need to start off a wall
+     *
+     * @param size the width and height of the loaded map in tiles
+     * @param count how many positions to pick
+     * @param seed the seed for which tiles are picked
+     * @return x and y of each position, packed as x0, y0, x1, y1...
+     */
+    public static float[] floorPositions(int size, int count, long seed) {
+        Random random = new Random(seed);
+        float[] positions = new float[count * 2];
+        for (int i = 0; i < count; ) {
+            int col = 1 + random.nextInt(size - 2);
+            int row = 1 + random.nextInt(size - 2);
+            if (!TileGrid.isSolid(col, row)) {
+                positions[i * 2] = col * 2;
+                positions[i * 2 + 1] = row * -2;
+                i++;
+            }
+        }
+        return positions;
+    }
+}
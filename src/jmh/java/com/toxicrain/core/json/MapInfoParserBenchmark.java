@@ -0,0 +1,41 @@
+package com.toxicrain.core.json;
+
+import com.toxicrain.benchmark.MapGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks loading a map with {@link MapInfoParser#parseMapJson}, which is the part of
+ * {@link MapInfoParser#parseMapFile} after the file is read and the map scripts are run.
+ *
+ * @author strubium
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MapInfoParserBenchmark {
+
+    /** The width and height of the map in tiles */
+    @Param({"20", "200", "500", "2000"})
+    public int mapSize;
+
+    private String json;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        json = MapGenerator.generateJson(mapSize, MapGenerator.DEFAULT_SEED);
+    }
+
+    @Setup(Level.Invocation)
+    public void clear() {
+        // Parsing adds to the loaded map, so start each parse empty
+        MapInfoParser.clear();
+    }
+
+    @Benchmark
+    public int parseMapJson() {
+        MapInfoParser.parseMapJson(json);
+        return MapInfoParser.tiles;
+    }
+}
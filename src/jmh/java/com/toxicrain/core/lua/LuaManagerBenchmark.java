@@ -0,0 +1,70 @@
+package com.toxicrain.core.lua;
+
+import com.toxicrain.factories.GameFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link LuaManager#loadScript(String, String)}, which reads, compiles and runs a
+ * script every time it is called. Tick scripts go through it every update.
+ *
+ * @author strubium
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LuaManagerBenchmark {
+
+    private static final String EMPTY_SCRIPT = "empty.lua";
+    private static final String TICK_SCRIPT = "tick.lua";
+
+    private Path directory;
+    private String relativePath;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        GameFactory.luaEngine = new LuaEngine();
+        new LuaManager(GameFactory.luaEngine.getGlobals());
+
+        directory = Files.createTempDirectory("raiengine-lua");
+        relativePath = directory.toAbsolutePath() + "/";
+        write(EMPTY_SCRIPT, "-- Called every update\n");
+        // About what a small game tick script does: some math, a table and a few function calls
+        write(TICK_SCRIPT, "local enemies = {}\n"
+                + "for i = 1, 50 do\n"
+                + "    enemies[i] = { x = modulus(i * 7, 20), y = power(i, 2) % 20, health = 100 }\n"
+                + "end\n"
+                + "local alive = 0\n"
+                + "for _, enemy in ipairs(enemies) do\n"
+                + "    enemy.health = enemy.health - (enemy.x + enemy.y)\n"
+                + "    if enemy.health > 0 then alive = alive + 1 end\n"
+                + "end\n"
+                + "local status = format(\"%s enemies alive\", alive)\n");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve(EMPTY_SCRIPT));
+        Files.deleteIfExists(directory.resolve(TICK_SCRIPT));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void loadEmptyScript() {
+        LuaManager.loadScript(EMPTY_SCRIPT, relativePath);
+    }
+
+    @Benchmark
+    public void loadTickScript() {
+        LuaManager.loadScript(TICK_SCRIPT, relativePath);
+    }
+
+    private void write(String name, String script) throws IOException {
+        Files.write(directory.resolve(name), script.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,80 @@
+package com.toxicrain.core.render;
+
+import com.toxicrain.core.Color;
+import com.toxicrain.texture.TextureInfo;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the CPU side of building a quad in {@link BatchRenderer}, which runs for every
+ * tile, NPC and projectile drawn each frame. No GL context is needed.
+ *
+ * @author strubium
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BatchRendererBenchmark {
+
+    /** How many lights are on the map when calculating the light level */
+    @Param({"1", "16", "128"})
+    public int lightCount;
+
+    private final TextureInfo texture = new TextureInfo(1, 32, 64, false);
+    private final float[] color = Color.toFloatArray(Color.WHITE);
+    private List<float[]> lights;
+    private float[] rotatedVertices;
+    private float angle;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(2024);
+        lights = new ArrayList<>(lightCount);
+        for (int i = 0; i < lightCount; i++) {
+            lights.add(new float[] {random.nextFloat() * 40, random.nextFloat() * -40, 5 + random.nextFloat() * 10});
+        }
+        rotatedVertices = BatchRenderer.createRotatedVertices(texture, 10, -10, 0.0001f, 0.5f, 1, 1);
+    }
+
+    @Benchmark
+    public float[] createRotatedVertices() {
+        angle += 0.01f; // Keep the JIT from folding the trig
+        return BatchRenderer.createRotatedVertices(texture, 10, -10, 0.0001f, angle, 1, 1);
+    }
+
+    @Benchmark
+    public float[] generateTriangleVertices() {
+        return BatchRenderer.generateTriangleVertices(rotatedVertices);
+    }
+
+    @Benchmark
+    public float[] generateTriangleTexCoords() {
+        return BatchRenderer.generateTriangleTexCoords(BatchRenderer.createTexCoords());
+    }
+
+    @Benchmark
+    public float[] generateTriangleColors() {
+        return BatchRenderer.generateTriangleColors(color);
+    }
+
+    @Benchmark
+    public float calculateLightLevel() {
+        return BatchRenderer.calculateLightLevel(lights, rotatedVertices);
+    }
+
+    /** Everything addTextureLit does for one quad, apart from adding it to the batch */
+    @Benchmark
+    public void buildLitQuad(Blackhole blackhole) {
+        angle += 0.01f;
+        float[] vertices = BatchRenderer.createRotatedVertices(texture, 10, -10, 0.0001f, angle, 1, 1);
+        blackhole.consume(BatchRenderer.calculateLightLevel(lights, vertices));
+        blackhole.consume(BatchRenderer.generateTriangleVertices(vertices));
+        blackhole.consume(BatchRenderer.generateTriangleTexCoords(BatchRenderer.createTexCoords()));
+        blackhole.consume(BatchRenderer.generateTriangleColors(color));
+    }
+}
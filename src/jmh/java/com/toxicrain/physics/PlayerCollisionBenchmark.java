@@ -0,0 +1,56 @@
+package com.toxicrain.physics;
+
+import com.toxicrain.benchmark.MapGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the collision step of Player.handleCollisions, which is one
+ * {@link SweptCollision#move} of the player box against the tile grid, across map sizes.
+ * The time should stay flat as the map grows.
+ *
+ * @author strubium
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlayerCollisionBenchmark {
+
+    private static final int MOVES = 1024;
+
+    /** The width and height of the map in tiles */
+    @Param({"20", "200", "500", "2000"})
+    public int mapSize;
+
+    /** Half the size of the player box, 5 is the playerSize in gameinfo.json */
+    @Param({"0.5", "5"})
+    public float halfSize;
+
+    private float[] starts;
+    private float[] motions;
+    private final float[] out = new float[2];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        MapGenerator.load(mapSize);
+        starts = MapGenerator.floorPositions(mapSize, MOVES, MapGenerator.DEFAULT_SEED);
+
+        // Up to a tile per move, faster than sprinting, so some moves hit walls and slide
+        Random random = new Random(MapGenerator.DEFAULT_SEED);
+        motions = new float[MOVES * 2];
+        for (int i = 0; i < motions.length; i++) {
+            motions[i] = (random.nextFloat() * 2 - 1) * 2;
+        }
+    }
+
+    @Benchmark
+    public float[] move() {
+        int i = next;
+        next = (next + 1) & (MOVES - 1);
+        SweptCollision.move(starts[i * 2], starts[i * 2 + 1], halfSize, halfSize, motions[i * 2], motions[i * 2 + 1], out);
+        return out;
+    }
+}
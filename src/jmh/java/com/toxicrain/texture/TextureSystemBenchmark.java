@@ -0,0 +1,45 @@
+package com.toxicrain.texture;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link TextureSystem#checkTransparency}, which scans the alpha of every pixel of
+ * each texture on load. An opaque texture is the worst case, since the scan can't stop early.
+ *
+ * @author strubium
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TextureSystemBenchmark {
+
+    /** The width and height of the texture in pixels */
+    @Param({"64", "256", "1024", "4096"})
+    public int size;
+
+    /** If the texture has a transparent pixel, placed in the middle */
+    @Param({"false", "true"})
+    public boolean transparent;
+
+    private ByteBuffer image;
+
+    @Setup
+    public void setup() {
+        image = ByteBuffer.allocateDirect(size * size * 4);
+        while (image.hasRemaining()) {
+            image.put((byte) 0xFF);
+        }
+        if (transparent) {
+            image.put(size * size * 2 + 3, (byte) 0x80);
+        }
+        image.flip();
+    }
+
+    @Benchmark
+    public boolean checkTransparency() {
+        return TextureSystem.checkTransparency(image, size, size);
+    }
+}
@@ -9,8 +9,31 @@ public class Application {
     public static void main(String[] args) {
         Logger.printLOG("Starting game with: " + Arrays.toString(args));
 
+        boolean headless = false;
+        int frames = 600;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--headless":
+                    headless = true;
+                    break;
+                case "--frames":
+                    frames = Integer.parseInt(args[++i]);
+                    break;
+                case "--render-stats":
+                    GameEngine.renderStatsCsv = args[++i];
+                    break;
+                default:
+                    Logger.printERROR("Unknown argument: " + args[i]);
+                    break;
+            }
+        }
+
         GameInfoParser.loadGameInfo();
-        GameEngine.run();
+        if (headless) {
+            GameEngine.runHeadless(frames);
+        } else {
+            GameEngine.run();
+        }
     }
 
 }
\ No newline at end of file
@@ -1,95 +1,189 @@
 package com.toxicrain.artifacts;
 
-import com.toxicrain.core.Constants;
-import com.toxicrain.core.render.BatchRenderer;
+import com.toxicrain.artifacts.behavior.Behavior;
+import com.toxicrain.artifacts.behavior.Blackboard;
+import com.toxicrain.artifacts.pathfinding.FlowField;
+import com.toxicrain.artifacts.pathfinding.PathfindingService;
+import com.toxicrain.core.ecs.EntityStore;
+import com.toxicrain.core.interfaces.IPositional;
 import com.toxicrain.factories.GameFactory;
-import com.toxicrain.core.Color;
 import com.toxicrain.texture.TextureSystem;
 import lombok.Getter;
 import lombok.Setter;
 
 
-public class NPC {
-    @Getter @Setter
-    private float X; // Current X position
-    @Getter @Setter
-    private float Y; // Current Y position
+/**
+ * An NPC is a view of an entity in the {@link EntityStore}.
+ * Its position and rotation live in the store, so systems can update many NPCs in one loop.
+ */
+public class NPC implements IPositional {
+    /** How fast NPCs walk, in units per second */
+    public static final float WALK_SPEED = 3.7f;
+
+    private final EntityStore store;
+    @Getter
+    private final int entity;
     @Getter @Setter
     private float directionX; // Direction vector X
     @Getter @Setter
     private float directionY; // Direction vector Y
-    private float rotation; // Rotation angle in radians
 
     private float fieldOfViewAngle; // Vision cone angle in degrees
     private float visionDistance;   // Max distance NPC can see
     private boolean playerInSight;  // If the player is within the vision cone
-
-    public NPC(float startingXpos, float startingYpos, float rotation) {
-        this.X = startingXpos;
-        this.Y = startingYpos;
+    private final float cosHalfFieldOfView; // cos(fieldOfViewAngle / 2), compared against the dot product
+    private float distanceToPlayer; // Distance to the player when last perceived
+    private int perceivedTick = -1; // The scheduler tick playerInSight was worked out for
+    @Getter
+    private final Blackboard blackboard = new Blackboard(); // Memory of the behavior tree
+
+    /**
+     * Creates an NPC entity in the store
+     *
+     * @param store the store to add the NPC to
+     * @param startingXpos the starting x position
+     * @param startingYpos the starting y position
+     * @param rotation the starting rotation in radians
+     * @param behavior the behavior the NPC runs, or null for none
+     */
+    public NPC(EntityStore store, float startingXpos, float startingYpos, float rotation, Behavior behavior) {
+        this.store = store;
+        this.entity = store.create(EntityStore.POSITION | EntityStore.SPRITE | EntityStore.AI);
+        int slot = store.getSlot(entity);
+        store.posX[slot] = startingXpos;
+        store.posY[slot] = startingYpos;
+        store.rotation[slot] = rotation; // Set initial rotation
+        store.sprite[slot] = TextureSystem.getTexture("playerTexture");
+        store.behavior[slot] = behavior;
+        store.agent[slot] = this;
         this.directionX = (float) Math.cos(rotation);
         this.directionY = (float) Math.sin(rotation);
-        this.rotation = rotation; // Set initial rotation
         this.fieldOfViewAngle = 90f;  // Example 90-degree FOV
         this.visionDistance = 300f;   // Max distance the NPC can see
+        this.cosHalfFieldOfView = (float) Math.cos(Math.toRadians(fieldOfViewAngle / 2));
     }
 
-    public boolean canSeePlayer() {
-        // Calculate the direction to the player
-        float deltaX = GameFactory.player.getPosX() - this.X;
-        float deltaY = GameFactory.player.getPosY() - this.Y;
+    @Override
+    public float getX() {
+        return store.posX[store.getSlot(entity)];
+    }
 
-        // Distance to the player
-        float distanceToPlayer = (float) Math.sqrt(deltaX * deltaX + deltaY * deltaY);
-        if (distanceToPlayer > visionDistance) {
-            return false;  // Player is too far away to be seen
-        }
+    public void setX(float x) {
+        store.posX[store.getSlot(entity)] = x;
+    }
 
-        // Normalize direction to the player
-        float directionToPlayerX = deltaX / distanceToPlayer;
-        float directionToPlayerY = deltaY / distanceToPlayer;
+    @Override
+    public float getY() {
+        return store.posY[store.getSlot(entity)];
+    }
 
-        // Calculate NPC's current direction based on its rotation
-        float npcDirectionX = (float) Math.cos(this.rotation);
-        float npcDirectionY = (float) Math.sin(this.rotation);
+    public void setY(float y) {
+        store.posY[store.getSlot(entity)] = y;
+    }
 
-        // Dot product between the NPC's current direction and the direction to the player
-        float dotProduct = npcDirectionX * directionToPlayerX + npcDirectionY * directionToPlayerY;
+    /**
+     * Works out what the NPC knows about the player this update.
+     * Only reads shared state and only writes to this NPC, so NPCs can perceive in parallel.
+     *
+     * @param playerX the x position of the player
+     * @param playerY the y position of the player
+     * @param tick the scheduler tick this perception is for
+     */
+    public void perceive(float playerX, float playerY, int tick) {
+        int slot = store.getSlot(entity);
+        float deltaX = playerX - store.posX[slot];
+        float deltaY = playerY - store.posY[slot];
+        distanceToPlayer = (float) Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+        playerInSight = computeCanSeePlayer(slot, deltaX, deltaY, distanceToPlayer);
+        perceivedTick = tick;
+    }
 
-        // Clamp dot product to the range [-1, 1] to avoid NaN in acos
-        dotProduct = Math.max(-1, Math.min(1, dotProduct));
+    /**
+     * Checks if the player is in sight. The result is cached for the rest of the
+     * scheduler tick, so every behavior asking in the same tick shares one raycast.
+     */
+    public boolean canSeePlayer() {
+        ensurePerceived();
+        return playerInSight;
+    }
 
-        // Calculate the angle between the two directions
-        float angle = (float) Math.acos(dotProduct);
+    /**
+     * Gets the distance to the player, worked out at most once per scheduler tick like {@link #canSeePlayer()}
+     */
+    public float getDistanceToPlayer() {
+        ensurePerceived();
+        return distanceToPlayer;
+    }
+
+    /**
+     * Perceives now if the scheduler didn't get to this NPC in its perception phase this tick
+     */
+    private void ensurePerceived() {
+        int tick = GameFactory.behaviorScheduler.getTick();
+        if (perceivedTick != tick) {
+            perceive(GameFactory.player.getPosX(), GameFactory.player.getPosY(), tick);
+        }
+    }
 
-        // Convert field of view angle from degrees to radians for comparison
-        float fovInRadians = (float) Math.toRadians(fieldOfViewAngle / 2);
+    private boolean computeCanSeePlayer(int slot, float deltaX, float deltaY, float distanceToPlayer) {
+        if (distanceToPlayer > visionDistance) {
+            return false;  // Player is too far away to be seen
+        }
+        if (distanceToPlayer == 0) {
+            return true;
+        }
 
-        // Check if the angle is within the field of view
-        return angle <= fovInRadians;
+        // Calculate NPC's current direction based on its rotation
+        float npcDirectionX = (float) Math.cos(store.rotation[slot]);
+        float npcDirectionY = (float) Math.sin(store.rotation[slot]);
+
+        // The player is in the vision cone if the angle to them is at most half the FOV,
+        // which is the same as the cosine of that angle being at least cos(fov / 2)
+        float dotProduct = (npcDirectionX * deltaX + npcDirectionY * deltaY) / distanceToPlayer;
+        if (dotProduct < cosHalfFieldOfView) {
+            return false;
+        }
+
+        // Walls block the view
+        return TileGrid.hasLineOfSight(store.posX[slot], store.posY[slot],
+                store.posX[slot] + deltaX, store.posY[slot] + deltaY);
     }
 
     // Method to set the NPC's rotation
     public void lookAt(float angle) {
-        this.rotation = angle; // Update rotation
+        store.rotation[store.getSlot(entity)] = angle; // Update rotation
     }
 
-    // Method to move towards the player gradually
+    /**
+     * Moves towards the player gradually. The NPC follows the flow field around walls
+     * and only walks straight at the player once it is in the same cell.
+     *
+     * @param speed how far to move
+     */
     public void moveTowardsPlayer(float speed) {
-        float deltaX = GameFactory.player.getPosX() - this.X;
-        float deltaY = GameFactory.player.getPosY() - this.Y;
+        int slot = store.getSlot(entity);
+        float targetX = GameFactory.player.getPosX();
+        float targetY = GameFactory.player.getPosY();
+
+        FlowField flowField = GameFactory.pathfindingService.getFlowField();
+        if (flowField != null) {
+            int nextCell = flowField.getNextCell(PathfindingService.toCol(store.posX[slot]), PathfindingService.toRow(store.posY[slot]));
+            if (nextCell != -1) {
+                // Head for the center of the next cell
+                targetX = (nextCell % flowField.getWidth()) * 2;
+                targetY = (nextCell / flowField.getWidth()) * -2;
+            }
+        }
+
+        float deltaX = targetX - store.posX[slot];
+        float deltaY = targetY - store.posY[slot];
 
         // Normalize direction
         float distance = (float) Math.sqrt(deltaX * deltaX + deltaY * deltaY);
         if (distance > 0) { // Prevent division by zero
-            this.X += (deltaX / distance) * speed; // Update position smoothly
-            this.Y += (deltaY / distance) * speed;
+            float step = Math.min(speed, distance);
+            store.posX[slot] += (deltaX / distance) * step; // Update position smoothly
+            store.posY[slot] += (deltaY / distance) * step;
         }
     }
-
-    // Render the NPC using BatchRenderer
-    public void render(BatchRenderer batchRenderer) {
-        batchRenderer.addTexture(TextureSystem.getTexture("playerTexture"), this.X, this.Y, Constants.npcZLevel,
-                this.rotation, 1, 1, Color.toFloatArray(Color.WHITE));
-    }
 }
@@ -3,6 +3,7 @@ package com.toxicrain.artifacts;
 import com.toxicrain.core.GameEngine;
 import com.toxicrain.core.Logger;
 import com.toxicrain.light.LightSystem;
+import com.toxicrain.physics.SweptCollision;
 import com.toxicrain.sound.SoundSystem;
 import com.toxicrain.texture.TextureInfo;
 import com.toxicrain.core.interfaces.IArtifact;
@@ -41,7 +42,19 @@ public class Player implements IArtifact {
     private boolean isSprinting;
     public float cameraX, cameraY, cameraZ = 2; // Default camera Z
     public static final float scrollSpeed = 0.2f;
+    /** How much of the distance to the mouse the player walks each second */
+    private static final float MOUSE_WALK_RATE = 9.3f;
+    /** How fast the player strafes, in units per second */
+    private static final float STRAFE_SPEED = 13.0f;
+    /** How much stress walking adds each second */
+    private static final float WALK_STRESS = 18.6f;
+    /** How much stress sprinting adds each second. The old 5 per step, so it still fills in about a frame */
+    private static final float SPRINT_STRESS = 9300.0f;
+    /** How much stress goes away each second */
+    private static final float STRESS_RECOVERY = 0.00031f;
     private float prevCameraX, prevCameraY;
+    private float moveX, moveY; // Movement wanted this step, before collisions
+    private final float[] collisionResult = new float[2];
     public float scrollOffset;
 
     // New stress-related variables
@@ -84,13 +97,22 @@ public class Player implements IArtifact {
         }
     }
 
-    public void attack() {
+    /**
+     * Fires the equipped weapon, if it is ready to fire
+     *
+     * @return true if a shot was fired
+     */
+    public boolean attack() {
         if (equippedWeapon != null) {
-            equippedWeapon.attack();
+            getMouse();
+            if (!equippedWeapon.attack(posX, posY, getAngle(openglMousePos), ProjectilePool.PLAYER_OWNER)) {
+                return false;
+            }
             increaseStress(10); // Increase stress when attacking
-        } else {
-            Logger.printLOG("No weapon equipped.");
+            return true;
         }
+        Logger.printLOG("No weapon equipped.");
+        return false;
     }
 
     private float getAngle(float[] mousePos) {
@@ -99,26 +121,30 @@ public class Player implements IArtifact {
         return (float) Math.atan2(dy, dx);
     }
 
-    private void forward(boolean useMouse, int direction) {
+    private void forward(boolean useMouse, int direction, float deltaTime) {
         getMouse();
         float angle = getAngle(openglMousePos);
         float angleXS = (float) Math.sin(angle) * -1;
         float angleYS = (float) Math.cos(angle);
 
+        // Applied in handleCollisions so walls can stop it
         if (useMouse) {
-            cameraX += (openglMousePos[0] - posX) * 0.005f * direction;
-            cameraY += (openglMousePos[1] - posY) * 0.005f * direction;
+            // Never past the mouse, even on a long frame
+            float walk = Math.min(1, MOUSE_WALK_RATE * deltaTime) * direction;
+            moveX += (openglMousePos[0] - posX) * walk;
+            moveY += (openglMousePos[1] - posY) * walk;
         } else {
-            cameraX += angleXS * 0.007f * direction;
-            cameraY += angleYS * 0.007f * direction;
+            moveX += angleXS * STRAFE_SPEED * deltaTime * direction;
+            moveY += angleYS * STRAFE_SPEED * deltaTime * direction;
         }
 
-        increaseStress(0.01f);
+        increaseStress(WALK_STRESS * deltaTime);
     }
 
+    @Override
     public void update(float deltaTime) {
         if (!ImguiHandler.imguiWindowOpen) {
-            processInput();
+            processInput(deltaTime);
             updatePos(cameraX, cameraY, cameraZ);
             Vector3f center = WindowUtils.getCenter();
 
@@ -130,7 +156,7 @@ public class Player implements IArtifact {
             }
             else {
                 // Update stress level over time (can adjust based on game logic)
-                decreaseStress(0.00001f * deltaTime); // Gradually decrease stress
+                decreaseStress(STRESS_RECOVERY * deltaTime); // Gradually decrease stress
             }
 
 
@@ -168,6 +194,7 @@ public class Player implements IArtifact {
                 (int) SettingsInfoParser.windowWidth, (int) SettingsInfoParser.windowHeight, cameraX, cameraY);
     }
 
+    @Override
     public void render(BatchRenderer batchRenderer) {
         getMouse();
         Vector3f center = WindowUtils.getCenter();
@@ -176,134 +203,36 @@ public class Player implements IArtifact {
     }
 
     private void handleCollisions() {
-        int collisionType = 0;
-        for (int j = 1; j > -2; j--) {
-            float k = (float) j * GameInfoParser.playerSize;
-            for (int i = Tile.extentTop.size() - 1; i >= 0; i--) {
-                if ((cameraY + k <= Tile.extentTop.get(i)) && (cameraY + k >= Tile.extentCenterY.get(i))) {
-                    if ((cameraX + k >= Tile.extentLeft.get(i)) && !(cameraX + k >= Tile.extentCenterX.get(i))) {
-                        for(int p = MapInfoParser.doCollide.size()-1; p >=0; p--) {
-                            if (Tile.mapDataType.get(i) == MapInfoParser.doCollide.get(p)) {
-                                cameraY += 0.02f;
-                                break;
-                            }
-                            if(Tile.mapDataType.get(i) == '1'){
-                                collisionType = 1;
-                                break;
-                            }
-                        }
-                    } else if ((cameraX + k <= Tile.extentRight.get(i)) && !(cameraX + k <= Tile.extentCenterX.get(i))) {
-                        for(int p = MapInfoParser.doCollide.size()-1; p >=0; p--) {
-                            if (Tile.mapDataType.get(i) == MapInfoParser.doCollide.get(p)) {
-                                cameraY += 0.02f;
-                                break;
-                            }
-                            if(Tile.mapDataType.get(i) == '1'){
-                                collisionType = 1;
-                                break;
-                            }
-                        }
-                    }
-                }
-                if ((cameraY + k >= Tile.extentBottom.get(i)) && (cameraY + k <= Tile.extentCenterY.get(i))) {
-                    if ((cameraX + k >= Tile.extentLeft.get(i)) && !(cameraX + k >= Tile.extentCenterX.get(i))) {
-                        for(int p = MapInfoParser.doCollide.size()-1; p >=0; p--) {
-                            if (Tile.mapDataType.get(i) == MapInfoParser.doCollide.get(p)) {
-                                cameraY -= 0.02f;
-                                break;
-                            }
-                            if(Tile.mapDataType.get(i) == '1'){
-                                collisionType = 1;
-                                break;
-                            }
-                        }
-                    } else if ((cameraX + k <= Tile.extentRight.get(i)) && !(cameraX + k <= Tile.extentCenterX.get(i))) {
-                        for (int p = MapInfoParser.doCollide.size()-1; p >= 0; p--) {
-                            if (Tile.mapDataType.get(i) == MapInfoParser.doCollide.get(p)) {
-                                cameraY -= 0.02f;
-                                break;
-                            }
-                            if(Tile.mapDataType.get(i) == '1'){
-                                collisionType = 1;
-                                break;
-                            }
-                        }
-                    }
-                }
-                if ((cameraX + k <= Tile.extentRight.get(i)) && (cameraX + k >= Tile.extentCenterX.get(i))) {
-                    if ((cameraY + k >= Tile.extentBottom.get(i)) && !(cameraY + k > Tile.extentCenterY.get(i))) {
-                        for(int p = MapInfoParser.doCollide.size()-1; p >=0; p--) {
-                            if (Tile.mapDataType.get(i) == MapInfoParser.doCollide.get(p)) {
-                                cameraX += 0.02f;
-                                break;
-                            }
-                            if(Tile.mapDataType.get(i) == '1'){
-                                collisionType = 1;
-                                break;
-                            }
-                        }
-                    } else if ((cameraY + k <= Tile.extentTop.get(i)) && !(cameraY + k <= Tile.extentCenterY.get(i))) {
-                        for (int p = MapInfoParser.doCollide.size()-1; p >= 0; p--) {
-                            if (Tile.mapDataType.get(i) == MapInfoParser.doCollide.get(p)) {
-                                cameraX += 0.02f;
-                                break;
-                            }
-                            if(Tile.mapDataType.get(i) == '1'){
-                                collisionType = 1;
-                                break;
-                            }
-                        }
-                    }
-                }
-                if ((cameraX + k >= Tile.extentLeft.get(i)) && (cameraX + k <= Tile.extentCenterX.get(i))) {
-                    if ((cameraY + k >= Tile.extentBottom.get(i)) && !(cameraY + k >= Tile.extentCenterY.get(i))) {
-                        for(int p = MapInfoParser.doCollide.size()-1; p >=0; p--) {
-                            if (Tile.mapDataType.get(i) == MapInfoParser.doCollide.get(p)) {
-                                cameraX -= 0.02f;
-                                break;
-                            }
-                            if(Tile.mapDataType.get(i) == '1'){
-                                collisionType = 1;
-                                break;
-                            }
-                        }
-                    } else if ((cameraY + k <= Tile.extentTop.get(i)) && !(cameraY + k <= Tile.extentCenterY.get(i))) {
-                        for(int p = MapInfoParser.doCollide.size()-1; p >=0; p--) {
-                            if (Tile.mapDataType.get(i) == MapInfoParser.doCollide.get(p)) {
-                                cameraX -= 0.02f;
-                                break;
-                            }
-                            if(Tile.mapDataType.get(i) == '1'){
-                                collisionType = 1;
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        if (collisionType == 1) {
-            currentCameraSpeed = 0.010f; // Slow down when colliding
+        if (TileGrid.getTypeAt(cameraX, cameraY) == '1') {
+            currentCameraSpeed = 0.010f; // Slow down on slow tiles
         }
+        if (moveX == 0 && moveY == 0) return;
+
+        // One swept move per update, which stops at walls and slides along them
+        SweptCollision.move(cameraX, cameraY, GameInfoParser.playerSize, GameInfoParser.playerSize, moveX, moveY, collisionResult);
+        cameraX = collisionResult[0];
+        cameraY = collisionResult[1];
+        moveX = 0;
+        moveY = 0;
     }
 
-    private void processInput() {
-        handleSprinting();
+    private void processInput(float deltaTime) {
+        handleSprinting(deltaTime);
+        handleMovement(deltaTime);
         handleCollisions();
-        handleMovement();
         handleAttack();
 
         // Update cameraZ based on the scroll input
+        scrollOffset = GameFactory.mouseUtils.takeScrollOffset();
         cameraZ = MathUtils.clamp(cameraZ + scrollOffset * scrollSpeed, GameInfoParser.minZoom, GameInfoParser.maxZoom);
-        scrollOffset = 0.0f;
     }
 
-    private void handleSprinting() {
+    private void handleSprinting(float deltaTime) {
         if (GameFactory.mouseUtils.isKeyPressed(KeyInfoParser.getKeyAsGLWFBind("keySprint"))) {
             if (stressLevel < maxStressLevel) {
                 currentCameraSpeed = 0.1f; // Sprinting speed
                 isSprinting = true;
-                increaseStress(5); // Increase stress while sprinting
+                increaseStress(SPRINT_STRESS * deltaTime); // Increase stress while sprinting
             } else {
                 isSprinting = false; // Prevent sprinting if stressed
             }
@@ -313,20 +242,20 @@ public class Player implements IArtifact {
         }
     }
 
-    private void handleMovement() {
+    private void handleMovement(float deltaTime) {
         if (!GameEngine.menu) {
-            if (GameFactory.mouseUtils.isKeyPressed(KeyInfoParser.getKeyAsGLWFBind("keyWalkLeft"))) forward(false, 1);
-            if (GameFactory.mouseUtils.isKeyPressed(KeyInfoParser.getKeyAsGLWFBind("keyWalkRight"))) forward(false, -1);
-            if (GameFactory.mouseUtils.isKeyPressed(KeyInfoParser.getKeyAsGLWFBind("keyWalkForward"))) forward(true, 1);
-            if (GameFactory.mouseUtils.isKeyPressed(KeyInfoParser.getKeyAsGLWFBind("keyWalkBackward"))) forward(true, -1);
+            if (GameFactory.mouseUtils.isKeyPressed(KeyInfoParser.getKeyAsGLWFBind("keyWalkLeft"))) forward(false, 1, deltaTime);
+            if (GameFactory.mouseUtils.isKeyPressed(KeyInfoParser.getKeyAsGLWFBind("keyWalkRight"))) forward(false, -1, deltaTime);
+            if (GameFactory.mouseUtils.isKeyPressed(KeyInfoParser.getKeyAsGLWFBind("keyWalkForward"))) forward(true, 1, deltaTime);
+            if (GameFactory.mouseUtils.isKeyPressed(KeyInfoParser.getKeyAsGLWFBind("keyWalkBackward"))) forward(true, -1, deltaTime);
         }
     }
 
     private void handleAttack() {
-        if (GameFactory.mouseUtils.isMouseButtonPressed(1)) {
+        // Only shots that were fired make a sound, the weapon limits how often that is
+        if (GameFactory.mouseUtils.isMouseButtonPressed(1) && attack()) {
             GameFactory.soundSystem.play(SoundSystem.getSound("Sample"));
             Logger.printLOG("Player is attacking...");
-            attack();
         }
     }
 
@@ -340,11 +269,11 @@ public class Player implements IArtifact {
     // New methods to manage stress
     private void increaseStress(float amount) {
         stressLevel = MathUtils.clamp(stressLevel + amount, 0, (int) maxStressLevel);
-        Logger.printLOG("Stress Level: " + stressLevel);
+        Logger.debug("Stress Level: {}", stressLevel);
     }
 
     private void decreaseStress(float amount) {
         stressLevel = MathUtils.clamp(stressLevel - amount, 0, (int) maxStressLevel);
-        Logger.printLOG("Stress Level: " + stressLevel);
+        Logger.debug("Stress Level: {}", stressLevel);
     }
 }
@@ -0,0 +1,282 @@
+package com.toxicrain.artifacts;
+
+import com.toxicrain.core.Color;
+import com.toxicrain.core.Constants;
+import com.toxicrain.core.interfaces.IPositional;
+import com.toxicrain.core.interfaces.IRangeJob;
+import com.toxicrain.core.render.BatchRenderer;
+import com.toxicrain.factories.GameFactory;
+import com.toxicrain.texture.TextureInfo;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * The ProjectilePool holds every live projectile in primitive arrays.
+ *
+ * <p>Live projectiles are packed into indices 0 to {@link #getCount()}. A projectile that
+ * runs out of time or hits a solid tile is removed by moving the last one into its place,
+ * so spawning and removing never allocate and updating is a plain loop over the arrays.</p>
+ *
+ * <p>Because indices move, every projectile also gets an id when it is spawned, which stays the same
+ * until it is removed. {@link #track(int)} gives an {@link IPositional} for an id, so a sound
+ * can follow a projectile.</p>
+ *
+ * @author strubium
+ */
+public class ProjectilePool {
+
+    /** The owner id used for projectiles fired by the player */
+    public static final int PLAYER_OWNER = -1;
+
+    private static final float[] WHITE = Color.toFloatArray(Color.WHITE);
+    /** Projectiles moved per job. Smaller pools are moved on the calling thread */
+    private static final int MOVE_CHUNK = 8192;
+
+    private final float[] x;
+    private final float[] y;
+    private final float[] vx;
+    private final float[] vy;
+    private final float[] ttl;
+    private final int[] ownerId;
+    /** The id of the projectile at each index */
+    private final int[] ids;
+    // Ids are a slot in these arrays, tagged with the generation of the slot so old ids don't match
+    private final int slotBits;
+    private final int[] slotIndex;
+    private final int[] slotGeneration;
+    private final int[] freeSlots;
+    private int freeSlotCount;
+    private final TextureInfo texture;
+    @Getter
+    private int count;
+    /** The time step of the update running now, read by {@link #moveJob} */
+    private float stepTime;
+    private final IRangeJob moveJob = this::move;
+
+    /**
+     * Creates the pool
+     *
+     * @param capacity the most projectiles that can be alive at once
+     * @param texture the texture projectiles are drawn with
+     */
+    public ProjectilePool(int capacity, TextureInfo texture) {
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        ttl = new float[capacity];
+        ownerId = new int[capacity];
+        ids = new int[capacity];
+        slotBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, capacity - 1));
+        slotIndex = new int[capacity];
+        slotGeneration = new int[capacity];
+        freeSlots = new int[capacity];
+        Arrays.fill(slotIndex, -1);
+        for (int i = 0; i < capacity; i++) {
+            freeSlots[freeSlotCount++] = capacity - 1 - i;
+        }
+        this.texture = texture;
+    }
+
+    /**
+     * Adds a projectile
+     *
+     * @param x the starting x position
+     * @param y the starting y position
+     * @param vx the x velocity in units per second
+     * @param vy the y velocity in units per second
+     * @param ttl how long the projectile lives in seconds
+     * @param owner the entity that fired it, or {@link #PLAYER_OWNER}
+     * @return the id of the projectile, or -1 if the pool is full and the projectile was not added
+     */
+    public int spawn(float x, float y, float vx, float vy, float ttl, int owner) {
+        if (count == this.x.length) return -1;
+
+        int i = count++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.ttl[i] = ttl;
+        this.ownerId[i] = owner;
+
+        int slot = freeSlots[--freeSlotCount];
+        slotIndex[slot] = i;
+        int id = (slotGeneration[slot] << slotBits | slot) & Integer.MAX_VALUE;
+        ids[i] = id;
+        return id;
+    }
+
+    /**
+     * Gets where a projectile is now
+     *
+     * @param id the id returned by {@link #spawn}
+     * @return the index of the projectile, or -1 if it has been removed
+     */
+    public int getIndex(int id) {
+        if (id < 0) return -1;
+        int slot = id & ((1 << slotBits) - 1);
+        if (slot >= slotIndex.length || slotIndex[slot] == -1 || ids[slotIndex[slot]] != id) return -1;
+        return slotIndex[slot];
+    }
+
+    /**
+     * Gets a view of a projectile that follows it as it moves, for attaching sounds to it
+     *
+     * @param id the id returned by {@link #spawn}
+     * @return the view, which is removed once the projectile is
+     */
+    public IPositional track(int id) {
+        return new TrackedProjectile(id);
+    }
+
+    /**
+     * Moves every projectile, then removes the ones that expired or hit a solid tile
+     *
+     * @param deltaTime the time since the last update in seconds
+     */
+    public void updateAll(float deltaTime) {
+        int n = count;
+        stepTime = deltaTime;
+        GameFactory.jobSystem.parallelFor(n, MOVE_CHUNK, moveJob);
+
+        // Removing moves projectiles between indices, so it stays on this thread
+        int i = 0;
+        while (i < n) {
+            if (ttl[i] <= 0 || TileGrid.isSolidAt(x[i], y[i])) {
+                n--;
+                freeSlot(ids[i]);
+                x[i] = x[n];
+                y[i] = y[n];
+                vx[i] = vx[n];
+                vy[i] = vy[n];
+                ttl[i] = ttl[n];
+                ownerId[i] = ownerId[n];
+                if (i != n) {
+                    ids[i] = ids[n];
+                    slotIndex[ids[i] & ((1 << slotBits) - 1)] = i;
+                }
+                // Check the projectile that was moved here on the next pass
+            } else {
+                i++;
+            }
+        }
+        count = n;
+    }
+
+    private void move(int from, int to) {
+        float deltaTime = stepTime;
+        // Kept branch free so the JIT can vectorize it
+        for (int i = from; i < to; i++) {
+            x[i] += vx[i] * deltaTime;
+            y[i] += vy[i] * deltaTime;
+            ttl[i] -= deltaTime;
+        }
+    }
+
+    /**
+     * Marks a projectile as spent, so it is removed in the next {@link #updateAll(float)}
+     *
+     * @param index the index of the projectile
+     */
+    public void kill(int index) {
+        ttl[index] = 0;
+    }
+
+    /**
+     * Removes every projectile
+     */
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            freeSlot(ids[i]);
+        }
+        count = 0;
+    }
+
+    /**
+     * Gives back the id slot of a removed projectile, so its id no longer matches
+     */
+    private void freeSlot(int id) {
+        int slot = id & ((1 << slotBits) - 1);
+        slotIndex[slot] = -1;
+        slotGeneration[slot]++;
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    /**
+     * Draws every projectile
+     *
+     * @param batchRenderer the renderer to draw with
+     */
+    public void render(BatchRenderer batchRenderer) {
+        for (int i = 0; i < count; i++) {
+            float angle = (float) Math.atan2(vy[i], vx[i]);
+            batchRenderer.addTexture(texture, x[i], y[i], Constants.npcZLevel, angle, 1, 1, WHITE);
+        }
+    }
+
+    /**
+     * Gets where a live projectile is. Indices only hold until the next update, as removing
+     * a projectile moves the last one into its place, so to follow one projectile keep its id
+     * and use {@link #getIndex(int)} or {@link #track(int)}.
+     *
+     * @param index the projectile, from 0 to {@link #getCount()}
+     */
+    public float getX(int index) {
+        return x[index];
+    }
+
+    /**
+     * Gets where a live projectile is, see {@link #getX(int)}
+     *
+     * @param index the projectile, from 0 to {@link #getCount()}
+     */
+    public float getY(int index) {
+        return y[index];
+    }
+
+    public int getOwner(int index) {
+        return ownerId[index];
+    }
+
+    public int getCapacity() {
+        return x.length;
+    }
+
+    /**
+     * A projectile found by its id each time, so it stays right as other projectiles are removed
+     */
+    private final class TrackedProjectile implements IPositional {
+        private final int id;
+        private float lastX, lastY;
+
+        TrackedProjectile(int id) {
+            this.id = id;
+            int index = getIndex(id);
+            if (index != -1) {
+                lastX = x[index];
+                lastY = y[index];
+            }
+        }
+
+        @Override
+        public float getX() {
+            int index = getIndex(id);
+            if (index != -1) lastX = x[index];
+            return lastX;
+        }
+
+        @Override
+        public float getY() {
+            int index = getIndex(id);
+            if (index != -1) lastY = y[index];
+            return lastY;
+        }
+
+        @Override
+        public boolean isRemoved() {
+            return getIndex(id) == -1;
+        }
+    }
+}
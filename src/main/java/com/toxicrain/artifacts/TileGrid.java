@@ -0,0 +1,289 @@
+package com.toxicrain.artifacts;
+
+import com.toxicrain.core.json.MapInfoParser;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * A flat grid of which map cells block movement, so a world position can be
+ * checked against the map with one array lookup instead of a loop over every tile.
+ * Tile (col, row) is centered on (col * 2, row * -2) and covers one unit in each direction.
+ *
+ * <p>The grid is an immutable {@link Snapshot} published through a volatile field. Building or clearing
+ * the grid makes a new snapshot instead of changing the old one, so another thread, like the
+ * pathfinding thread, can take the snapshot once with {@link #getSnapshot()} and read it for a whole job.</p>
+ *
+ * @author strubium
+ */
+public class TileGrid {
+    private static volatile Snapshot current = new Snapshot(0, 0, new boolean[0], new char[0], new int[1], new int[0], 0);
+
+    /**
+     * Builds the grid from the tiles loaded by {@link MapInfoParser}
+     */
+    public static void build() {
+        int maxCol = -1;
+        int maxRow = -1;
+        for (int i = 0; i < MapInfoParser.mapDataX.size(); i++) {
+            maxCol = Math.max(maxCol, MapInfoParser.mapDataX.get(i) / 2);
+            maxRow = Math.max(maxRow, MapInfoParser.mapDataY.get(i) / -2);
+        }
+
+        int width = maxCol + 1;
+        int height = maxRow + 1;
+        int tileCount = MapInfoParser.mapDataX.size();
+        boolean[] solid = new boolean[width * height];
+        char[] types = new char[width * height];
+        int[] cellStart = new int[width * height + 1];
+        int[] cellTiles = new int[tileCount];
+        int[] tileCells = new int[tileCount];
+        Arrays.fill(types, ' ');
+        for (int i = 0; i < tileCount; i++) {
+            int col = MapInfoParser.mapDataX.get(i) / 2;
+            int row = MapInfoParser.mapDataY.get(i) / -2;
+            int cell = row * width + col;
+            char type = Tile.mapDataType.get(i);
+            types[cell] = type;
+            if (MapInfoParser.doCollide.contains(type)) {
+                solid[cell] = true;
+            }
+            tileCells[i] = cell;
+            cellStart[cell + 1]++;
+        }
+
+        // Counting sort of the tiles by cell, so the tiles of any area can be found without a full scan
+        for (int cell = 0; cell < width * height; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        int[] next = Arrays.copyOf(cellStart, width * height);
+        for (int i = 0; i < tileCount; i++) {
+            cellTiles[next[tileCells[i]]++] = i;
+        }
+        current = new Snapshot(width, height, solid, types, cellStart, cellTiles, current.version + 1);
+    }
+
+    /**
+     * Empties the grid, keeping its size
+     */
+    public static void clear() {
+        Snapshot grid = current;
+        char[] types = new char[grid.width * grid.height];
+        Arrays.fill(types, ' ');
+        current = new Snapshot(grid.width, grid.height, new boolean[grid.width * grid.height], types,
+                new int[grid.width * grid.height + 1], new int[0], grid.version + 1);
+    }
+
+    /**
+     * Gets the grid as it is now. It never changes, so a thread can keep reading it while the grid is rebuilt.
+     */
+    public static Snapshot getSnapshot() {
+        return current;
+    }
+
+    /**
+     * Checks if the cell at a world position blocks movement.
+     * Positions outside the map are never solid.
+     *
+     * @param x the world x position
+     * @param y the world y position
+     * @return true if the cell is solid
+     */
+    public static boolean isSolidAt(float x, float y) {
+        int col = (int) Math.floor((x + 1) * 0.5f);
+        int row = (int) Math.floor((1 - y) * 0.5f);
+        return isSolid(col, row);
+    }
+
+    /**
+     * Gets the map character of the cell at a world position, like ':' for a wall
+     *
+     * @param x the world x position
+     * @param y the world y position
+     * @return the character of the top tile in the cell, or ' ' if the cell is empty or off the map
+     */
+    public static char getTypeAt(float x, float y) {
+        Snapshot grid = current;
+        int col = (int) Math.floor((x + 1) * 0.5f);
+        int row = (int) Math.floor((1 - y) * 0.5f);
+        if (col < 0 || row < 0 || col >= grid.width || row >= grid.height) return ' ';
+        return grid.types[row * grid.width + col];
+    }
+
+    /**
+     * Checks if a cell blocks movement. Cells outside the map are never solid.
+     *
+     * @param col the column of the cell
+     * @param row the row of the cell
+     * @return true if the cell is solid
+     */
+    public static boolean isSolid(int col, int row) {
+        return current.isSolid(col, row);
+    }
+
+    /**
+     * Walks the cells on the line between two world positions with a DDA grid traversal
+     * and checks that none of them are solid. The cells at both ends are not checked,
+     * so something standing next to a wall can still see out.
+     *
+     * @param fromX the world x position to start at
+     * @param fromY the world y position to start at
+     * @param toX the world x position to end at
+     * @param toY the world y position to end at
+     * @return true if no solid cell is in the way
+     */
+    public static boolean hasLineOfSight(float fromX, float fromY, float toX, float toY) {
+        Snapshot grid = current;
+        // Grid space, where each cell is 1x1 and rows go down
+        float startX = (fromX + 1) * 0.5f;
+        float startY = (1 - fromY) * 0.5f;
+        float endX = (toX + 1) * 0.5f;
+        float endY = (1 - toY) * 0.5f;
+
+        int col = (int) Math.floor(startX);
+        int row = (int) Math.floor(startY);
+        int endCol = (int) Math.floor(endX);
+        int endRow = (int) Math.floor(endY);
+
+        float directionX = endX - startX;
+        float directionY = endY - startY;
+        int stepX = directionX > 0 ? 1 : -1;
+        int stepY = directionY > 0 ? 1 : -1;
+
+        // How far along the line one whole cell is on each axis
+        float deltaX = directionX != 0 ? Math.abs(1 / directionX) : Float.POSITIVE_INFINITY;
+        float deltaY = directionY != 0 ? Math.abs(1 / directionY) : Float.POSITIVE_INFINITY;
+        // How far along the line the next cell edge is on each axis
+        float nextX = directionX == 0 ? Float.POSITIVE_INFINITY
+                : directionX > 0 ? (col + 1 - startX) * deltaX : (startX - col) * deltaX;
+        float nextY = directionY == 0 ? Float.POSITIVE_INFINITY
+                : directionY > 0 ? (row + 1 - startY) * deltaY : (startY - row) * deltaY;
+
+        int steps = Math.abs(endCol - col) + Math.abs(endRow - row);
+        for (int i = 0; i < steps; i++) {
+            if (nextX < nextY) {
+                col += stepX;
+                nextX += deltaX;
+            } else {
+                row += stepY;
+                nextY += deltaY;
+            }
+            if (col == endCol && row == endRow) {
+                return true;
+            }
+            if (grid.isSolid(col, row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets where the tiles of a cell start, for use with {@link #getCellTile(int)}.
+     * The tiles of a cell are in the order they were loaded.
+     *
+     * @param col the column of the cell, which must be on the map
+     * @param row the row of the cell, which must be on the map
+     * @return the index of the cell's first tile
+     */
+    public static int getCellTilesStart(int col, int row) {
+        return current.getCellTilesStart(col, row);
+    }
+
+    /**
+     * Gets where the tiles of a cell end, for use with {@link #getCellTile(int)}
+     *
+     * @param col the column of the cell, which must be on the map
+     * @param row the row of the cell, which must be on the map
+     * @return one past the index of the cell's last tile
+     */
+    public static int getCellTilesEnd(int col, int row) {
+        return current.getCellTilesEnd(col, row);
+    }
+
+    /**
+     * Gets a tile of a cell
+     *
+     * @param index an index from {@link #getCellTilesStart} up to {@link #getCellTilesEnd}
+     * @return the index of the tile in the {@link MapInfoParser} lists
+     */
+    public static int getCellTile(int index) {
+        return current.getCellTile(index);
+    }
+
+    /**
+     * Gets a number that changes every time the grid is rebuilt, so cached paths know to update
+     */
+    public static int getVersion() {
+        return current.version;
+    }
+
+    public static int getWidth() {
+        return current.width;
+    }
+
+    public static int getHeight() {
+        return current.height;
+    }
+
+    /**
+     * One version of the grid. Its arrays are never written once it is published.
+     */
+    public static final class Snapshot {
+        @Getter
+        private final int width;
+        @Getter
+        private final int height;
+        private final boolean[] solid;
+        private final char[] types;
+        /** Where each cell's tiles start in cellTiles, with one extra entry at the end */
+        private final int[] cellStart;
+        /** The MapInfoParser index of every tile, grouped by cell */
+        private final int[] cellTiles;
+        /** Changes every time the grid is rebuilt, see {@link TileGrid#getVersion()} */
+        @Getter
+        private final int version;
+
+        private Snapshot(int width, int height, boolean[] solid, char[] types, int[] cellStart, int[] cellTiles, int version) {
+            this.width = width;
+            this.height = height;
+            this.solid = solid;
+            this.types = types;
+            this.cellStart = cellStart;
+            this.cellTiles = cellTiles;
+            this.version = version;
+        }
+
+        /**
+         * Checks if a cell blocks movement. Cells outside the map are never solid.
+         *
+         * @param col the column of the cell
+         * @param row the row of the cell
+         * @return true if the cell is solid
+         */
+        public boolean isSolid(int col, int row) {
+            return col >= 0 && row >= 0 && col < width && row < height && solid[row * width + col];
+        }
+
+        /**
+         * Gets where the tiles of a cell start, see {@link TileGrid#getCellTilesStart(int, int)}
+         */
+        public int getCellTilesStart(int col, int row) {
+            return cellStart[row * width + col];
+        }
+
+        /**
+         * Gets where the tiles of a cell end, see {@link TileGrid#getCellTilesEnd(int, int)}
+         */
+        public int getCellTilesEnd(int col, int row) {
+            return cellStart[row * width + col + 1];
+        }
+
+        /**
+         * Gets a tile of a cell, see {@link TileGrid#getCellTile(int)}
+         */
+        public int getCellTile(int index) {
+            return cellTiles[index];
+        }
+    }
+}
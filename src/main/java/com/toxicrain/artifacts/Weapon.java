@@ -1,5 +1,7 @@
 package com.toxicrain.artifacts;
 
+import com.toxicrain.core.Logger;
+import com.toxicrain.factories.GameFactory;
 import com.toxicrain.util.MathUtils;
 import lombok.Getter;
 
@@ -14,14 +16,39 @@ public class Weapon {
     private boolean isEquipped;
     private int maxShot;
     private int minShot;
+    /** The least time between two shots, in nanoseconds */
+    private final long shotInterval;
+    private long nextShotTime;
+
+    /** How fast projectiles travel in units per second */
+    private static final float PROJECTILE_SPEED = 40f;
+    /** The total angle in radians that the pellets of one shot are spread over */
+    private static final float SPREAD = 0.3f;
+    /** How many shots per second a weapon fires if it isn't given a fire rate */
+    private static final float DEFAULT_FIRE_RATE = 4f;
 
     public Weapon(String name, int damage, float range, int maxShot, int minShot) {
+        this(name, damage, range, maxShot, minShot, DEFAULT_FIRE_RATE);
+    }
+
+    /**
+     * @param name the name of the weapon
+     * @param damage the damage of each projectile
+     * @param range how far projectiles travel
+     * @param maxShot the most projectiles fired per shot
+     * @param minShot the fewest projectiles fired per shot
+     * @param fireRate the most shots per second, while the trigger is held
+     */
+    public Weapon(String name, int damage, float range, int maxShot, int minShot, float fireRate) {
         this.name = name;
         this.damage = damage;
         this.range = range;
         this.isEquipped = false;
         this.maxShot = maxShot;
         this.minShot = minShot;
+        this.shotInterval = (long) (1_000_000_000L / Math.max(0.001f, fireRate));
+        // nanoTime can be anywhere, even negative, so the first shot is ready from now rather than from 0
+        this.nextShotTime = System.nanoTime();
     }
 
     public void equip() {
@@ -32,12 +59,37 @@ public class Weapon {
         this.isEquipped = false;
     }
 
-    public void attack() {
-        if (isEquipped) {
-            System.out.println("Attacking with " + name + " for " + damage + " damage!");
-            System.out.println(MathUtils.getRandomIntBetween(minShot, maxShot));
-        } else {
-            System.out.println("No weapon equipped.");
+    /**
+     * Fires between minShot and maxShot projectiles, spread evenly around the aim direction.
+     * Does nothing until the time between shots set by the fire rate has passed.
+     *
+     * @param x the x position to fire from
+     * @param y the y position to fire from
+     * @param angle the aim direction in radians
+     * @param owner the entity firing, or {@link ProjectilePool#PLAYER_OWNER}
+     * @return true if a shot was fired
+     */
+    public boolean attack(float x, float y, float angle, int owner) {
+        if (!isEquipped) {
+            Logger.printLOG("No weapon equipped.");
+            return false;
+        }
+        long now = System.nanoTime();
+        if (now - nextShotTime < 0) {
+            return false; // Still cooling down
+        }
+        nextShotTime = now + shotInterval;
+
+        int pellets = MathUtils.getRandomIntBetween(Math.min(minShot, maxShot), Math.max(minShot, maxShot));
+        float ttl = range / PROJECTILE_SPEED;
+        for (int i = 0; i < pellets; i++) {
+            float pelletAngle = pellets == 1 ? angle : angle + SPREAD * ((float) i / (pellets - 1) - 0.5f);
+            float vx = (float) Math.cos(pelletAngle) * PROJECTILE_SPEED;
+            float vy = (float) Math.sin(pelletAngle) * PROJECTILE_SPEED;
+            if (GameFactory.projectilePool.spawn(x, y, vx, vy, ttl, owner) == -1) {
+                break; // The pool is full
+            }
         }
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -2,7 +2,10 @@ package com.toxicrain.artifacts.behavior;
 
 import com.toxicrain.artifacts.NPC;
 
-// Base class for behavior trees
+/**
+ * Base class for behavior tree nodes.
+ * Nodes are shared between NPCs, so they should keep per-NPC state in the {@link Blackboard}.
+ */
 public abstract class Behavior {
-    public abstract boolean execute(NPC npc);
-}
\ No newline at end of file
+    public abstract Status execute(NPC npc, Blackboard blackboard);
+}
@@ -0,0 +1,12 @@
+package com.toxicrain.artifacts.behavior;
+
+/**
+ * Base class for nodes that wrap one child and change how or when it runs
+ */
+public abstract class BehaviorDecorator extends Behavior {
+    protected final Behavior child;
+
+    protected BehaviorDecorator(Behavior child) {
+        this.child = child;
+    }
+}
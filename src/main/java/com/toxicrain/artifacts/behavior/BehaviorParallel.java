@@ -0,0 +1,40 @@
+package com.toxicrain.artifacts.behavior;
+
+import com.toxicrain.artifacts.NPC;
+
+/**
+ * Runs every child each tick, for things an NPC does at the same time like looking while walking.
+ * Nothing runs on other threads, the children just all get a turn.
+ */
+public class BehaviorParallel extends Behavior {
+    private final boolean requireAll;
+    private final Behavior[] behaviors;
+
+    /**
+     * @param requireAll true to succeed only once every child succeeds,
+     *                   false to succeed as soon as one child succeeds
+     * @param behaviors the children
+     */
+    public BehaviorParallel(boolean requireAll, Behavior... behaviors) {
+        this.requireAll = requireAll;
+        this.behaviors = behaviors;
+    }
+
+    @Override
+    public Status execute(NPC npc, Blackboard blackboard) {
+        int successes = 0;
+        int failures = 0;
+        for (Behavior behavior : behaviors) {
+            Status status = behavior.execute(npc, blackboard);
+            if (status == Status.SUCCESS) successes++;
+            else if (status == Status.FAILURE) failures++;
+        }
+
+        if (requireAll) {
+            if (failures > 0) return Status.FAILURE;
+            return successes == behaviors.length ? Status.SUCCESS : Status.RUNNING;
+        }
+        if (successes > 0) return Status.SUCCESS;
+        return failures == behaviors.length ? Status.FAILURE : Status.RUNNING;
+    }
+}
@@ -0,0 +1,33 @@
+package com.toxicrain.artifacts.behavior;
+
+import com.toxicrain.artifacts.NPC;
+
+/**
+ * Runs its children in order until one succeeds, so earlier children are preferred.
+ * If a child is still running, the selector carries on from that child next tick.
+ */
+public class BehaviorSelector extends Behavior {
+    private final Behavior[] behaviors;
+
+    public BehaviorSelector(Behavior... behaviors) {
+        this.behaviors = behaviors;
+    }
+
+    @Override
+    public Status execute(NPC npc, Blackboard blackboard) {
+        int[] memory = blackboard.getMemory(this, 1); // The child to start from
+        for (int i = memory[0]; i < behaviors.length; i++) {
+            Status status = behaviors[i].execute(npc, blackboard);
+            if (status == Status.RUNNING) {
+                memory[0] = i;
+                return Status.RUNNING;
+            }
+            if (status == Status.SUCCESS) {
+                memory[0] = 0;
+                return Status.SUCCESS;
+            }
+        }
+        memory[0] = 0;
+        return Status.FAILURE; // Every behavior failed
+    }
+}
@@ -2,7 +2,10 @@ package com.toxicrain.artifacts.behavior;
 
 import com.toxicrain.artifacts.NPC;
 
-// Composite class to manage a sequence of behaviors
+/**
+ * Runs its children in order until one fails.
+ * If a child is still running, the sequence carries on from that child next tick.
+ */
 public class BehaviorSequence extends Behavior {
     private final Behavior[] behaviors;
 
@@ -11,12 +14,20 @@ public class BehaviorSequence extends Behavior {
     }
 
     @Override
-    public boolean execute(NPC npc) {
-        for (Behavior behavior : behaviors) {
-            if (!behavior.execute(npc)) {
-                return false; // If any behavior fails, stop execution
+    public Status execute(NPC npc, Blackboard blackboard) {
+        int[] memory = blackboard.getMemory(this, 1); // The child to start from
+        for (int i = memory[0]; i < behaviors.length; i++) {
+            Status status = behaviors[i].execute(npc, blackboard);
+            if (status == Status.RUNNING) {
+                memory[0] = i;
+                return Status.RUNNING;
+            }
+            if (status == Status.FAILURE) {
+                memory[0] = 0;
+                return Status.FAILURE; // If any behavior fails, stop execution
             }
         }
-        return true; // All behaviors executed successfully
+        memory[0] = 0;
+        return Status.SUCCESS; // All behaviors executed successfully
     }
 }
@@ -0,0 +1,72 @@
+package com.toxicrain.artifacts.behavior;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A Blackboard is the memory of one NPC's behavior tree.
+ *
+ * <p>Nodes are shared between NPCs, so anything a node needs to remember between ticks,
+ * like which child is running or when it last ran, is kept here per node instead.
+ * Named values can also be shared between the nodes of one tree.</p>
+ *
+ * @author strubium
+ */
+public class Blackboard {
+    private final Map<Behavior, int[]> nodeMemory = new IdentityHashMap<>();
+    private final Map<String, Object> values = new HashMap<>();
+    /** The scheduler time of the last turn, NaN before the first */
+    private double lastTurn = Double.NaN;
+    /**
+     * The seconds since this NPC's last turn. A turn can be skipped when the AI is over budget,
+     * so anything that moves should scale by this instead of the frame time.
+     */
+    @Getter
+    private float turnTime;
+
+    /**
+     * Gets the memory of a node, creating it the first time
+     *
+     * @param node the node the memory belongs to
+     * @param size how many ints the node needs
+     * @return the memory of the node for this NPC
+     */
+    public int[] getMemory(Behavior node, int size) {
+        int[] memory = nodeMemory.get(node);
+        if (memory == null) {
+            memory = new int[size];
+            nodeMemory.put(node, memory);
+        }
+        return memory;
+    }
+
+    /**
+     * Starts a turn of the tree, working out the time since the last one
+     *
+     * @param time the scheduler time now, in seconds
+     * @param firstTurnTime the time to use if this is the first turn
+     */
+    public void beginTurn(double time, float firstTurnTime) {
+        turnTime = Double.isNaN(lastTurn) ? firstTurnTime : (float) (time - lastTurn);
+        lastTurn = time;
+    }
+
+    public Object get(String key) {
+        return values.get(key);
+    }
+
+    public void set(String key, Object value) {
+        values.put(key, value);
+    }
+
+    /**
+     * Forgets everything, so the tree starts over
+     */
+    public void clear() {
+        nodeMemory.clear();
+        values.clear();
+    }
+}
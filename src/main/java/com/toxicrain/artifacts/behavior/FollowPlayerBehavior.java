@@ -1,7 +1,6 @@
 package com.toxicrain.artifacts.behavior;
 
 import com.toxicrain.artifacts.NPC;
-import com.toxicrain.factories.GameFactory;
 
 public class FollowPlayerBehavior extends Behavior {
     private final float followDistance; // Distance to maintain while following
@@ -12,19 +11,17 @@ public class FollowPlayerBehavior extends Behavior {
 
 
     @Override
-    public boolean execute(NPC npc) {
-        // Get the current position of the NPC and the Player
-        float deltaX = GameFactory.player.getPosX() - npc.getX();
-        float deltaY = GameFactory.player.getPosY() - npc.getY();
-        float distance = (float) Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+    public Status execute(NPC npc, Blackboard blackboard) {
+        // Distance worked out in the perception phase
+        float distance = npc.getDistanceToPlayer();
 
         // If the NPC is too far from the Player, move towards them
         if (distance > followDistance) {
-            npc.moveTowardsPlayer(0.002f);
-            return true; // Indicates that the behavior executed successfully
+            npc.moveTowardsPlayer(NPC.WALK_SPEED * blackboard.getTurnTime());
+            return Status.SUCCESS; // Indicates that the behavior executed successfully
         }
 
         // If the NPC is close enough, do nothing or perform idle behavior
-        return false; // Indicates no movement required
+        return Status.FAILURE; // Indicates no movement required
     }
 }
@@ -1,7 +1,6 @@
 package com.toxicrain.artifacts.behavior;
 
 import com.toxicrain.artifacts.NPC;
-import com.toxicrain.factories.GameFactory;
 
 public class FollowPlayerSeeingBehavior extends Behavior {
     private final float followDistance;
@@ -11,20 +10,18 @@ public class FollowPlayerSeeingBehavior extends Behavior {
     }
 
     @Override
-    public boolean execute(NPC npc) {
+    public Status execute(NPC npc, Blackboard blackboard) {
         if (npc.canSeePlayer()) {
-            // Get the current position of the NPC and the Player
-            float deltaX = GameFactory.player.getPosX() - npc.getX();
-            float deltaY = GameFactory.player.getPosY() - npc.getY();
-            float distance = (float) Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+            // Distance worked out in the perception phase
+            float distance = npc.getDistanceToPlayer();
 
             // If the NPC is too far from the Player, move towards them
             if (distance > followDistance) {
-                npc.moveTowardsPlayer(0.002f);
-                return true; // Indicates that the behavior executed successfully
+                npc.moveTowardsPlayer(NPC.WALK_SPEED * blackboard.getTurnTime());
+                return Status.SUCCESS; // Indicates that the behavior executed successfully
             }
 
         }
-        return false; // Indicates no movement required
+        return Status.FAILURE; // Indicates no movement required
     }
 }
@@ -0,0 +1,21 @@
+package com.toxicrain.artifacts.behavior;
+
+import com.toxicrain.artifacts.NPC;
+
+/**
+ * Turns the success of its child into failure and the other way around
+ */
+public class InverterBehavior extends BehaviorDecorator {
+
+    public InverterBehavior(Behavior child) {
+        super(child);
+    }
+
+    @Override
+    public Status execute(NPC npc, Blackboard blackboard) {
+        Status status = child.execute(npc, blackboard);
+        if (status == Status.SUCCESS) return Status.FAILURE;
+        if (status == Status.FAILURE) return Status.SUCCESS;
+        return Status.RUNNING;
+    }
+}
@@ -9,7 +9,7 @@ public class LookAtPlayerBehavior extends Behavior {
     }
 
     @Override
-    public boolean execute(NPC npc) {
+    public Status execute(NPC npc, Blackboard blackboard) {
         // Get the current position of the NPC and the Player
         float npcX = npc.getX();
         float npcY = npc.getY();
@@ -26,6 +26,6 @@ public class LookAtPlayerBehavior extends Behavior {
         // Set the NPC's rotation or facing direction
         npc.lookAt(angle); // Implement lookAt method in NPC class
 
-        return true; // Indicates that the behavior executed successfully
+        return Status.SUCCESS; // Indicates that the behavior executed successfully
     }
 }
@@ -9,7 +9,7 @@ public class LookAtPlayerSeeingBehavior extends Behavior {
     }
 
     @Override
-    public boolean execute(NPC npc) {
+    public Status execute(NPC npc, Blackboard blackboard) {
         if (npc.canSeePlayer()) {
             // Get the current position of the NPC and the Player
             float npcX = npc.getX();
@@ -27,8 +27,8 @@ public class LookAtPlayerSeeingBehavior extends Behavior {
             // Set the NPC's rotation or facing direction
             npc.lookAt(angle); // Implement lookAt method in NPC class
 
-            return true; // Indicates that the behavior executed successfully
+            return Status.SUCCESS; // Indicates that the behavior executed successfully
         }
-        return false; // Indicates no movement required
+        return Status.FAILURE; // Indicates no movement required
     }
 }
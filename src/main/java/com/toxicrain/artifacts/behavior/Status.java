@@ -0,0 +1,13 @@
+package com.toxicrain.artifacts.behavior;
+
+/**
+ * The result of running a {@link Behavior} for one tick
+ */
+public enum Status {
+    /** The behavior finished and did what it was meant to */
+    SUCCESS,
+    /** The behavior finished without doing what it was meant to */
+    FAILURE,
+    /** The behavior has not finished and should be run again next tick */
+    RUNNING
+}
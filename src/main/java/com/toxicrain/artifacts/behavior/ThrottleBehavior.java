@@ -0,0 +1,36 @@
+package com.toxicrain.artifacts.behavior;
+
+import com.toxicrain.artifacts.NPC;
+
+/**
+ * Only runs its child every few ticks and gives back the last result in between.
+ * Use it to time-slice expensive checks like vision or path queries.
+ */
+public class ThrottleBehavior extends BehaviorDecorator {
+    private static final Status[] STATUSES = Status.values();
+
+    private final int interval;
+
+    /**
+     * @param interval how many ticks the child's result is reused for
+     * @param child the child to run
+     */
+    public ThrottleBehavior(int interval, Behavior child) {
+        super(child);
+        this.interval = Math.max(1, interval);
+    }
+
+    @Override
+    public Status execute(NPC npc, Blackboard blackboard) {
+        int[] memory = blackboard.getMemory(this, 2); // Ticks left to wait, last status
+        if (memory[0] > 0) {
+            memory[0]--;
+            return STATUSES[memory[1]];
+        }
+        Status status = child.execute(npc, blackboard);
+        // A running child is checked again next tick
+        memory[0] = status == Status.RUNNING ? 0 : interval - 1;
+        memory[1] = status.ordinal();
+        return status;
+    }
+}
@@ -0,0 +1,150 @@
+package com.toxicrain.artifacts.pathfinding;
+
+import com.toxicrain.artifacts.TileGrid;
+
+/**
+ * Finds the shortest path between two cells of the {@link TileGrid} with A*.
+ *
+ * <p>The open set is a binary heap of cell indices and all per-cell data lives in arrays that are
+ * reused between searches. Instead of clearing them, each search gets a new stamp, and a cell
+ * whose stamp is old counts as unvisited. A pathfinder is not thread safe, so each thread needs its own.</p>
+ *
+ * @author strubium
+ */
+public class AStarPathfinder {
+    private static final int[] STEP_COL = {1, -1, 0, 0};
+    private static final int[] STEP_ROW = {0, 0, 1, -1};
+
+    private TileGrid.Snapshot grid;
+    private int width;
+    private int[] cost = new int[0];
+    private int[] parent = new int[0];
+    private int[] stamp = new int[0];
+    private boolean[] closed = new boolean[0];
+    private int currentStamp;
+
+    // Binary heap of cells ordered by cost + heuristic
+    private int[] heap = new int[0];
+    private int[] heapScore = new int[0];
+    private int heapSize;
+
+    /**
+     * Finds a path between two cells
+     *
+     * @param grid the grid to search, taken once so it can't change during the search
+     * @param startCol the column to start at
+     * @param startRow the row to start at
+     * @param goalCol the column to reach
+     * @param goalRow the row to reach
+     * @return the cells of the path as row * width + col, from the first step to the goal,
+     *         an empty array if already there, or null if the goal can't be reached
+     */
+    public int[] findPath(TileGrid.Snapshot grid, int startCol, int startRow, int goalCol, int goalRow) {
+        this.grid = grid;
+        width = grid.getWidth();
+        int height = grid.getHeight();
+        if (!isWalkable(startCol, startRow, height) || !isWalkable(goalCol, goalRow, height)) return null;
+        ensureCapacity(width * height);
+
+        int start = startRow * width + startCol;
+        int goal = goalRow * width + goalCol;
+        if (start == goal) return new int[0];
+
+        currentStamp++;
+        heapSize = 0;
+        visit(start, 0, -1);
+        push(start, heuristic(startCol, startRow, goalCol, goalRow));
+
+        while (heapSize > 0) {
+            int cell = pop();
+            if (closed[cell]) continue; // A cheaper copy was already expanded
+            if (cell == goal) return buildPath(start, goal);
+            closed[cell] = true;
+
+            int col = cell % width;
+            int row = cell / width;
+            int nextCost = cost[cell] + 1;
+            for (int i = 0; i < 4; i++) {
+                int neighbourCol = col + STEP_COL[i];
+                int neighbourRow = row + STEP_ROW[i];
+                if (!isWalkable(neighbourCol, neighbourRow, height)) continue;
+                int neighbour = neighbourRow * width + neighbourCol;
+                if (stamp[neighbour] == currentStamp && (closed[neighbour] || cost[neighbour] <= nextCost)) continue;
+                visit(neighbour, nextCost, cell);
+                push(neighbour, nextCost + heuristic(neighbourCol, neighbourRow, goalCol, goalRow));
+            }
+        }
+        return null;
+    }
+
+    private void visit(int cell, int cellCost, int from) {
+        stamp[cell] = currentStamp;
+        cost[cell] = cellCost;
+        parent[cell] = from;
+        closed[cell] = false;
+    }
+
+    private int[] buildPath(int start, int goal) {
+        int length = 0;
+        for (int cell = goal; cell != start; cell = parent[cell]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int cell = goal; cell != start; cell = parent[cell]) {
+            path[--length] = cell;
+        }
+        return path;
+    }
+
+    private boolean isWalkable(int col, int row, int height) {
+        return col >= 0 && row >= 0 && col < width && row < height && !grid.isSolid(col, row);
+    }
+
+    private static int heuristic(int col, int row, int goalCol, int goalRow) {
+        return Math.abs(goalCol - col) + Math.abs(goalRow - row);
+    }
+
+    private void ensureCapacity(int cells) {
+        if (cost.length >= cells) return;
+        cost = new int[cells];
+        parent = new int[cells];
+        stamp = new int[cells];
+        closed = new boolean[cells];
+        // Each cell can be pushed once per neighbour
+        heap = new int[cells * 4 + 1];
+        heapScore = new int[cells * 4 + 1];
+        currentStamp = 0;
+    }
+
+    private void push(int cell, int score) {
+        int i = heapSize++;
+        while (i > 0) {
+            int parentIndex = (i - 1) >> 1;
+            if (heapScore[parentIndex] <= score) break;
+            heap[i] = heap[parentIndex];
+            heapScore[i] = heapScore[parentIndex];
+            i = parentIndex;
+        }
+        heap[i] = cell;
+        heapScore[i] = score;
+    }
+
+    private int pop() {
+        int top = heap[0];
+        int lastCell = heap[--heapSize];
+        int lastScore = heapScore[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heapScore[child + 1] < heapScore[child]) child++;
+            if (heapScore[child] >= lastScore) break;
+            heap[i] = heap[child];
+            heapScore[i] = heapScore[child];
+            i = child;
+        }
+        heap[i] = lastCell;
+        heapScore[i] = lastScore;
+        return top;
+    }
+}
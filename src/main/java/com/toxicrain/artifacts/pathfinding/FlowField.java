@@ -0,0 +1,110 @@
+package com.toxicrain.artifacts.pathfinding;
+
+import com.toxicrain.artifacts.TileGrid;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * A FlowField holds the walking distance from every cell to one target cell,
+ * worked out with one breadth first search. Any number of NPCs heading to the
+ * same target can then find their next step with a lookup instead of a search each.
+ *
+ * @author strubium
+ */
+public class FlowField {
+    /** The distance of cells that can't reach the target */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final int[] STEP_COL = {1, -1, 0, 0};
+    private static final int[] STEP_ROW = {0, 0, 1, -1};
+
+    @Getter
+    private int width;
+    @Getter
+    private int height;
+    @Getter
+    private int targetCol = -1;
+    @Getter
+    private int targetRow = -1;
+    private int[] distance = new int[0];
+    private int[] queue = new int[0];
+
+    /**
+     * Works out the distance from every cell to the target
+     *
+     * @param grid the grid to search, taken once so it can't change during the search
+     * @param targetCol the column of the target cell
+     * @param targetRow the row of the target cell
+     */
+    public void compute(TileGrid.Snapshot grid, int targetCol, int targetRow) {
+        width = grid.getWidth();
+        height = grid.getHeight();
+        int cells = width * height;
+        if (distance.length < cells) {
+            distance = new int[cells];
+            queue = new int[cells];
+        }
+        Arrays.fill(distance, 0, cells, UNREACHABLE);
+        this.targetCol = targetCol;
+        this.targetRow = targetRow;
+        if (!isInside(targetCol, targetRow) || grid.isSolid(targetCol, targetRow)) return;
+
+        int head = 0;
+        int tail = 0;
+        int target = targetRow * width + targetCol;
+        distance[target] = 0;
+        queue[tail++] = target;
+        while (head < tail) {
+            int cell = queue[head++];
+            int col = cell % width;
+            int row = cell / width;
+            int next = distance[cell] + 1;
+            for (int i = 0; i < 4; i++) {
+                int neighbourCol = col + STEP_COL[i];
+                int neighbourRow = row + STEP_ROW[i];
+                if (!isInside(neighbourCol, neighbourRow) || grid.isSolid(neighbourCol, neighbourRow)) continue;
+                int neighbour = neighbourRow * width + neighbourCol;
+                if (distance[neighbour] == UNREACHABLE) {
+                    distance[neighbour] = next;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the walking distance from a cell to the target
+     *
+     * @return the distance in cells, or {@link #UNREACHABLE}
+     */
+    public int getDistance(int col, int row) {
+        return isInside(col, row) ? distance[row * width + col] : UNREACHABLE;
+    }
+
+    /**
+     * Gets the neighbouring cell that is one step closer to the target
+     *
+     * @param col the column of the cell
+     * @param row the row of the cell
+     * @return the cell as row * width + col, or -1 if there is no closer cell
+     */
+    public int getNextCell(int col, int row) {
+        int best = getDistance(col, row);
+        int bestCell = -1;
+        for (int i = 0; i < 4; i++) {
+            int neighbourCol = col + STEP_COL[i];
+            int neighbourRow = row + STEP_ROW[i];
+            int neighbourDistance = getDistance(neighbourCol, neighbourRow);
+            if (neighbourDistance < best) {
+                best = neighbourDistance;
+                bestCell = neighbourRow * width + neighbourCol;
+            }
+        }
+        return bestCell;
+    }
+
+    private boolean isInside(int col, int row) {
+        return col >= 0 && row >= 0 && col < width && row < height;
+    }
+}
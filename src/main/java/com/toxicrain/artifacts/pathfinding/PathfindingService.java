@@ -0,0 +1,200 @@
+package com.toxicrain.artifacts.pathfinding;
+
+import com.toxicrain.artifacts.TileGrid;
+import com.toxicrain.core.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The PathfindingService runs all pathfinding on one background thread.
+ *
+ * <p>It keeps a {@link FlowField} toward the player that is only recomputed when the player moves
+ * into a new cell, and answers single A* path requests. Finished work is handed back to the game
+ * thread in {@link #update(float, float)}, so the results only change between ticks.</p>
+ *
+ * @author strubium
+ */
+public class PathfindingService implements Runnable {
+
+    private final AStarPathfinder pathfinder = new AStarPathfinder();
+    private final ConcurrentLinkedQueue<PathRequest> requests = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<PathRequest> finished = new ConcurrentLinkedQueue<>();
+    private final Map<Integer, int[]> paths = new HashMap<>();
+
+    // The worker fills a spare field and publishes it as ready. The game thread reads
+    // the field it picked up last tick and hands the one before it back as a spare.
+    private final ConcurrentLinkedQueue<FlowField> spareFields = new ConcurrentLinkedQueue<>();
+    private volatile FlowField readyField;
+    private FlowField flowField;
+
+    private volatile int targetCell = -1;
+    private int builtTargetCell = Integer.MIN_VALUE;
+    private int builtGridVersion;
+    private int lastTargetCell = Integer.MIN_VALUE;
+    private int lastGridVersion;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Starts the pathfinding thread
+     */
+    public void start() {
+        running = true;
+        thread = new Thread(this, "RainEngine Pathfinding");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the pathfinding thread
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    /**
+     * Publishes finished work and tells the worker where the player is. Call this once per tick.
+     *
+     * @param playerX the world x position of the player
+     * @param playerY the world y position of the player
+     */
+    public void update(float playerX, float playerY) {
+        FlowField ready = readyField;
+        if (ready != null && ready != flowField) {
+            if (flowField != null) {
+                spareFields.add(flowField);
+            }
+            flowField = ready;
+        }
+
+        PathRequest request;
+        while ((request = finished.poll()) != null) {
+            paths.put(request.agent, request.path);
+        }
+
+        int cell = toCell(playerX, playerY);
+        int gridVersion = TileGrid.getVersion();
+        if (cell != lastTargetCell || gridVersion != lastGridVersion) {
+            lastTargetCell = cell;
+            lastGridVersion = gridVersion;
+            targetCell = cell;
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Gets the flow field toward the player, as of the start of this tick
+     *
+     * @return the flow field, or null if none has been built yet
+     */
+    public FlowField getFlowField() {
+        return flowField;
+    }
+
+    /**
+     * Asks for an A* path between two world positions. The result shows up
+     * in {@link #getPath(int)} in a later tick.
+     *
+     * @param agent who the path is for, like an entity id
+     * @param fromX the world x position to start at
+     * @param fromY the world y position to start at
+     * @param toX the world x position to reach
+     * @param toY the world y position to reach
+     */
+    public void requestPath(int agent, float fromX, float fromY, float toX, float toY) {
+        requests.add(new PathRequest(agent, toCol(fromX), toRow(fromY), toCol(toX), toRow(toY)));
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Gets the last path found for an agent and forgets it
+     *
+     * @param agent who the path is for
+     * @return the cells of the path as row * width + col, or null if none is ready or no path exists
+     */
+    public int[] getPath(int agent) {
+        return paths.remove(agent);
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                int target = targetCell;
+                // One read of the grid for all the work of this wake up, so a rebuild can't change it halfway
+                TileGrid.Snapshot grid = TileGrid.getSnapshot();
+                int gridVersion = grid.getVersion();
+                if ((target != builtTargetCell || gridVersion != builtGridVersion) && grid.getWidth() > 0) {
+                    builtTargetCell = target;
+                    builtGridVersion = gridVersion;
+                    FlowField field = spareFields.poll();
+                    if (field == null) {
+                        field = new FlowField();
+                    }
+                    if (target == -1 || target >= grid.getWidth() * grid.getHeight()) {
+                        field.compute(grid, -1, -1); // The player is off the map
+                    } else {
+                        field.compute(grid, target % grid.getWidth(), target / grid.getWidth());
+                    }
+                    readyField = field;
+                }
+
+                PathRequest request;
+                while ((request = requests.poll()) != null) {
+                    request.path = pathfinder.findPath(grid, request.startCol, request.startRow, request.goalCol, request.goalRow);
+                    finished.add(request);
+                }
+            } catch (Exception e) {
+                Logger.printERROR("Pathfinding error: " + e.getMessage());
+            }
+            LockSupport.park(this);
+        }
+    }
+
+    /**
+     * Gets the cell a world position is in
+     *
+     * @return the cell as row * width + col, or -1 if the position is off the map
+     */
+    public static int toCell(float x, float y) {
+        int col = toCol(x);
+        int row = toRow(y);
+        if (col < 0 || row < 0 || col >= TileGrid.getWidth() || row >= TileGrid.getHeight()) return -1;
+        return row * TileGrid.getWidth() + col;
+    }
+
+    public static int toCol(float x) {
+        return (int) Math.floor((x + 1) * 0.5f);
+    }
+
+    public static int toRow(float y) {
+        return (int) Math.floor((1 - y) * 0.5f);
+    }
+
+    private static class PathRequest {
+        final int agent;
+        final int startCol, startRow, goalCol, goalRow;
+        int[] path;
+
+        PathRequest(int agent, int startCol, int startRow, int goalCol, int goalRow) {
+            this.agent = agent;
+            this.startCol = startCol;
+            this.startRow = startRow;
+            this.goalCol = goalCol;
+            this.goalRow = goalRow;
+        }
+    }
+}
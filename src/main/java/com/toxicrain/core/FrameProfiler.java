@@ -0,0 +1,147 @@
+package com.toxicrain.core;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Times the phases of each frame and keeps the last few hundred frames in a ring buffer.
+ *
+ * <p>Call {@link #beginFrame()}, then {@link #begin(int)} and {@link #end(int)} around each phase,
+ * then {@link #endFrame()}. A phase can be timed more than once in a frame and the times are added up.
+ * Timing only reads {@link System#nanoTime()} into arrays made up front, so it never allocates
+ * and is cheap enough to leave on in release builds.</p>
+ *
+ * @author strubium
+ */
+public class FrameProfiler {
+    public static final int UPDATE = 0;
+    public static final int LUA = 1;
+    public static final int CULL = 2;
+    public static final int DRAW_MAP = 3;
+    public static final int RENDER_BATCH = 4;
+    public static final int IMGUI = 5;
+    /** The whole frame, from {@link #beginFrame()} to {@link #endFrame()} */
+    public static final int FRAME = 6;
+
+    private static final String[] PHASE_NAMES = {"update", "lua", "cull", "drawMap", "renderBatch", "imgui", "frame"};
+
+    /** How many frames are kept */
+    @Getter
+    private final int capacity;
+    /** Nanoseconds per phase, one row of {@link #getPhaseCount()} per frame */
+    private final long[] samples;
+    private final long[] phaseStarts = new long[PHASE_NAMES.length];
+    private final long[] current = new long[PHASE_NAMES.length];
+    private final long[] sortScratch;
+    private long frameStart;
+    /** Where the next frame will be written */
+    private int next;
+    /** How many frames have been written, up to the capacity */
+    @Getter
+    private int frameCount;
+
+    /**
+     * Creates a profiler
+     *
+     * @param capacity how many frames to keep
+     */
+    public FrameProfiler(int capacity) {
+        this.capacity = capacity;
+        samples = new long[capacity * PHASE_NAMES.length];
+        sortScratch = new long[capacity];
+    }
+
+    /**
+     * Starts timing a new frame
+     */
+    public void beginFrame() {
+        Arrays.fill(current, 0);
+        frameStart = System.nanoTime();
+    }
+
+    /**
+     * Starts timing a phase
+     *
+     * @param phase the phase, like {@link #UPDATE}
+     */
+    public void begin(int phase) {
+        phaseStarts[phase] = System.nanoTime();
+    }
+
+    /**
+     * Stops timing a phase, adding the time since {@link #begin(int)} to it
+     *
+     * @param phase the phase, like {@link #UPDATE}
+     */
+    public void end(int phase) {
+        current[phase] += System.nanoTime() - phaseStarts[phase];
+    }
+
+    /**
+     * Stops timing the frame and stores it, replacing the oldest frame once the buffer is full
+     */
+    public void endFrame() {
+        current[FRAME] = System.nanoTime() - frameStart;
+        System.arraycopy(current, 0, samples, next * PHASE_NAMES.length, PHASE_NAMES.length);
+        next = (next + 1) % capacity;
+        frameCount = Math.min(frameCount + 1, capacity);
+    }
+
+    /**
+     * Gets the time of a phase in a stored frame
+     *
+     * @param frame the frame, 0 is the oldest stored frame and {@link #getFrameCount()} - 1 the newest
+     * @param phase the phase, like {@link #UPDATE}
+     * @return the time in nanoseconds
+     */
+    public long getTime(int frame, int phase) {
+        int oldest = frameCount < capacity ? 0 : next;
+        return samples[((oldest + frame) % capacity) * PHASE_NAMES.length + phase];
+    }
+
+    /**
+     * Copies the times of a phase, oldest first, for drawing as a graph
+     *
+     * @param phase the phase, like {@link #FRAME}
+     * @param out gets the times in milliseconds, must hold at least {@link #getFrameCount()} values
+     * @return how many values were written
+     */
+    public int getTimesMillis(int phase, float[] out) {
+        for (int i = 0; i < frameCount; i++) {
+            out[i] = getTime(i, phase) / 1_000_000f;
+        }
+        return frameCount;
+    }
+
+    /**
+     * Gets a percentile of the times of a phase over the stored frames
+     *
+     * @param phase the phase, like {@link #UPDATE}
+     * @param percentile the percentile from 0 to 100, like 95 for p95
+     * @return the time in milliseconds, or 0 if no frames are stored
+     */
+    public float getPercentileMillis(int phase, float percentile) {
+        if (frameCount == 0) return 0;
+        for (int i = 0; i < frameCount; i++) {
+            sortScratch[i] = samples[i * PHASE_NAMES.length + phase];
+        }
+        Arrays.sort(sortScratch, 0, frameCount);
+        int index = Math.min(frameCount - 1, (int) Math.ceil(percentile / 100f * frameCount) - 1);
+        return sortScratch[Math.max(0, index)] / 1_000_000f;
+    }
+
+    /**
+     * Gets the name of a phase, like "update"
+     */
+    public static String getPhaseName(int phase) {
+        return PHASE_NAMES[phase];
+    }
+
+    /**
+     * Gets how many phases there are, including {@link #FRAME}
+     */
+    public static int getPhaseCount() {
+        return PHASE_NAMES.length;
+    }
+}
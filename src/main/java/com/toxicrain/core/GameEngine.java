@@ -1,10 +1,19 @@
 package com.toxicrain.core;
 
-import com.toxicrain.artifacts.behavior.*;
+import com.toxicrain.core.jfr.FrameEvent;
+import com.toxicrain.core.jfr.UpdateEvent;
 import com.toxicrain.core.json.*;
 import com.toxicrain.core.lua.LuaManager;
 import com.toxicrain.core.render.BatchRenderer;
+import com.toxicrain.core.render.BatchSegment;
+import com.toxicrain.core.render.GLRenderBackend;
+import com.toxicrain.core.render.RecordingRenderBackend;
+import com.toxicrain.core.render.RenderSnapshot;
+import com.toxicrain.core.render.SnapshotExchange;
+import com.toxicrain.core.render.HeadlessRenderBackend;
+import com.toxicrain.core.render.ViewCuller;
 import com.toxicrain.artifacts.Tile;
+import com.toxicrain.artifacts.TileGrid;
 import com.toxicrain.factories.GameFactory;
 import com.toxicrain.gui.ImguiHandler;
 import com.toxicrain.gui.Menu;
@@ -24,8 +33,12 @@ import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
 
 import static com.toxicrain.core.json.SettingsInfoParser.windowHeight;
 import static com.toxicrain.core.json.SettingsInfoParser.windowWidth;
@@ -41,6 +54,26 @@ public class GameEngine {
 
     public static final boolean menu = false;
 
+    /** Times the phases of the last 240 frames of the simulation, shown in the profiler window */
+    public static final FrameProfiler profiler = new FrameProfiler(240);
+    /** Times the frames drawn by the main thread when the simulation has its own thread */
+    public static final FrameProfiler renderProfiler = new FrameProfiler(240);
+    /** Samples allocations and GC over the same frames as the profiler, made on the thread the simulation runs on */
+    private static volatile MemoryTelemetry memory;
+    /** How long the main thread waits for the simulation to finish a frame before drawing the last one again */
+    private static final long SNAPSHOT_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static volatile boolean simulationRunning;
+
+    private static final String STRESS_TEXT = "You are stressed out. Take some time to calm down";
+    private static TextEngine textEngine;
+
+    private static boolean headless = false;
+    /** If set, render stats are recorded to this CSV file from the first frame */
+    public static String renderStatsCsv = null;
+    private static final ViewCuller viewCuller = new ViewCuller();
+    /** The fewest visible tiles worth giving their own job when drawing the map */
+    private static final int MAP_SLICE = 512;
+
     public static void run() {
         Thread.setDefaultUncaughtExceptionHandler(new CrashReporter());
         Logger.printLOG("Hello LWJGL " + Version.getVersion() + "!");
@@ -50,6 +83,8 @@ public class GameEngine {
         doVersionCheck();
         Logger.printLOG("Loading User Settings");
         SettingsInfoParser.loadSettingsInfo();
+        // The main thread, and the simulation thread if there is one, keep a core busy each
+        GameFactory.loadJobs(GameInfoParser.separateRenderThread ? 2 : 1);
 
         Logger.printLOG("Loading Lua");
         GameFactory.loadlua();
@@ -59,15 +94,169 @@ public class GameEngine {
         windowManager = new WindowManager((int) windowWidth, (int) windowHeight, true);
 
         init();
-        // Create the batch renderer
-        BatchRenderer batchRenderer = new BatchRenderer();
-
-        loop(batchRenderer);
+        if (GameInfoParser.separateRenderThread) {
+            loopThreaded();
+        } else {
+            // Create the batch renderer
+            BatchRenderer batchRenderer = new BatchRenderer();
+            GameFactory.renderStats = batchRenderer.getStats();
+            memory = new MemoryTelemetry(profiler.getCapacity());
+            startRenderStatsCsv();
+            loop(batchRenderer);
+        }
+        cleanup();
 
         // Free the window callbacks and destroy the window
         windowManager.destroy();
     }
 
+    /**
+     * Runs the game without a window, GL context, GUI or sound, moving the camera along a fixed path
+     * over the map and timing each part of every frame. Frames are built as normal but drawn with a
+     * {@link HeadlessRenderBackend}, which only counts the draw calls, vertices and bytes that would be uploaded.
+     * Lua scripts that play sounds can't be used, as there is no sound system.
+     *
+     * @param frames how many frames to run
+     */
+    public static void runHeadless(int frames) {
+        headless = true;
+        Logger.printLOG("Hello RainEngine " + Constants.engineVersion + "! Running headless for " + frames + " frames");
+        SettingsInfoParser.loadSettingsInfo();
+        GameFactory.loadJobs(1);
+
+        Logger.printLOG("Loading Lua");
+        GameFactory.loadlua();
+        LuaManager.categorizeScripts("resources/scripts/");
+        LuaManager.executeInitScripts();
+
+        Logger.printLOG("Creating Textures");
+        TextureSystem.initHeadlessTextures();
+        KeyInfoParser.loadKeyInfo();
+        LuaManager.bindInputState();
+        createPerspectiveProjectionMatrix(SettingsInfoParser.fov, windowWidth / windowHeight, 1.0f, 100.0f);
+
+        GameFactory.loadHeadless();
+        PaletteInfoParser.loadTextureMappings();
+        LuaManager.executePostInitScripts();
+        LuaManager.startCoroutineScripts();
+
+        HeadlessRenderBackend backend = new HeadlessRenderBackend();
+        BatchRenderer batchRenderer = new BatchRenderer(backend);
+        GameFactory.renderStats = batchRenderer.getStats();
+        memory = new MemoryTelemetry(frames);
+        memory.startThreadSnapshot();
+        startRenderStatsCsv();
+
+        // A fixed step, so every run does the same work
+        float deltaTime = 1.0f / 60.0f;
+        String[] phases = {"update", "cull", "batch", "upload"};
+        long[] totals = new long[phases.length];
+        long[] worst = new long[phases.length];
+        long[] times = new long[phases.length + 1];
+
+        // A loop around the middle of the map
+        float centerX = TileGrid.getWidth() - 1;
+        float centerY = -(TileGrid.getHeight() - 1);
+        float radiusX = Math.max(0, TileGrid.getWidth() - 4) * 0.8f;
+        float radiusY = Math.max(0, TileGrid.getHeight() - 4) * 0.8f;
+
+        for (int frame = 0; frame < frames; frame++) {
+            double angle = 2 * Math.PI * frame / frames;
+            GameFactory.player.cameraX = centerX + radiusX * (float) Math.cos(angle);
+            GameFactory.player.cameraY = centerY + radiusY * (float) Math.sin(angle);
+
+            FrameEvent event = new FrameEvent();
+            event.begin();
+            memory.beginFrame();
+            times[0] = System.nanoTime();
+            update(deltaTime);
+            times[1] = System.nanoTime();
+            cullView();
+            times[2] = System.nanoTime();
+            batchRenderer.beginFrame(GameFactory.player.cameraX, GameFactory.player.cameraY, GameFactory.player.cameraZ);
+            batchRenderer.beginBatch();
+            drawWorld(batchRenderer);
+            times[3] = System.nanoTime();
+            batchRenderer.setBlendingEnabled(true);
+            batchRenderer.renderBatch();
+            batchRenderer.setBlendingEnabled(false);
+            batchRenderer.endFrame();
+            GameFactory.jobSystem.endFrame();
+            GameFactory.jobSystem.runMainThreadJobs();
+            times[4] = System.nanoTime();
+            memory.endFrame();
+            commitFrameEvent(event);
+
+            for (int i = 0; i < phases.length; i++) {
+                long time = times[i + 1] - times[i];
+                totals[i] += time;
+                worst[i] = Math.max(worst[i], time);
+            }
+        }
+
+        GameFactory.pathfindingService.stop();
+        GameFactory.jobSystem.shutdown();
+
+        Logger.printLOG("Headless run of " + frames + " frames over " + MapInfoParser.tiles + " tiles:");
+        for (int i = 0; i < phases.length; i++) {
+            Logger.printLOG(String.format(Locale.ROOT, "  %-6s avg %8.3f ms, max %8.3f ms",
+                    phases[i], totals[i] / 1e6 / Math.max(1, frames), worst[i] / 1e6));
+        }
+        long frameCount = Math.max(1, backend.getFrames());
+        Logger.printLOG(String.format(Locale.ROOT, "  per frame: %d draw calls, %d texture binds, %d vertices, %.1f KB uploaded",
+                backend.getDrawCalls() / frameCount, backend.getTextureBinds() / frameCount,
+                backend.getVertices() / frameCount, backend.getUploadedBytes() / 1024.0 / frameCount));
+        Logger.printLOG("  last frame: " + GameFactory.renderStats.getQuads() + " quads, "
+                + GameFactory.renderStats.getForcedFlushes() + " forced flushes");
+        logMemoryReport();
+        GameFactory.renderStats.stopCsv();
+    }
+
+    /**
+     * Records a frame for the flight recorder, with what the batch renderer drew in it
+     */
+    private static void commitFrameEvent(FrameEvent event) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.frame = GameFactory.renderStats.getFrame();
+            event.quads = GameFactory.renderStats.getQuads();
+            event.drawCalls = GameFactory.renderStats.getDrawCalls();
+            event.textureBinds = GameFactory.renderStats.getTextureBinds();
+            event.commit();
+        }
+    }
+
+    /**
+     * Logs what the headless run allocated and how the GC lined up with the frame times
+     */
+    private static void logMemoryReport() {
+        if (memory.isAllocationSupported()) {
+            Logger.printLOG(String.format(Locale.ROOT, "  game thread allocated %.1f KB per frame, %.2f MB/s",
+                    memory.getAverageAllocatedBytes() / 1024.0, memory.getAllocationRateMegabytes()));
+        }
+        Logger.printLOG(String.format(Locale.ROOT, "  GC ran in %d of %d frames for %d ms, frames with GC avg %.3f ms, without %.3f ms",
+                memory.getGcFrameCount(), memory.getFrameCount(), memory.getGcMillis(),
+                memory.getAverageFrameMillis(true), memory.getAverageFrameMillis(false)));
+        Logger.printLOG(String.format(Locale.ROOT, "  %.0f%% of the slowest 1%% of frames had a GC",
+                memory.getSlowFramesWithGc(99) * 100));
+        Logger.printLOG(String.format(Locale.ROOT, "  direct buffers: %d using %.1f KB",
+                memory.getDirectBufferCount(), memory.getDirectBytes(memory.getFrameCount() - 1) / 1024.0));
+
+        List<Map.Entry<String, Long>> threads = new ArrayList<>(memory.getThreadAllocations().entrySet());
+        threads.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        for (Map.Entry<String, Long> thread : threads) {
+            Logger.printLOG(String.format(Locale.ROOT, "  thread %-24s allocated %10.1f KB",
+                    thread.getKey(), thread.getValue() / 1024.0));
+        }
+    }
+
+    /**
+     * Checks if the game is running without a window
+     */
+    public static boolean isHeadless() {
+        return headless;
+    }
+
 
     private static void init() {
         // Set up an error callback. The default implementation will print the error message in System.err.
@@ -95,6 +284,7 @@ public class GameEngine {
 
         Logger.printLOG("Loading Keybinds");
         KeyInfoParser.loadKeyInfo();
+        LuaManager.bindInputState();
 
         // Set the "background" color
         glClearColor(0, 0, 0, 0);
@@ -133,9 +323,19 @@ public class GameEngine {
         windowManager.doOpenGLSetup();
 
         LuaManager.executePostInitScripts();
+        LuaManager.startCoroutineScripts();
 
         Logger.printLOG("Loading Lang");
         GameFactory.loadLang();
+
+        // Text textures are made here, as the simulation thread can't make them
+        try {
+            Font font = Font.createFont(Font.TRUETYPE_FONT, new File(FileUtils.getCurrentWorkingDirectory("resources/fonts") + "/Perfect DOS VGA 437.ttf")).deriveFont(24f);
+            textEngine = new TextEngine(font, 50);
+            textEngine.prepare(STRESS_TEXT);
+        } catch (FontFormatException | IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private static void drawMap(BatchRenderer batchRenderer) {
@@ -144,13 +344,39 @@ public class GameEngine {
             throw new IllegalStateException("Texture mappings not loaded! Call PaletteInfoParser.loadTextureMappings() first.");
         }
 
-        for (int k = MapInfoParser.mapDataX.size() - 1; k >= 0; k--) {
+        profiler.begin(FrameProfiler.DRAW_MAP);
+        // Each slice of the visible tiles is lit and turned into quads on its own job
+        int count = viewCuller.getCount();
+        int slices = Math.max(1, Math.min(GameFactory.jobSystem.getWorkerCount() + 1, (count + MAP_SLICE - 1) / MAP_SLICE));
+        BatchSegment[] segments = batchRenderer.beginSegments(slices);
+        GameFactory.jobSystem.parallelFor(slices, 1, (from, to) -> {
+            for (int slice = from; slice < to; slice++) {
+                drawMapSlice(segments[slice], count * slice / slices, count * (slice + 1) / slices);
+            }
+        });
+        batchRenderer.addSegments(slices);
+        profiler.end(FrameProfiler.DRAW_MAP);
+    }
+
+    /**
+     * Adds part of the visible tiles to a segment. Runs on a job, so it only reads the map.
+     *
+     * @param segment the segment to fill
+     * @param from the first visible tile, inclusive
+     * @param to the last visible tile, exclusive
+     */
+    private static void drawMapSlice(BatchSegment segment, int from, int to) {
+        int[] visible = viewCuller.getVisible();
+        int[] layers = viewCuller.getLayers();
+        List<float[]> lights = LightSystem.getLightSources();
+        for (int i = from; i < to; i++) {
+            int k = visible[i];
             // Ensure that indices are valid
             if (k >= 0 && k < MapInfoParser.mapDataY.size() && k < MapInfoParser.mapDataX.size()) {
                 char textureChar = Tile.mapDataType.get(k);  // Get the character representing the texture
                 TextureInfo textureInfo = PaletteInfoParser.getTexture(textureChar);  // Get the TextureInfo from TextureLoader
 
-                batchRenderer.addTextureLit(
+                segment.addTextureLit(
                         textureInfo,
                         MapInfoParser.mapDataX.get(k),
                         MapInfoParser.mapDataY.get(k),
@@ -158,33 +384,73 @@ public class GameEngine {
                         0,
                         1,
                         1,
-                        LightSystem.getLightSources()
-                ); // Top-right corner
+                        lights,
+                        layers[i]
+                );
             } else {
-                Logger.printLOG("Index out of bounds: space=" + k);
+                Logger.warn("Index out of bounds: space={}", k);
             }
         }
     }
 
-    private static long lastFrameTime = System.nanoTime();
-
-    private static void update(float deltaTime) {
-        FollowPlayerBehavior followPlayerBehavior = new FollowPlayerBehavior(5.0f);
-        LookAtPlayerBehavior lookAtPlayerBehavior = new LookAtPlayerBehavior();
-        LookAtPlayerSeeingBehavior lookAtPlayerSeeingBehavior = new LookAtPlayerSeeingBehavior();
+    /**
+     * Finds the map tiles in view of the camera, for {@link #drawMap(BatchRenderer)}
+     */
+    private static void cullView() {
+        profiler.begin(FrameProfiler.CULL);
+        viewCuller.cull(GameFactory.player.cameraX, GameFactory.player.cameraY, GameFactory.player.cameraZ,
+                SettingsInfoParser.fov, windowWidth / windowHeight);
+        profiler.end(FrameProfiler.CULL);
+    }
 
+    /**
+     * Adds the map and everything on it to the batch
+     */
+    private static void drawWorld(BatchRenderer batchRenderer) {
+        drawMap(batchRenderer);
+        GameFactory.spriteRenderSystem.render(GameFactory.entityStore, batchRenderer);
+        GameFactory.projectilePool.render(batchRenderer);
+        GameFactory.player.render(batchRenderer);
+        LuaManager.flushSprites(batchRenderer);
+    }
 
-        BehaviorSequence behaviorSequence2 = new BehaviorSequence(new FollowPlayerSeeingBehavior(00.1f), lookAtPlayerSeeingBehavior);
-        BehaviorSequence behaviorSequence = new BehaviorSequence(followPlayerBehavior, lookAtPlayerBehavior);
+    private static long lastFrameTime = System.nanoTime();
 
-        for (int engineFrames = 30; engineFrames >= 0; engineFrames--) {
+    private static void update(float deltaTime) {
+        profiler.begin(FrameProfiler.UPDATE);
+        UpdateEvent event = new UpdateEvent();
+        event.begin();
+        // What ImGui scripts asked for on the main thread, now that nothing else reads the world
+        LuaManager.runDeferred();
+        GameFactory.pathfindingService.update(GameFactory.player.getPosX(), GameFactory.player.getPosY());
+        // Headless runs move the camera themselves, there is no input
+        if (!headless) {
             GameFactory.player.update(deltaTime);
-            behaviorSequence2.execute(GameFactory.character);
-
-            GameFactory.projectile.update();
         }
+        GameFactory.behaviorScheduler.update(GameFactory.entityStore, deltaTime);
+        GameFactory.movementSystem.update(GameFactory.entityStore, deltaTime);
+        GameFactory.collisionSystem.update(GameFactory.entityStore, deltaTime);
+        GameFactory.projectilePool.updateAll(deltaTime);
+        event.end();
+        if (event.shouldCommit()) {
+            event.deltaTime = (long) (deltaTime * 1_000_000_000L);
+            event.entities = GameFactory.entityStore.getCount();
+            event.commit();
+        }
+        profiler.end(FrameProfiler.UPDATE);
 
-        LuaManager.executeTickScripts();
+        profiler.begin(FrameProfiler.LUA);
+        LuaManager.lock();
+        try {
+            LuaManager.executeTickScripts();
+            GameFactory.luaScheduler.tick(deltaTime);
+        } finally {
+            LuaManager.unlock();
+        }
+        profiler.end(FrameProfiler.LUA);
+        if (!headless) {
+            GameFactory.soundSystem.update(GameFactory.player.cameraX, GameFactory.player.cameraY);
+        }
 
         if (menu) {
             GameFactory.player.cameraZ = 25;
@@ -192,24 +458,14 @@ public class GameEngine {
         }
     }
 
-    private static void render(BatchRenderer batchRenderer) {
-        Font font = null;
-        try {
-            font = Font.createFont(Font.TRUETYPE_FONT, new File(FileUtils.getCurrentWorkingDirectory("resources/fonts") + "/Perfect DOS VGA 437.ttf")).deriveFont(24f);
-        } catch (FontFormatException e) {
-            throw new RuntimeException(e);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-
-        TextEngine textEngine = new TextEngine(font, 50);
-        // Clear the color and depth buffers
-        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-
-        // Set up the view matrix
-        glMatrixMode(GL_MODELVIEW);
-        glLoadIdentity();
-        glTranslatef(-GameFactory.player.cameraX, -GameFactory.player.cameraY, -GameFactory.player.cameraZ);
+    /**
+     * Culls the view and adds the whole frame to the batch, then draws the batch. On the simulation
+     * thread the batch renderer records into a snapshot, so nothing here touches GL.
+     */
+    private static void buildFrame(BatchRenderer batchRenderer) {
+        cullView();
+        // Clear the screen and set up the view matrix
+        batchRenderer.beginFrame(GameFactory.player.cameraX, GameFactory.player.cameraY, GameFactory.player.cameraZ);
 
         // Begin the batch
         batchRenderer.beginBatch();
@@ -217,12 +473,9 @@ public class GameEngine {
         if (menu) {
             Menu.render(batchRenderer);
         } else {
-            drawMap(batchRenderer);
-            GameFactory.character.render(batchRenderer);
-            GameFactory.projectile.render(batchRenderer);
-            GameFactory.player.render(batchRenderer);
+            drawWorld(batchRenderer);
             if(GameFactory.player.stressLevel == 100f){
-                textEngine.render(batchRenderer, "You are stressed out. Take some time to calm down", (int) (GameFactory.player.cameraX + 2),(int) (GameFactory.player.cameraY + 2));
+                textEngine.render(batchRenderer, STRESS_TEXT, (int) (GameFactory.player.cameraX + 2),(int) (GameFactory.player.cameraY + 2));
 
             }
         }
@@ -230,36 +483,157 @@ public class GameEngine {
 
         batchRenderer.setBlendingEnabled(true);
         // Render the batch
+        profiler.begin(FrameProfiler.RENDER_BATCH);
         batchRenderer.renderBatch();
+        profiler.end(FrameProfiler.RENDER_BATCH);
+        batchRenderer.endFrame();
 
         batchRenderer.setBlendingEnabled(false);
+    }
 
+    /**
+     * Draws the ImGui windows. Only called on the main thread.
+     *
+     * @param timing the profiler to time the GUI with, the one of the thread calling this
+     */
+    private static void drawGui(FrameProfiler timing) {
         if (windowManager.isFocused()) {
+            timing.begin(FrameProfiler.IMGUI);
             GameFactory.imguiApp.handleInput(windowManager.getWindow());
             GameFactory.imguiApp.newFrame();
             GameFactory.imguiApp.drawSettingsUI();
             GameFactory.imguiApp.drawFileEditorUI();
+            GameFactory.imguiApp.drawProfilerUI("Profiler", profiler, memory);
+            if (timing != profiler) {
+                GameFactory.imguiApp.drawProfilerUI("Render Profiler", timing, null);
+            }
+            GameFactory.imguiApp.drawRenderStatsUI(GameFactory.renderStats);
             LuaManager.executeAllImguiScripts();
             GameFactory.imguiApp.render();
+            timing.end(FrameProfiler.IMGUI);
         }
+    }
 
+    /**
+     * Shows the frame, then reads the events and input that came in while it was drawn
+     */
+    private static void presentFrame() {
         // Swap buffers and poll events
         windowManager.swapAndPoll();
+        GameFactory.mouseUtils.pollInput();
+        GameFactory.jobSystem.runMainThreadJobs();
     }
 
+    /**
+     * Runs the whole game on the main thread, each frame updating, building and drawing in turn
+     */
     private static void loop(BatchRenderer batchRenderer) {
         // Run the rendering loop until the user has attempted to close the window/pressed the ESCAPE key.
+        GameFactory.mouseUtils.pollInput();
         while (!windowManager.shouldClose()) {
             long currentTime = System.nanoTime();
             float deltaTime = (currentTime - lastFrameTime) / 1_000_000_000.0f; // Convert nanoseconds to seconds
             lastFrameTime = currentTime;
 
+            FrameEvent event = new FrameEvent();
+            event.begin();
+            profiler.beginFrame();
+            memory.beginFrame();
+            update(deltaTime);
+            buildFrame(batchRenderer);
+            GameFactory.jobSystem.endFrame();
+            drawGui(profiler);
+            presentFrame();
+            memory.endFrame();
+            profiler.endFrame();
+            commitFrameEvent(event);
+        }
+    }
+
+    /**
+     * Runs the simulation on its own thread while the main thread draws. The simulation thread updates
+     * the world and builds each frame into a {@link RenderSnapshot}; the main thread draws the newest
+     * snapshot with GL, draws the GUI, then waits on vsync, without holding up the game logic.
+     */
+    private static void loopThreaded() {
+        GLRenderBackend glBackend = new GLRenderBackend();
+        RecordingRenderBackend recorder = new RecordingRenderBackend();
+        BatchRenderer batchRenderer = new BatchRenderer(recorder);
+        GameFactory.renderStats = batchRenderer.getStats();
+        startRenderStatsCsv();
+        SnapshotExchange exchange = new SnapshotExchange(GameInfoParser.maxTexturesPerBatch);
+
+        GameFactory.mouseUtils.pollInput();
+        simulationRunning = true;
+        Thread simulation = new Thread(() -> simulate(batchRenderer, recorder, exchange), "RainEngine Simulation");
+        simulation.start();
+
+        while (!windowManager.shouldClose()) {
+            renderProfiler.beginFrame();
+            RenderSnapshot snapshot = exchange.takeLatest(SNAPSHOT_WAIT_NANOS);
+            if (!snapshot.isEmpty()) {
+                renderProfiler.begin(FrameProfiler.RENDER_BATCH);
+                snapshot.replay(glBackend);
+                renderProfiler.end(FrameProfiler.RENDER_BATCH);
+            }
+            drawGui(renderProfiler);
+            presentFrame();
+            renderProfiler.endFrame();
+        }
+
+        simulationRunning = false;
+        exchange.close();
+        try {
+            simulation.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The simulation thread of {@link #loopThreaded()}. Runs until it is stopped or the exchange is closed.
+     */
+    private static void simulate(BatchRenderer batchRenderer, RecordingRenderBackend recorder, SnapshotExchange exchange) {
+        memory = new MemoryTelemetry(profiler.getCapacity());
+        while (simulationRunning) {
+            long currentTime = System.nanoTime();
+            float deltaTime = (currentTime - lastFrameTime) / 1_000_000_000.0f; // Convert nanoseconds to seconds
+            lastFrameTime = currentTime;
 
+            FrameEvent event = new FrameEvent();
+            event.begin();
+            profiler.beginFrame();
+            memory.beginFrame();
             update(deltaTime);
-            render(batchRenderer);
+            recorder.setTarget(exchange.getBack());
+            buildFrame(batchRenderer);
+            GameFactory.jobSystem.endFrame();
+            memory.endFrame();
+            profiler.endFrame();
+            commitFrameEvent(event);
+
+            if (!exchange.publish()) break;
+        }
+    }
+
+    /**
+     * Starts recording the render stats, if a CSV file was asked for
+     */
+    private static void startRenderStatsCsv() {
+        if (renderStatsCsv != null) {
+            GameFactory.renderStats.startCsv(renderStatsCsv);
         }
+    }
+
+    /**
+     * Stops everything started by {@link #init()}, after the game loop ends
+     */
+    private static void cleanup() {
         ImguiHandler.cleanup();
+        GameFactory.renderStats.stopCsv();
+        GameFactory.pathfindingService.stop();
         GameFactory.soundSystem.cleanup();
+        GameFactory.jobSystem.shutdown();
     }
 
     /**
@@ -1,11 +1,128 @@
 package com.toxicrain.core;
 
+import com.toxicrain.core.logging.AsyncLogBackend;
+import com.toxicrain.core.logging.LogLevel;
+
+import java.nio.file.Paths;
+
 /**
- * Utility class for logging messages to the console.
+ * Utility class for logging messages to the console and to logs/rainengine.log.
+ *
+ * <p>Messages are put on a queue and written by a background thread, so logging from the
+ * game loop doesn't wait on the console. Use the leveled methods with {} placeholders, like
+ * {@code Logger.debug("Loaded {} tiles", count)}: the level is checked before anything is
+ * formatted, and the formatting happens on the writer thread. Arguments are turned into strings
+ * later, so don't log an object that is about to be changed.</p>
  *
  * @author strubium
  */
 public class Logger {
+    /** How many messages can wait to be written before new ones are dropped */
+    private static final int QUEUE_SIZE = 8192;
+    /** How big a log file gets before it is rolled over */
+    private static final long MAX_FILE_SIZE = 5 * 1024 * 1024;
+    /** How many old log files are kept */
+    private static final int MAX_FILES = 5;
+
+    private static final AsyncLogBackend backend =
+            new AsyncLogBackend(QUEUE_SIZE, Paths.get("logs").toAbsolutePath(), "rainengine", MAX_FILE_SIZE, MAX_FILES);
+    private static volatile boolean shutDown = false;
+
+    static {
+        // Write whatever is still queued when the game exits, even after a crash
+        Runtime.getRuntime().addShutdownHook(new Thread(Logger::shutdown, "RainEngine Logger Shutdown"));
+    }
+
+    /**
+     * Sets the lowest level that is logged
+     *
+     * @param level the level, like {@link LogLevel#INFO}
+     */
+    public static void setLevel(LogLevel level) {
+        backend.setLevel(level);
+    }
+
+    /**
+     * Checks if messages of a level are logged, for when building the arguments is itself expensive
+     */
+    public static boolean isEnabled(LogLevel level) {
+        return backend.isEnabled(level);
+    }
+
+    public static void debug(String message) {
+        log(LogLevel.DEBUG, message, 0, null, null, null, null);
+    }
+
+    public static void debug(String message, Object arg0) {
+        log(LogLevel.DEBUG, message, 1, arg0, null, null, null);
+    }
+
+    public static void debug(String message, Object arg0, Object arg1) {
+        log(LogLevel.DEBUG, message, 2, arg0, arg1, null, null);
+    }
+
+    public static void debug(String message, Object arg0, Object arg1, Object arg2) {
+        log(LogLevel.DEBUG, message, 3, arg0, arg1, arg2, null);
+    }
+
+    public static void debug(String message, Object... args) {
+        log(LogLevel.DEBUG, message, args.length, null, null, null, args);
+    }
+
+    public static void info(String message) {
+        log(LogLevel.INFO, message, 0, null, null, null, null);
+    }
+
+    public static void info(String message, Object arg0) {
+        log(LogLevel.INFO, message, 1, arg0, null, null, null);
+    }
+
+    public static void info(String message, Object arg0, Object arg1) {
+        log(LogLevel.INFO, message, 2, arg0, arg1, null, null);
+    }
+
+    public static void info(String message, Object arg0, Object arg1, Object arg2) {
+        log(LogLevel.INFO, message, 3, arg0, arg1, arg2, null);
+    }
+
+    public static void info(String message, Object... args) {
+        log(LogLevel.INFO, message, args.length, null, null, null, args);
+    }
+
+    public static void warn(String message) {
+        log(LogLevel.WARN, message, 0, null, null, null, null);
+    }
+
+    public static void warn(String message, Object arg0) {
+        log(LogLevel.WARN, message, 1, arg0, null, null, null);
+    }
+
+    public static void warn(String message, Object arg0, Object arg1) {
+        log(LogLevel.WARN, message, 2, arg0, arg1, null, null);
+    }
+
+    public static void warn(String message, Object... args) {
+        log(LogLevel.WARN, message, args.length, null, null, null, args);
+    }
+
+    public static void error(String message) {
+        log(LogLevel.ERROR, message, 0, null, null, null, null);
+    }
+
+    /**
+     * Logs an error. If the last argument is an exception without a {} of its own, its stack trace is logged too.
+     */
+    public static void error(String message, Object arg0) {
+        log(LogLevel.ERROR, message, 1, arg0, null, null, null);
+    }
+
+    public static void error(String message, Object arg0, Object arg1) {
+        log(LogLevel.ERROR, message, 2, arg0, arg1, null, null);
+    }
+
+    public static void error(String message, Object... args) {
+        log(LogLevel.ERROR, message, args.length, null, null, null, args);
+    }
 
     /**
      * Prints a log message to the console.
@@ -13,7 +130,7 @@ public class Logger {
      * @param input The message to be logged.
      */
     public static void printLOG(String input){
-        System.out.println("[LOG]: " + input);
+        info(input);
     }
     /**
      * Prints a log message to the console if a condition
@@ -23,7 +140,7 @@ public class Logger {
      * @param bool The condition to print
      */
     public static void printLOGConditional(String input, boolean bool){
-        if(bool)System.out.println("[LOG]: " + input);
+        if(bool)info(input);
     }
     /**
      * Prints an error message to the console.
@@ -31,7 +148,30 @@ public class Logger {
      * @param input The error message to be logged.
      */
     public static void printERROR(String input){
-        System.err.println("[ERROR]: " + input);
+        error(input);
     }
 
+    /**
+     * Waits until everything logged so far has been written, for when the game is about to stop
+     */
+    public static void flush() {
+        if (!shutDown) {
+            backend.flush(1000);
+        }
+    }
+
+    private static void log(LogLevel level, String message, int argCount, Object arg0, Object arg1, Object arg2, Object[] args) {
+        if (!backend.isEnabled(level)) return;
+        if (shutDown) {
+            // The writer is gone, so print straight away
+            (level.compareTo(LogLevel.WARN) >= 0 ? System.err : System.out).println(message);
+            return;
+        }
+        backend.log(level, message, argCount, arg0, arg1, arg2, args);
+    }
+
+    private static void shutdown() {
+        shutDown = true;
+        backend.shutdown(2000);
+    }
 }
@@ -0,0 +1,318 @@
+package com.toxicrain.core;
+
+import lombok.Getter;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Samples how much memory each frame allocates, when the garbage collector runs and how much
+ * direct buffer memory is in use, and keeps the last few hundred frames in a ring buffer.
+ *
+ * <p>Call {@link #beginFrame()} and {@link #endFrame()} around each frame on the game thread.
+ * Allocations are read from the JVM's per thread counter, so only what the game thread allocates
+ * is counted; use {@link #startThreadSnapshot()} and {@link #getThreadAllocations()} to see what
+ * the other threads allocated over a longer run. GC pauses are matched to the frames they happened
+ * in, so the slow frames caused by the GC can be told apart from slow frames caused by the game.</p>
+ *
+ * <p>Everything used each frame is looked up up front, so sampling a frame doesn't allocate.</p>
+ *
+ * @author strubium
+ */
+public class MemoryTelemetry {
+    /** How many frames are kept */
+    @Getter
+    private final int capacity;
+    private final long[] frameNanos;
+    private final long[] allocatedBytes;
+    private final int[] gcCounts;
+    private final long[] gcMillis;
+    private final long[] directBytes;
+    private final long[] sortScratch;
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final GarbageCollectorMXBean[] gcBeans;
+    private final BufferPoolMXBean directPool;
+    private final long threadId;
+
+    private long frameStart;
+    private long frameStartAllocated;
+    private long frameStartGcCount;
+    private long frameStartGcMillis;
+    /** Where the next frame will be written */
+    private int next;
+    /** How many frames have been written, up to the capacity */
+    @Getter
+    private int frameCount;
+    private final Map<Long, Long> threadSnapshot = new HashMap<>();
+
+    /**
+     * Creates the telemetry for the thread calling it, which should be the game thread
+     *
+     * @param capacity how many frames to keep
+     */
+    public MemoryTelemetry(int capacity) {
+        this.capacity = capacity;
+        frameNanos = new long[capacity];
+        allocatedBytes = new long[capacity];
+        gcCounts = new int[capacity];
+        gcMillis = new long[capacity];
+        directBytes = new long[capacity];
+        sortScratch = new long[capacity];
+        threadId = Thread.currentThread().getId();
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threadBean = (com.sun.management.ThreadMXBean) bean;
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threadBean = null;
+            Logger.warn("This JVM can't count allocated bytes, allocations won't be shown");
+        }
+
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        gcBeans = collectors.toArray(new GarbageCollectorMXBean[0]);
+
+        BufferPoolMXBean direct = null;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                direct = pool;
+            }
+        }
+        directPool = direct;
+    }
+
+    /**
+     * Starts sampling a new frame
+     */
+    public void beginFrame() {
+        frameStartAllocated = getAllocatedTotal();
+        frameStartGcCount = getGcCountTotal();
+        frameStartGcMillis = getGcMillisTotal();
+        frameStart = System.nanoTime();
+    }
+
+    /**
+     * Stops sampling the frame and stores it, replacing the oldest frame once the buffer is full
+     */
+    public void endFrame() {
+        frameNanos[next] = System.nanoTime() - frameStart;
+        allocatedBytes[next] = getAllocatedTotal() - frameStartAllocated;
+        gcCounts[next] = (int) (getGcCountTotal() - frameStartGcCount);
+        gcMillis[next] = getGcMillisTotal() - frameStartGcMillis;
+        directBytes[next] = directPool != null ? directPool.getMemoryUsed() : 0;
+        next = (next + 1) % capacity;
+        frameCount = Math.min(frameCount + 1, capacity);
+    }
+
+    /**
+     * Checks if the JVM can count allocated bytes. If not, every frame shows 0 bytes allocated.
+     */
+    public boolean isAllocationSupported() {
+        return threadBean != null;
+    }
+
+    /**
+     * Gets how many bytes the game thread allocated in a stored frame
+     *
+     * @param frame the frame, 0 is the oldest stored frame and {@link #getFrameCount()} - 1 the newest
+     */
+    public long getAllocatedBytes(int frame) {
+        return allocatedBytes[index(frame)];
+    }
+
+    /**
+     * Gets how many times the GC ran during a stored frame
+     *
+     * @param frame the frame, 0 is the oldest stored frame and {@link #getFrameCount()} - 1 the newest
+     */
+    public int getGcCount(int frame) {
+        return gcCounts[index(frame)];
+    }
+
+    /**
+     * Gets how many direct buffer bytes were in use at the end of a stored frame
+     *
+     * @param frame the frame, 0 is the oldest stored frame and {@link #getFrameCount()} - 1 the newest
+     */
+    public long getDirectBytes(int frame) {
+        return directBytes[index(frame)];
+    }
+
+    /**
+     * Gets how many direct buffers are in use right now
+     */
+    public long getDirectBufferCount() {
+        return directPool != null ? directPool.getCount() : 0;
+    }
+
+    /**
+     * Copies how much each stored frame allocated, oldest first, for drawing as a graph
+     *
+     * @param out gets the allocations in kilobytes, must hold at least {@link #getFrameCount()} values
+     * @return how many values were written
+     */
+    public int getAllocatedKilobytes(float[] out) {
+        for (int i = 0; i < frameCount; i++) {
+            out[i] = allocatedBytes[index(i)] / 1024f;
+        }
+        return frameCount;
+    }
+
+    /**
+     * Gets the average bytes the game thread allocated per frame over the stored frames
+     */
+    public long getAverageAllocatedBytes() {
+        if (frameCount == 0) return 0;
+        long total = 0;
+        for (int i = 0; i < frameCount; i++) {
+            total += allocatedBytes[i];
+        }
+        return total / frameCount;
+    }
+
+    /**
+     * Gets how fast the game thread allocates over the stored frames
+     *
+     * @return the rate in megabytes per second
+     */
+    public float getAllocationRateMegabytes() {
+        long bytes = 0;
+        long nanos = 0;
+        for (int i = 0; i < frameCount; i++) {
+            bytes += allocatedBytes[i];
+            nanos += frameNanos[i];
+        }
+        return nanos == 0 ? 0 : (float) (bytes / (1024.0 * 1024.0) / (nanos / 1e9));
+    }
+
+    /**
+     * Gets how many of the stored frames had the GC run during them
+     */
+    public int getGcFrameCount() {
+        int count = 0;
+        for (int i = 0; i < frameCount; i++) {
+            if (gcCounts[i] > 0) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the total GC time over the stored frames
+     *
+     * @return the time in milliseconds, as the JVM reports it
+     */
+    public long getGcMillis() {
+        long total = 0;
+        for (int i = 0; i < frameCount; i++) {
+            total += gcMillis[i];
+        }
+        return total;
+    }
+
+    /**
+     * Gets the average frame time of the stored frames that did or didn't have the GC run during them
+     *
+     * @param withGc true for the frames the GC ran in, false for the others
+     * @return the time in milliseconds, or 0 if there are no such frames
+     */
+    public float getAverageFrameMillis(boolean withGc) {
+        long total = 0;
+        int count = 0;
+        for (int i = 0; i < frameCount; i++) {
+            if ((gcCounts[i] > 0) == withGc) {
+                total += frameNanos[i];
+                count++;
+            }
+        }
+        return count == 0 ? 0 : total / 1_000_000f / count;
+    }
+
+    /**
+     * Gets how many of the slowest frames had the GC run during them, to tell if hitches are caused by the GC
+     *
+     * @param percentile the frames at or above this percentile of frame time count as slow, like 99
+     * @return the share of slow frames with a GC, from 0 to 1
+     */
+    public float getSlowFramesWithGc(float percentile) {
+        if (frameCount == 0) return 0;
+        System.arraycopy(frameNanos, 0, sortScratch, 0, frameCount);
+        Arrays.sort(sortScratch, 0, frameCount);
+        int index = Math.min(frameCount - 1, Math.max(0, (int) Math.ceil(percentile / 100f * frameCount) - 1));
+        long threshold = sortScratch[index];
+
+        int slow = 0;
+        int slowWithGc = 0;
+        for (int i = 0; i < frameCount; i++) {
+            if (frameNanos[i] >= threshold) {
+                slow++;
+                if (gcCounts[i] > 0) slowWithGc++;
+            }
+        }
+        return (float) slowWithGc / slow;
+    }
+
+    /**
+     * Remembers how much every live thread has allocated so far, for {@link #getThreadAllocations()}
+     */
+    public void startThreadSnapshot() {
+        threadSnapshot.clear();
+        if (threadBean == null) return;
+        long[] ids = threadBean.getAllThreadIds();
+        long[] bytes = threadBean.getThreadAllocatedBytes(ids);
+        for (int i = 0; i < ids.length; i++) {
+            threadSnapshot.put(ids[i], bytes[i]);
+        }
+    }
+
+    /**
+     * Gets how much each live thread has allocated since {@link #startThreadSnapshot()}
+     *
+     * @return the bytes allocated by thread name, for threads that allocated anything
+     */
+    public Map<String, Long> getThreadAllocations() {
+        Map<String, Long> allocations = new HashMap<>();
+        if (threadBean == null) return allocations;
+        long[] ids = threadBean.getAllThreadIds();
+        long[] bytes = threadBean.getThreadAllocatedBytes(ids);
+        for (int i = 0; i < ids.length; i++) {
+            long allocated = bytes[i] - threadSnapshot.getOrDefault(ids[i], 0L);
+            java.lang.management.ThreadInfo info = threadBean.getThreadInfo(ids[i]);
+            if (allocated > 0 && info != null) {
+                allocations.merge(info.getThreadName(), allocated, Long::sum);
+            }
+        }
+        return allocations;
+    }
+
+    private int index(int frame) {
+        int oldest = frameCount < capacity ? 0 : next;
+        return (oldest + frame) % capacity;
+    }
+
+    private long getAllocatedTotal() {
+        return threadBean != null ? threadBean.getThreadAllocatedBytes(threadId) : 0;
+    }
+
+    private long getGcCountTotal() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean : gcBeans) {
+            total += Math.max(0, bean.getCollectionCount());
+        }
+        return total;
+    }
+
+    private long getGcMillisTotal() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean : gcBeans) {
+            total += Math.max(0, bean.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -76,7 +76,7 @@ public class WindowManager {
         glfwSetScrollCallback(window, new GLFWScrollCallback() {
             @Override
             public void invoke(long window, double xoffset, double yoffset) {
-                GameFactory.player.scrollOffset = (float) yoffset;
+                GameFactory.mouseUtils.addScroll((float) yoffset);
             }
         });
     }
@@ -144,8 +144,13 @@ public class WindowManager {
         glfwSetErrorCallback(null).free();
     }
 
+    /**
+     * Changes the window title. It can be called from any thread, from other threads the title is changed on the main thread at the end of the frame.
+     *
+     * @param newTitle the new title
+     */
     public void setWindowTitle(String newTitle) {
-        glfwSetWindowTitle(window, newTitle);
+        GameFactory.jobSystem.runOnMainThread(() -> glfwSetWindowTitle(window, newTitle));
     }
 
 }
@@ -0,0 +1,89 @@
+package com.toxicrain.core.ecs;
+
+import com.toxicrain.artifacts.NPC;
+import com.toxicrain.core.interfaces.ISystem;
+import com.toxicrain.core.json.GameInfoParser;
+import com.toxicrain.factories.GameFactory;
+import lombok.Getter;
+
+/**
+ * The BehaviorScheduler runs the behavior tree of every entity with an AI component.
+ *
+ * <p>It is updated once per frame, and each update has two phases. First the NPCs perceive the world
+ * (distance to the player, if it can see them). That only reads shared state, so large crowds are
+ * split into chunks and perceived in parallel on the job system. Then the behaviors run one NPC at a
+ * time, in slot order, using what was perceived, so movement is applied the same way every run.</p>
+ *
+ * <p>Both phases share a time budget per frame, set by aiTickBudget in gameinfo.json. When a crowd
+ * takes longer than that, the NPCs that did not get a turn go first in the next update, so the
+ * cost of AI per frame stays capped and every NPC still gets its turn in round robin.
+ * Only the NPCs about to get a turn are perceived, sized from how many got one last update.
+ * An NPC past that window perceives itself when its behavior first asks, which is charged to the budget too.</p>
+ *
+ * @author strubium
+ */
+public class BehaviorScheduler implements ISystem {
+
+    /** NPCs per perception job. Smaller crowds are perceived on the calling thread */
+    private static final int PERCEPTION_CHUNK = 256;
+
+    @Getter
+    private int tick;
+    /** The seconds the scheduler has been updated for, to time each NPC's turns */
+    private double time;
+    private int nextSlot;
+    /** How many NPCs to perceive ahead of their turn */
+    private int perceptionWindow = PERCEPTION_CHUNK;
+
+    @Override
+    public void update(EntityStore store, float deltaTime) {
+        tick++;
+        time += deltaTime;
+        int count = store.getCount();
+        float playerX = GameFactory.player.getPosX();
+        float playerY = GameFactory.player.getPosY();
+
+        long budget = GameInfoParser.aiTickBudget * 1000L;
+        long start = budget > 0 ? System.nanoTime() : 0;
+        int first = nextSlot < count ? nextSlot : 0;
+
+        // Perception phase, read only, for the NPCs whose turn is next
+        int perceptionTick = tick;
+        int window = budget > 0 ? Math.min(count, perceptionWindow) : count;
+        GameFactory.jobSystem.parallelFor(window, PERCEPTION_CHUNK,
+                (from, to) -> perceive(store, first, from, to, playerX, playerY, perceptionTick));
+
+        // Commit phase, single threaded and in slot order. Once the AI budget is used up
+        // the rest of the NPCs wait, and the next update starts with them.
+        int slot = first;
+        int done = 0;
+        while (done < count) {
+            if ((store.mask[slot] & EntityStore.AI) != 0 && store.behavior[slot] != null) {
+                NPC npc = store.agent[slot];
+                npc.getBlackboard().beginTurn(time, deltaTime);
+                store.behavior[slot].execute(npc, npc.getBlackboard());
+            }
+            if (++slot == count) slot = 0;
+            done++;
+            if (budget > 0 && (done & 15) == 0 && System.nanoTime() - start > budget) break;
+        }
+        nextSlot = slot;
+        // Perceive a bit more than this update got through, so the window follows the budget
+        perceptionWindow = Math.max(PERCEPTION_CHUNK, done + (done >> 1));
+    }
+
+    /**
+     * Perceives part of the window of NPCs starting at a slot, wrapping around the end of the store
+     */
+    private static void perceive(EntityStore store, int first, int from, int to, float playerX, float playerY, int tick) {
+        int[] mask = store.mask;
+        NPC[] agents = store.agent;
+        int count = store.getCount();
+        for (int i = from; i < to; i++) {
+            int slot = (first + i) % count;
+            if ((mask[slot] & EntityStore.AI) != 0 && agents[slot] != null) {
+                agents[slot].perceive(playerX, playerY, tick);
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.toxicrain.core.ecs;
+
+import com.toxicrain.artifacts.NPC;
+import com.toxicrain.artifacts.behavior.Behavior;
+import com.toxicrain.texture.TextureInfo;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * The EntityStore holds every entity's components as a struct of arrays.
+ *
+ * <p>Entities are packed densely into slots 0 to {@link #getCount()}, so systems can loop over
+ * plain arrays. Removing an entity moves the last entity into its slot, so slots change but
+ * entity ids don't. Use {@link #getSlot(int)} to find where an entity currently lives.
+ * Ids of removed entities are reused.</p>
+ *
+ * @author strubium
+ */
+public class EntityStore {
+
+    /** The entity has a position and rotation */
+    public static final int POSITION = 1;
+    /** The entity moves by its velocity every engine step */
+    public static final int VELOCITY = 1 << 1;
+    /** The entity is drawn with a texture */
+    public static final int SPRITE = 1 << 2;
+    /** The entity runs a behavior */
+    public static final int AI = 1 << 3;
+
+    // Components, indexed by slot
+    public int[] mask;
+    public float[] posX;
+    public float[] posY;
+    public float[] rotation;
+    public float[] velX;
+    public float[] velY;
+    public TextureInfo[] sprite;
+    public float[] scale;
+    public Behavior[] behavior;
+    public NPC[] agent;
+
+    private int[] slotToId;
+    private int[] idToSlot;
+    private int[] freeIds;
+    private int freeIdCount;
+    private int nextId;
+    @Getter
+    private int count;
+
+    /**
+     * Creates a store. It grows when more entities are added than it can hold.
+     *
+     * @param capacity the number of entities to make room for
+     */
+    public EntityStore(int capacity) {
+        capacity = Math.max(capacity, 16);
+        mask = new int[capacity];
+        posX = new float[capacity];
+        posY = new float[capacity];
+        rotation = new float[capacity];
+        velX = new float[capacity];
+        velY = new float[capacity];
+        sprite = new TextureInfo[capacity];
+        scale = new float[capacity];
+        behavior = new Behavior[capacity];
+        agent = new NPC[capacity];
+        slotToId = new int[capacity];
+        idToSlot = new int[capacity];
+        freeIds = new int[capacity];
+        Arrays.fill(idToSlot, -1);
+    }
+
+    /**
+     * Adds an entity. Every component starts at zero, except scale which starts at 1.
+     *
+     * @param components the component flags of the entity, like POSITION | SPRITE
+     * @return the id of the entity
+     */
+    public int create(int components) {
+        if (count == mask.length) {
+            grow(mask.length * 2);
+        }
+        int id = freeIdCount > 0 ? freeIds[--freeIdCount] : nextId++;
+        if (id >= idToSlot.length) {
+            int oldLength = idToSlot.length;
+            idToSlot = Arrays.copyOf(idToSlot, Math.max(id + 1, oldLength * 2));
+            Arrays.fill(idToSlot, oldLength, idToSlot.length, -1);
+        }
+
+        int slot = count++;
+        slotToId[slot] = id;
+        idToSlot[id] = slot;
+        mask[slot] = components;
+        posX[slot] = 0;
+        posY[slot] = 0;
+        rotation[slot] = 0;
+        velX[slot] = 0;
+        velY[slot] = 0;
+        sprite[slot] = null;
+        scale[slot] = 1;
+        behavior[slot] = null;
+        agent[slot] = null;
+        return id;
+    }
+
+    /**
+     * Removes an entity. The last entity is moved into its slot to keep the arrays packed.
+     *
+     * @param id the id of the entity
+     */
+    public void destroy(int id) {
+        int slot = getSlot(id);
+        if (slot == -1) return;
+
+        int last = --count;
+        if (slot != last) {
+            mask[slot] = mask[last];
+            posX[slot] = posX[last];
+            posY[slot] = posY[last];
+            rotation[slot] = rotation[last];
+            velX[slot] = velX[last];
+            velY[slot] = velY[last];
+            sprite[slot] = sprite[last];
+            scale[slot] = scale[last];
+            behavior[slot] = behavior[last];
+            agent[slot] = agent[last];
+            int movedId = slotToId[last];
+            slotToId[slot] = movedId;
+            idToSlot[movedId] = slot;
+        }
+        // Don't keep textures or behaviors alive
+        sprite[last] = null;
+        behavior[last] = null;
+        agent[last] = null;
+        mask[last] = 0;
+
+        idToSlot[id] = -1;
+        if (freeIdCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeIdCount++] = id;
+    }
+
+    /**
+     * Gets the slot an entity is stored in
+     *
+     * @param id the id of the entity
+     * @return the slot, or -1 if the entity does not exist
+     */
+    public int getSlot(int id) {
+        return id >= 0 && id < idToSlot.length ? idToSlot[id] : -1;
+    }
+
+    /**
+     * Gets the id of the entity in a slot
+     *
+     * @param slot the slot, from 0 to {@link #getCount()}
+     * @return the id of the entity
+     */
+    public int getId(int slot) {
+        return slotToId[slot];
+    }
+
+    /**
+     * Checks if an entity exists
+     *
+     * @param id the id of the entity
+     * @return true if the entity has not been removed
+     */
+    public boolean isAlive(int id) {
+        return getSlot(id) != -1;
+    }
+
+    /**
+     * Checks if an entity has all the given components
+     *
+     * @param slot the slot of the entity
+     * @param components the component flags to check
+     * @return true if the entity has every one of them
+     */
+    public boolean has(int slot, int components) {
+        return (mask[slot] & components) == components;
+    }
+
+    private void grow(int capacity) {
+        mask = Arrays.copyOf(mask, capacity);
+        posX = Arrays.copyOf(posX, capacity);
+        posY = Arrays.copyOf(posY, capacity);
+        rotation = Arrays.copyOf(rotation, capacity);
+        velX = Arrays.copyOf(velX, capacity);
+        velY = Arrays.copyOf(velY, capacity);
+        sprite = Arrays.copyOf(sprite, capacity);
+        scale = Arrays.copyOf(scale, capacity);
+        behavior = Arrays.copyOf(behavior, capacity);
+        agent = Arrays.copyOf(agent, capacity);
+        slotToId = Arrays.copyOf(slotToId, capacity);
+    }
+}
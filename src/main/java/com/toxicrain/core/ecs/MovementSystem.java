@@ -0,0 +1,29 @@
+package com.toxicrain.core.ecs;
+
+import com.toxicrain.core.interfaces.ISystem;
+
+/**
+ * Moves every entity with a position and velocity.
+ * Velocity is in units per engine step, so this is run once per step.
+ *
+ * @author strubium
+ */
+public class MovementSystem implements ISystem {
+
+    private static final int COMPONENTS = EntityStore.POSITION | EntityStore.VELOCITY;
+
+    @Override
+    public void update(EntityStore store, float deltaTime) {
+        int[] mask = store.mask;
+        float[] posX = store.posX;
+        float[] posY = store.posY;
+        float[] velX = store.velX;
+        float[] velY = store.velY;
+        for (int i = 0, count = store.getCount(); i < count; i++) {
+            if ((mask[i] & COMPONENTS) == COMPONENTS) {
+                posX[i] += velX[i];
+                posY[i] += velY[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.toxicrain.core.ecs;
+
+import com.toxicrain.core.Color;
+import com.toxicrain.core.Constants;
+import com.toxicrain.core.render.BatchRenderer;
+
+/**
+ * Draws every entity with a position and sprite
+ *
+ * @author strubium
+ */
+public class SpriteRenderSystem {
+
+    private static final int COMPONENTS = EntityStore.POSITION | EntityStore.SPRITE;
+    private static final float[] WHITE = Color.toFloatArray(Color.WHITE);
+
+    /**
+     * Adds every sprite to the batch
+     *
+     * @param store the entities to draw
+     * @param batchRenderer the renderer to draw with
+     */
+    public void render(EntityStore store, BatchRenderer batchRenderer) {
+        int[] mask = store.mask;
+        for (int i = 0, count = store.getCount(); i < count; i++) {
+            if ((mask[i] & COMPONENTS) == COMPONENTS && store.sprite[i] != null) {
+                batchRenderer.addTexture(store.sprite[i], store.posX[i], store.posY[i], Constants.npcZLevel,
+                        store.rotation[i], store.scale[i], store.scale[i], WHITE);
+            }
+        }
+    }
+}
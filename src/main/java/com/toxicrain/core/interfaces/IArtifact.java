@@ -5,14 +5,18 @@ import com.toxicrain.core.render.BatchRenderer;
 /**
  * Interface representing an "artifact" in RainEngine.
  * This provides methods for updating and rendering artifacts.
+ * Artifacts that exist in large numbers, like NPCs and projectiles, are entities
+ * in the EntityStore instead and are updated by systems.
  */
 public interface IArtifact {
 
     /**
      * Updates the state of the artifact.
      * This method is intended to be overridden by implementing classes.
+     *
+     * @param deltaTime the time since the last frame in seconds
      */
-    static void update() {
+    default void update(float deltaTime) {
     }
 
     /**
@@ -21,6 +25,6 @@ public interface IArtifact {
      *
      * @param batchRenderer The renderer used to draw the artifact.
      */
-    static void render(BatchRenderer batchRenderer) {
+    default void render(BatchRenderer batchRenderer) {
     }
 }
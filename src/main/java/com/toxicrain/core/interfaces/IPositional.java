@@ -0,0 +1,26 @@
+package com.toxicrain.core.interfaces;
+
+/**
+ * Interface representing anything with a position in the world.
+ * Sounds can be attached to an IPositional so they follow it as it moves.
+ */
+public interface IPositional {
+
+    /**
+     * Gets the world x position
+     */
+    float getX();
+
+    /**
+     * Gets the world y position
+     */
+    float getY();
+
+    /**
+     * Checks if the thing is gone from the world, like a projectile that hit a wall.
+     * Sounds attached to it stop following it and finish where it was last.
+     */
+    default boolean isRemoved() {
+        return false;
+    }
+}
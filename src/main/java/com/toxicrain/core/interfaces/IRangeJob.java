@@ -0,0 +1,17 @@
+package com.toxicrain.core.interfaces;
+
+/**
+ * Interface representing work over a range of indices, split up by
+ * {@link com.toxicrain.core.jobs.JobSystem#parallelFor} so each part runs on its own thread.
+ * Parts of the same range run at the same time, so they must only write to their own indices.
+ */
+public interface IRangeJob {
+
+    /**
+     * Does the work for part of the range.
+     *
+     * @param from the first index, inclusive
+     * @param to the last index, exclusive
+     */
+    void run(int from, int to);
+}
@@ -0,0 +1,53 @@
+package com.toxicrain.core.interfaces;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Interface representing what the BatchRenderer draws with.
+ * The OpenGL backend sends everything to the GPU, a headless backend can
+ * just count the work, so frames can be built and timed without a window.
+ */
+public interface IRenderBackend {
+
+    /**
+     * Clears the screen and sets up the view for a new frame.
+     *
+     * @param cameraX the x position of the camera
+     * @param cameraY the y position of the camera
+     * @param cameraZ the distance of the camera from the map
+     */
+    void beginFrame(float cameraX, float cameraY, float cameraZ);
+
+    /**
+     * Gets ready to draw a batch.
+     */
+    void beginBatch();
+
+    /**
+     * Makes a texture the one used by the next draws.
+     *
+     * @param textureId the ID of the texture
+     */
+    void bindTexture(int textureId);
+
+    /**
+     * Uploads and draws triangles with the bound texture. Each buffer is read from its position to its limit.
+     *
+     * @param vertices the vertex positions, 3 floats per vertex
+     * @param texCoords the texture coordinates, 2 floats per vertex
+     * @param colors the colors, 4 floats per vertex
+     */
+    void drawTriangles(FloatBuffer vertices, FloatBuffer texCoords, FloatBuffer colors);
+
+    /**
+     * Finishes a batch.
+     */
+    void endBatch();
+
+    /**
+     * Enables or disables blending.
+     *
+     * @param enabled true to enable blending, false to disable
+     */
+    void setBlendingEnabled(boolean enabled);
+}
@@ -0,0 +1,39 @@
+package com.toxicrain.core.interfaces;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface representing a source of PCM audio that is read a chunk at a time.
+ * Used by streaming sounds, so a long track never has to be decoded all at once.
+ */
+public interface IStreamDecoder {
+
+    /**
+     * Gets the OpenAL format of the samples, like AL_FORMAT_STEREO16
+     */
+    int getFormat();
+
+    /**
+     * Gets the sample rate of the samples
+     */
+    int getSampleRate();
+
+    /**
+     * Reads the next chunk of samples.
+     * The returned buffer may be reused by the next call, so it must be uploaded before reading again.
+     *
+     * @param maxBytes the most bytes to read
+     * @return the samples, with no bytes remaining once the end is reached
+     */
+    ByteBuffer read(int maxBytes);
+
+    /**
+     * Goes back to the start of the samples
+     */
+    void rewind();
+
+    /**
+     * Frees anything held by the decoder
+     */
+    void close();
+}
@@ -0,0 +1,19 @@
+package com.toxicrain.core.interfaces;
+
+import com.toxicrain.core.ecs.EntityStore;
+
+/**
+ * Interface representing a system that updates entities.
+ * A system loops over the component arrays of an {@link EntityStore},
+ * only touching the entities that have the components it needs.
+ */
+public interface ISystem {
+
+    /**
+     * Updates every entity this system works on.
+     *
+     * @param store the entities to update
+     * @param deltaTime the time since the last frame in seconds
+     */
+    void update(EntityStore store, float deltaTime);
+}
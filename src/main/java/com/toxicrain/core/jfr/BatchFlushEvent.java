@@ -0,0 +1,34 @@
+package com.toxicrain.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One draw call of the batch renderer, drawing every quad that uses one texture
+ *
+ * @author strubium
+ */
+@Name("rainengine.BatchFlush")
+@Label("Batch Flush")
+@Category({"RainEngine", "Render"})
+@Description("Uploading and drawing the quads of one texture")
+@StackTrace(false)
+public class BatchFlushEvent extends jdk.jfr.Event {
+    @Label("Texture Id")
+    public int textureId;
+
+    @Label("Quads")
+    public int quads;
+
+    @Label("Uploaded")
+    @DataAmount
+    public long bytes;
+
+    @Label("Forced")
+    @Description("If the batch was full and had to be drawn before the end of the frame")
+    public boolean forced;
+}
@@ -0,0 +1,32 @@
+package com.toxicrain.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A whole frame, from the start of the update to the end of rendering
+ *
+ * @author strubium
+ */
+@Name("rainengine.Frame")
+@Label("Frame")
+@Category({"RainEngine", "Frame"})
+@Description("One frame of the game loop")
+@StackTrace(false)
+public class FrameEvent extends jdk.jfr.Event {
+    @Label("Frame")
+    @Description("How many frames were run before this one")
+    public long frame;
+
+    @Label("Quads")
+    public int quads;
+
+    @Label("Draw Calls")
+    public int drawCalls;
+
+    @Label("Texture Binds")
+    public int textureBinds;
+}
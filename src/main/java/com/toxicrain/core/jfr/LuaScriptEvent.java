@@ -0,0 +1,23 @@
+package com.toxicrain.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Running a Lua script once, from loading it to it returning
+ *
+ * @author strubium
+ */
+@Name("rainengine.LuaScript")
+@Label("Lua Script")
+@Category({"RainEngine", "Lua"})
+@Description("Running a Lua script")
+public class LuaScriptEvent extends jdk.jfr.Event {
+    @Label("Script")
+    public String script;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
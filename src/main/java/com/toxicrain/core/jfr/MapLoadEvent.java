@@ -0,0 +1,24 @@
+package com.toxicrain.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Loading a map: running its map scripts and parsing its tiles and lights
+ *
+ * @author strubium
+ */
+@Name("rainengine.MapLoad")
+@Label("Map Load")
+@Category({"RainEngine", "Assets"})
+@Description("Loading a map file")
+public class MapLoadEvent extends jdk.jfr.Event {
+    @Label("Map")
+    public String map;
+
+    @Label("Tiles")
+    @Description("How many tiles were loaded in total after the map")
+    public int tiles;
+}
@@ -0,0 +1,32 @@
+package com.toxicrain.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Loading a texture from disk and uploading it to the GPU
+ *
+ * @author strubium
+ */
+@Name("rainengine.TextureLoad")
+@Label("Texture Load")
+@Category({"RainEngine", "Assets"})
+@Description("Loading a texture file")
+public class TextureLoadEvent extends jdk.jfr.Event {
+    @Label("Path")
+    public String path;
+
+    @Label("Texture Id")
+    public int textureId;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("Transparent")
+    public boolean transparent;
+}
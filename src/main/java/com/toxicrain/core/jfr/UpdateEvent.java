@@ -0,0 +1,27 @@
+package com.toxicrain.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One update tick of the simulation: the player, AI, movement, collisions and projectiles
+ *
+ * @author strubium
+ */
+@Name("rainengine.Update")
+@Label("Update Tick")
+@Category({"RainEngine", "Frame"})
+@Description("Updating the game world for one frame, without Lua")
+@StackTrace(false)
+public class UpdateEvent extends jdk.jfr.Event {
+    @Label("Delta Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long deltaTime;
+
+    @Label("Entities")
+    public int entities;
+}
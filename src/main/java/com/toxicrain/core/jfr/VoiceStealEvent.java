@@ -0,0 +1,31 @@
+package com.toxicrain.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A playing sound being stopped so its voice can be used by a new sound
+ *
+ * @author strubium
+ */
+@Name("rainengine.VoiceSteal")
+@Label("Voice Steal")
+@Category({"RainEngine", "Audio"})
+@Description("A sound was cut off because every voice it could use was busy")
+public class VoiceStealEvent extends jdk.jfr.Event {
+    @Label("Voice")
+    public int voice;
+
+    @Label("Category")
+    public String category;
+
+    @Label("Stolen Priority")
+    @Description("The priority of the sound that was cut off")
+    public int stolenPriority;
+
+    @Label("Priority")
+    @Description("The priority of the new sound")
+    public int priority;
+}
@@ -0,0 +1,53 @@
+package com.toxicrain.core.jobs;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts jobs that haven't finished, so a thread can wait for all of them at once.
+ * The {@link JobSystem} has one for every frame, see {@link JobSystem#endFrame()}.
+ *
+ * @author strubium
+ */
+public class JobFence {
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    void add() {
+        outstanding.incrementAndGet();
+    }
+
+    void complete() {
+        if (outstanding.decrementAndGet() == 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Checks if every job added to the fence is done
+     */
+    public boolean isDone() {
+        return outstanding.get() == 0;
+    }
+
+    /**
+     * Waits until every job added to the fence is done
+     */
+    public void await() {
+        // Most waits are short, so spin a little before sleeping
+        for (int spin = 0; spin < 100 && outstanding.get() > 0; spin++) {
+            Thread.onSpinWait();
+        }
+        if (outstanding.get() == 0) return;
+        synchronized (this) {
+            while (outstanding.get() > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.toxicrain.core.jobs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A job scheduled on a {@link JobSystem}. Other jobs can depend on it, so they only start once it is done.
+ *
+ * @author strubium
+ */
+public class JobHandle {
+    private final JobSystem system;
+    private final Runnable work;
+    private final JobFence fence;
+    /** The dependencies still running, plus one until the job is fully scheduled */
+    private int pending;
+    private List<JobHandle> dependents;
+    private volatile boolean done;
+
+    JobHandle(JobSystem system, Runnable work, JobFence fence) {
+        this.system = system;
+        this.work = work;
+        this.fence = fence;
+    }
+
+    /**
+     * Checks if the job has finished running
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Waits until the job has finished running
+     */
+    public void await() {
+        if (done) return;
+        synchronized (this) {
+            while (!done) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Links the job to its dependencies, then starts it if they are all done already
+     */
+    void schedule(JobHandle[] dependencies) {
+        synchronized (this) {
+            pending = dependencies.length + 1;
+        }
+        for (JobHandle dependency : dependencies) {
+            if (!dependency.addDependent(this)) {
+                dependencyDone();
+            }
+        }
+        dependencyDone();
+    }
+
+    /**
+     * @return false if this job is already done, so the dependent doesn't have to wait for it
+     */
+    private synchronized boolean addDependent(JobHandle dependent) {
+        if (done) return false;
+        if (dependents == null) {
+            dependents = new ArrayList<>(2);
+        }
+        dependents.add(dependent);
+        return true;
+    }
+
+    private void dependencyDone() {
+        boolean ready;
+        synchronized (this) {
+            ready = --pending == 0;
+        }
+        if (ready) {
+            system.submit(this);
+        }
+    }
+
+    /**
+     * Runs the job on a worker, then starts every job that was only waiting for this one
+     */
+    void run() {
+        try {
+            work.run();
+        } finally {
+            List<JobHandle> waiting;
+            synchronized (this) {
+                done = true;
+                waiting = dependents;
+                dependents = null;
+                notifyAll();
+            }
+            if (waiting != null) {
+                for (JobHandle dependent : waiting) {
+                    dependent.dependencyDone();
+                }
+            }
+            fence.complete();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.toxicrain.core.jobs;
+
+import com.toxicrain.core.interfaces.IRangeJob;
+import lombok.Getter;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs engine work on a pool of worker threads, one per spare core.
+ *
+ * <p>The workers are a {@link ForkJoinPool}, so a worker that runs out of jobs steals from
+ * the others. Jobs can depend on other jobs with {@link #schedule(Runnable, JobHandle...)},
+ * which makes a graph: a job is only started once everything it depends on is done.
+ * Every job scheduled in a frame is added to that frame's fence, and {@link #endFrame()}
+ * waits for them, so no job is still running when the next frame changes the world.
+ * For loops over big arrays, {@link #parallelFor(int, int, IRangeJob)} splits the work up
+ * and waits for it.</p>
+ *
+ * <p>GL and GLFW only work on the main thread, so work that needs them is queued with
+ * {@link #runOnMainThread(Runnable)} and run by the main thread once per frame. Jobs must
+ * not run Lua either, as the Lua state can only be used by one thread at a time.</p>
+ *
+ * @author strubium
+ */
+public class JobSystem {
+    private final ForkJoinPool pool;
+    /** How many worker threads there are. With 0, every job runs on the thread that schedules it. */
+    @Getter
+    private final int workerCount;
+    private final ConcurrentLinkedQueue<Runnable> mainThreadJobs = new ConcurrentLinkedQueue<>();
+    private volatile Thread mainThread;
+    private volatile JobFence frameFence = new JobFence();
+
+    /**
+     * Creates the job system and its workers
+     *
+     * @param workerCount how many worker threads to use, see {@link #getDefaultWorkerCount(int)}
+     */
+    public JobSystem(int workerCount) {
+        this.workerCount = Math.max(0, workerCount);
+        if (this.workerCount == 0) {
+            pool = null;
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        pool = new ForkJoinPool(this.workerCount, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("RainEngine Job " + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Gets how many workers to use so each core has one busy thread
+     *
+     * @param reservedThreads how many threads the engine keeps busy itself, like the main and simulation threads
+     */
+    public static int getDefaultWorkerCount(int reservedThreads) {
+        return Math.max(0, Runtime.getRuntime().availableProcessors() - reservedThreads);
+    }
+
+    /**
+     * Sets the thread {@link #runOnMainThread(Runnable)} runs work on, the one with the GL context
+     */
+    public void setMainThread(Thread thread) {
+        mainThread = thread;
+    }
+
+    /**
+     * Schedules a job that starts once all its dependencies are done. It is added to the fence of this frame.
+     *
+     * @param work what the job does
+     * @param dependencies the jobs that have to finish first
+     * @return the job, for other jobs to depend on or to wait for
+     */
+    public JobHandle schedule(Runnable work, JobHandle... dependencies) {
+        return schedule(work, frameFence, dependencies);
+    }
+
+    /**
+     * Schedules a job that starts once all its dependencies are done, adding it to a fence
+     *
+     * @param work what the job does
+     * @param fence the fence to add the job to, so it can be waited for with other jobs
+     * @param dependencies the jobs that have to finish first
+     * @return the job, for other jobs to depend on or to wait for
+     */
+    public JobHandle schedule(Runnable work, JobFence fence, JobHandle... dependencies) {
+        fence.add();
+        JobHandle job = new JobHandle(this, work, fence);
+        job.schedule(dependencies);
+        return job;
+    }
+
+    /**
+     * Runs a loop over a range split into parts, on the workers and the calling thread, and waits for all of it.
+     * Parts are handed out one at a time, so a thread that finishes early takes the next part.
+     * A range no bigger than one part runs straight away on the calling thread.
+     *
+     * @param count the size of the range, from 0
+     * @param grain the size of each part. Big enough that a part takes a few microseconds.
+     * @param job the work for each part
+     */
+    public void parallelFor(int count, int grain, IRangeJob job) {
+        if (count <= 0) return;
+        grain = Math.max(1, grain);
+        int parts = (count + grain - 1) / grain;
+        if (parts == 1 || pool == null) {
+            job.run(0, count);
+            return;
+        }
+
+        ParallelFor loop = new ParallelFor(count, grain, parts, job);
+        int helpers = Math.min(parts - 1, workerCount);
+        JobFence fence = new JobFence();
+        for (int i = 0; i < helpers; i++) {
+            fence.add();
+            pool.execute(() -> {
+                try {
+                    loop.runParts();
+                } finally {
+                    fence.complete();
+                }
+            });
+        }
+        loop.runParts();
+        fence.await();
+    }
+
+    /**
+     * Runs work on the main thread. From the main thread it runs straight away,
+     * otherwise it waits until the main thread calls {@link #runMainThreadJobs()}.
+     *
+     * @param work the work, usually GL or GLFW calls
+     */
+    public void runOnMainThread(Runnable work) {
+        if (Thread.currentThread() == mainThread) {
+            work.run();
+        } else {
+            mainThreadJobs.add(work);
+        }
+    }
+
+    /**
+     * Runs everything queued by {@link #runOnMainThread(Runnable)}. Only called on the main thread, once per frame.
+     */
+    public void runMainThreadJobs() {
+        Runnable work;
+        while ((work = mainThreadJobs.poll()) != null) {
+            work.run();
+        }
+    }
+
+    /**
+     * Waits for every job scheduled this frame, then starts the fence of the next frame
+     */
+    public void endFrame() {
+        JobFence fence = frameFence;
+        frameFence = new JobFence();
+        fence.await();
+    }
+
+    /**
+     * Stops the workers once their jobs are done
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    void submit(JobHandle job) {
+        if (pool == null) {
+            job.run();
+        } else {
+            pool.execute(job::run);
+        }
+    }
+
+    /**
+     * The parts of a {@link #parallelFor}, handed out to whichever thread asks next
+     */
+    private static final class ParallelFor {
+        private final int count;
+        private final int grain;
+        private final int parts;
+        private final IRangeJob job;
+        private final AtomicInteger nextPart = new AtomicInteger();
+
+        ParallelFor(int count, int grain, int parts, IRangeJob job) {
+            this.count = count;
+            this.grain = grain;
+            this.parts = parts;
+            this.job = job;
+        }
+
+        void runParts() {
+            int part;
+            while ((part = nextPart.getAndIncrement()) < parts) {
+                int from = part * grain;
+                job.run(from, Math.min(count, from + grain));
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.toxicrain.core.json;
 
 import com.toxicrain.core.Logger;
+import com.toxicrain.core.logging.LogLevel;
 import org.json.JSONObject;
 import org.json.JSONArray;
 
@@ -26,6 +27,12 @@ public class GameInfoParser {
     public static int maxTexturesPerBatch = 100; //Safety, don't crash if we forget to add this to gameinfo.json
     public static int minZoom = 3;
     public static int maxZoom = 25;
+    public static int maxSoundVoices = 32;
+    public static float maxSoundDistance = 30;
+    public static int maxProjectiles = 20000;
+    public static int aiTickBudget = 2000; // Microseconds of AI time (perception and behavior trees) per frame, 0 for no limit
+    public static boolean separateRenderThread = true; // Run the simulation on its own thread, so it overlaps with drawing
+    public static int jobThreads = 0; // Worker threads for the job system, 0 for one per spare core
 
     /**
      * Loads the gameinfo.json and parsers it into variables
@@ -87,6 +94,27 @@ public class GameInfoParser {
                             case "maxZoom":
                                 maxZoom = Integer.parseInt(value);
                                 break;
+                            case "maxSoundVoices":
+                                maxSoundVoices = Integer.parseInt(value);
+                                break;
+                            case "maxSoundDistance":
+                                maxSoundDistance = Float.parseFloat(value);
+                                break;
+                            case "maxProjectiles":
+                                maxProjectiles = Integer.parseInt(value);
+                                break;
+                            case "aiTickBudget":
+                                aiTickBudget = Integer.parseInt(value);
+                                break;
+                            case "separateRenderThread":
+                                separateRenderThread = Boolean.parseBoolean(value);
+                                break;
+                            case "jobThreads":
+                                jobThreads = Integer.parseInt(value);
+                                break;
+                            case "logLevel":
+                                Logger.setLevel(LogLevel.valueOf(value.toUpperCase()));
+                                break;
                         }
                     }
                 }
@@ -2,6 +2,7 @@ package com.toxicrain.core.json;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -76,6 +77,15 @@ public class KeyInfoParser {
         return keyBindings.getOrDefault(key, "undefined");
     }
 
+    /**
+     * Gets every keybinding loaded from keybinds.json
+     *
+     * @return A read-only view of the action name to key name map
+     */
+    public static Map<String, String> getKeyBindings() {
+        return Collections.unmodifiableMap(keyBindings);
+    }
+
     /**
      * Gets a keybinding from keybinds.json as GLFW key.
      *
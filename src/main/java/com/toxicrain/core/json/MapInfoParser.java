@@ -2,8 +2,10 @@ package com.toxicrain.core.json;
 
 
 import com.toxicrain.core.Logger;
+import com.toxicrain.core.jfr.MapLoadEvent;
 import com.toxicrain.core.lua.LuaManager;
 import com.toxicrain.artifacts.Tile;
+import com.toxicrain.artifacts.TileGrid;
 import com.toxicrain.util.FileUtils;
 import com.toxicrain.light.LightSystem;
 import org.json.JSONArray;
@@ -27,11 +29,30 @@ public class MapInfoParser {
     public static ArrayList<Double> mapDataZ = new ArrayList<>();
 
     public static void parseMapFile(String mapName) throws IOException {
+        MapLoadEvent event = new MapLoadEvent();
+        event.begin();
         LuaManager.executeMapScript(mapName);
         // Read JSON file as String
         String jsonString = FileUtils.readFile(FileUtils.getCurrentWorkingDirectory("resources/json/" + mapName + ".json"));
 
-        doCollide.add(':');
+        parseMapJson(jsonString);
+        event.end();
+        if (event.shouldCommit()) {
+            event.map = mapName;
+            event.tiles = tiles;
+            event.commit();
+        }
+    }
+
+    /**
+     * Loads the tiles and lights of a map from its JSON, without running any map scripts
+     *
+     * @param jsonString the contents of a map JSON file
+     */
+    public static void parseMapJson(String jsonString) {
+        if (!doCollide.contains(':')) {
+            doCollide.add(':');
+        }
 
         // Parse JSON string
         JSONArray jsonArray = new JSONArray(jsonString);
@@ -100,9 +121,29 @@ public class MapInfoParser {
             }
         }
 
+        TileGrid.build();
+
         // Log the final map data
         Logger.printLOGConditional("mapDataX: " + mapDataX, doExtraLogs);
         Logger.printLOGConditional("mapDataY: " + mapDataY, doExtraLogs);
         Logger.printLOGConditional("Lighting sources: " + LightSystem.getLightSources(), doExtraLogs);
     }
+
+    /**
+     * Removes every loaded tile, so another map can be parsed from scratch
+     */
+    public static void clear() {
+        mapDataX.clear();
+        mapDataY.clear();
+        mapDataZ.clear();
+        tiles = 0;
+        Tile.mapDataType.clear();
+        Tile.extentTop.clear();
+        Tile.extentBottom.clear();
+        Tile.extentLeft.clear();
+        Tile.extentRight.clear();
+        Tile.extentCenterX.clear();
+        Tile.extentCenterY.clear();
+        TileGrid.clear();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.toxicrain.core.logging;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Puts log messages on a {@link LogRingBuffer} for a {@link LogWriter} thread to write,
+ * so the thread logging a message never waits on the console or the disk.
+ *
+ * @author strubium
+ */
+public class AsyncLogBackend {
+    /** How long an error waits for room in a full queue before it is dropped too */
+    private static final long ERROR_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final LogRingBuffer buffer;
+    private final LogWriter writer;
+    private volatile LogLevel level = LogLevel.INFO;
+
+    /**
+     * Creates the backend and starts its writer thread
+     *
+     * @param capacity how many messages can wait to be written before new ones are dropped
+     * @param directory the folder the log files go in, or null to only write to the console
+     * @param baseName the name of the log file without ".log"
+     * @param maxFileSize how many bytes a log file can grow to before it is rolled over
+     * @param maxFiles how many old log files are kept
+     */
+    public AsyncLogBackend(int capacity, Path directory, String baseName, long maxFileSize, int maxFiles) {
+        buffer = new LogRingBuffer(capacity);
+        writer = new LogWriter(buffer, directory, baseName, maxFileSize, maxFiles);
+    }
+
+    /**
+     * Checks if messages of a level are logged
+     */
+    public boolean isEnabled(LogLevel level) {
+        return level.compareTo(this.level) >= 0;
+    }
+
+    public void setLevel(LogLevel level) {
+        this.level = level;
+    }
+
+    public LogLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Queues a message. Use {@link #isEnabled(LogLevel)} first, so disabled messages cost nothing.
+     * When there are more than three arguments, they are passed in args and the others are ignored.
+     * If the queue is full other messages are dropped, but errors wait for a free slot.
+     */
+    public void log(LogLevel level, String message, int argCount, Object arg0, Object arg1, Object arg2, Object[] args) {
+        if (level != LogLevel.ERROR) {
+            buffer.publish(level, message, argCount, arg0, arg1, arg2, args);
+            return;
+        }
+        long deadline = System.nanoTime() + ERROR_WAIT_NANOS;
+        while (!buffer.tryPublish(level, message, argCount, arg0, arg1, arg2, args)) {
+            if (System.nanoTime() >= deadline) {
+                buffer.publish(level, message, argCount, arg0, arg1, arg2, args);
+                return;
+            }
+            writer.wake();
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Waits until every message logged so far has been written
+     *
+     * @param timeoutMillis the longest to wait
+     */
+    public void flush(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        writer.wake();
+        while (!buffer.isEmpty() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Writes everything left, closes the log file and stops the writer thread
+     *
+     * @param timeoutMillis the longest to wait
+     */
+    public void shutdown(long timeoutMillis) {
+        writer.stop(timeoutMillis);
+    }
+}
@@ -0,0 +1,21 @@
+package com.toxicrain.core.logging;
+
+/**
+ * How important a log message is. Messages below the level set on the Logger are dropped
+ * before they are formatted.
+ *
+ * @author strubium
+ */
+public enum LogLevel {
+    DEBUG("[DEBUG]: "),
+    INFO("[LOG]: "),
+    WARN("[WARN]: "),
+    ERROR("[ERROR]: ");
+
+    /** What the message is prefixed with */
+    final String prefix;
+
+    LogLevel(String prefix) {
+        this.prefix = prefix;
+    }
+}
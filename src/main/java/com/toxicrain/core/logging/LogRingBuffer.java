@@ -0,0 +1,150 @@
+package com.toxicrain.core.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed size lock-free queue of log messages, written to by any thread and read by the log writer thread.
+ *
+ * <p>Every slot has a sequence number saying whose turn it is. A thread logging a message claims
+ * the next slot with one compare and set, fills it in, then bumps its sequence so the writer can
+ * read it. The slots are made up front and reused, so logging a message allocates nothing.
+ * If the writer falls behind and every slot is full, new messages are dropped and counted
+ * instead of making the game wait.</p>
+ *
+ * @author strubium
+ */
+class LogRingBuffer {
+
+    /**
+     * One slot of the queue. The message is formatted later by the writer, so the arguments
+     * must not be changed after they are logged.
+     */
+    static final class Entry {
+        volatile long sequence;
+        long time;
+        LogLevel level;
+        String thread;
+        String message;
+        int argCount;
+        Object arg0;
+        Object arg1;
+        Object arg2;
+        Object[] args;
+
+        Object getArg(int index) {
+            if (args != null) return args[index];
+            switch (index) {
+                case 0:
+                    return arg0;
+                case 1:
+                    return arg1;
+                default:
+                    return arg2;
+            }
+        }
+    }
+
+    private final Entry[] entries;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    /** Only changed by the writer thread, read by threads waiting for a flush */
+    private volatile long head;
+
+    /**
+     * @param capacity how many messages can wait at once, rounded up to a power of two
+     */
+    LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        entries = new Entry[size];
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            entries[i] = new Entry();
+            entries[i].sequence = i;
+        }
+    }
+
+    /**
+     * Adds a message, or drops and counts it if the queue is full
+     *
+     * @return false if the queue was full and the message was dropped
+     */
+    boolean publish(LogLevel level, String message, int argCount, Object arg0, Object arg1, Object arg2, Object[] args) {
+        if (tryPublish(level, message, argCount, arg0, arg1, arg2, args)) return true;
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Adds a message if there is room
+     *
+     * @return false if the queue was full, without counting it as dropped
+     */
+    boolean tryPublish(LogLevel level, String message, int argCount, Object arg0, Object arg1, Object arg2, Object[] args) {
+        Entry entry;
+        long position = tail.get();
+        while (true) {
+            entry = entries[(int) position & mask];
+            long difference = entry.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+                position = tail.get();
+            } else if (difference < 0) {
+                // The writer hasn't freed this slot yet, so the queue is full
+                return false;
+            } else {
+                // Another thread took this slot first
+                position = tail.get();
+            }
+        }
+
+        entry.time = System.currentTimeMillis();
+        entry.level = level;
+        entry.thread = Thread.currentThread().getName();
+        entry.message = message;
+        entry.argCount = argCount;
+        entry.arg0 = arg0;
+        entry.arg1 = arg1;
+        entry.arg2 = arg2;
+        entry.args = args;
+        entry.sequence = position + 1; // Hands the slot to the writer
+        return true;
+    }
+
+    /**
+     * Gets the oldest message without removing it. Only called by the writer thread.
+     *
+     * @return the message, or null if there is none
+     */
+    Entry peek() {
+        Entry entry = entries[(int) head & mask];
+        return entry.sequence == head + 1 ? entry : null;
+    }
+
+    /**
+     * Removes the message returned by {@link #peek()} and frees its slot. Only called by the writer thread.
+     */
+    void release(Entry entry) {
+        entry.message = null;
+        entry.arg0 = null;
+        entry.arg1 = null;
+        entry.arg2 = null;
+        entry.args = null;
+        entry.sequence = head + entries.length; // Hands the slot back to the loggers
+        head++;
+    }
+
+    /**
+     * Checks if every published message has been released
+     */
+    boolean isEmpty() {
+        return head == tail.get();
+    }
+
+    /**
+     * Gets and resets how many messages were dropped because the queue was full
+     */
+    long takeDropped() {
+        return dropped.getAndSet(0);
+    }
+}
@@ -0,0 +1,229 @@
+package com.toxicrain.core.logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Takes messages off a {@link LogRingBuffer} on its own thread, formats them and writes them to
+ * the console and to a log file. When the file gets too big it is rolled over: game.log becomes
+ * game.1.log, game.1.log becomes game.2.log and so on, and the oldest is deleted.
+ *
+ * @author strubium
+ */
+class LogWriter implements Runnable {
+    /** How long the thread sleeps when there is nothing to write */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final LogRingBuffer buffer;
+    private final Path directory;
+    private final String baseName;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final StringBuilder line = new StringBuilder(256);
+    private final Calendar calendar = Calendar.getInstance();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private BufferedWriter file;
+    private long fileSize;
+
+    /**
+     * Creates the writer and starts its thread
+     *
+     * @param buffer the messages to write
+     * @param directory the folder the log files go in, or null to only write to the console
+     * @param baseName the name of the log file without ".log"
+     * @param maxFileSize how many bytes a log file can grow to before it is rolled over
+     * @param maxFiles how many old log files are kept
+     */
+    LogWriter(LogRingBuffer buffer, Path directory, String baseName, long maxFileSize, int maxFiles) {
+        this.buffer = buffer;
+        this.directory = directory;
+        this.baseName = baseName;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = maxFiles;
+        if (directory != null) {
+            openFile();
+        }
+
+        thread = new Thread(this, "RainEngine Logger");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            if (!drain()) {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+        }
+        drain();
+        closeFile();
+    }
+
+    /**
+     * Wakes the thread, so waiting messages are written now
+     */
+    void wake() {
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Writes everything left and stops the thread
+     *
+     * @param timeoutMillis how long to wait for the thread to finish
+     */
+    void stop(long timeoutMillis) {
+        running = false;
+        wake();
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes every waiting message
+     *
+     * @return true if anything was written
+     */
+    private boolean drain() {
+        boolean wrote = false;
+        LogRingBuffer.Entry entry;
+        while ((entry = buffer.peek()) != null) {
+            format(entry);
+            write(entry.level, line);
+            buffer.release(entry);
+            wrote = true;
+        }
+
+        long dropped = buffer.takeDropped();
+        if (dropped > 0) {
+            line.setLength(0);
+            line.append(LogLevel.WARN.prefix).append(dropped).append(" log messages were dropped because the log queue was full");
+            write(LogLevel.WARN, line);
+            wrote = true;
+        }
+
+        if (wrote) {
+            System.out.flush();
+            if (file != null) {
+                try {
+                    file.flush();
+                } catch (IOException e) {
+                    fileFailed(e);
+                }
+            }
+        }
+        return wrote;
+    }
+
+    /**
+     * Builds the line for a message, filling each {} with the next argument.
+     * If there is an argument left over and it is an exception, its stack trace is added.
+     */
+    private void format(LogRingBuffer.Entry entry) {
+        line.setLength(0);
+        calendar.setTimeInMillis(entry.time);
+        appendTwoDigits(calendar.get(Calendar.HOUR_OF_DAY)).append(':');
+        appendTwoDigits(calendar.get(Calendar.MINUTE)).append(':');
+        appendTwoDigits(calendar.get(Calendar.SECOND)).append(' ');
+        line.append(entry.level.prefix);
+
+        String message = entry.message;
+        int arg = 0;
+        int start = 0;
+        if (entry.argCount > 0) {
+            int placeholder;
+            while (arg < entry.argCount && (placeholder = message.indexOf("{}", start)) >= 0) {
+                line.append(message, start, placeholder).append(entry.getArg(arg++));
+                start = placeholder + 2;
+            }
+        }
+        line.append(message, start, message.length());
+
+        if (entry.level != LogLevel.INFO) {
+            line.append(" (").append(entry.thread).append(')');
+        }
+        if (arg < entry.argCount && entry.getArg(entry.argCount - 1) instanceof Throwable) {
+            StringWriter trace = new StringWriter();
+            ((Throwable) entry.getArg(entry.argCount - 1)).printStackTrace(new PrintWriter(trace));
+            line.append(System.lineSeparator()).append(trace.toString().trim());
+        }
+    }
+
+    private StringBuilder appendTwoDigits(int value) {
+        if (value < 10) line.append('0');
+        return line.append(value);
+    }
+
+    private void write(LogLevel level, StringBuilder text) {
+        PrintStream console = level.compareTo(LogLevel.WARN) >= 0 ? System.err : System.out;
+        console.println(text);
+
+        if (file == null) return;
+        try {
+            file.append(text);
+            file.newLine();
+            fileSize += text.length() + 1;
+            if (fileSize >= maxFileSize) {
+                rollOver();
+            }
+        } catch (IOException e) {
+            fileFailed(e);
+        }
+    }
+
+    private void openFile() {
+        try {
+            Files.createDirectories(directory);
+            Path path = directory.resolve(baseName + ".log");
+            fileSize = Files.exists(path) ? Files.size(path) : 0;
+            file = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            fileFailed(e);
+        }
+    }
+
+    private void rollOver() throws IOException {
+        closeFile();
+        Files.deleteIfExists(directory.resolve(baseName + "." + maxFiles + ".log"));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path older = directory.resolve(baseName + "." + i + ".log");
+            if (Files.exists(older)) {
+                Files.move(older, directory.resolve(baseName + "." + (i + 1) + ".log"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(directory.resolve(baseName + ".log"), directory.resolve(baseName + ".1.log"), StandardCopyOption.REPLACE_EXISTING);
+        openFile();
+    }
+
+    private void closeFile() {
+        if (file == null) return;
+        try {
+            file.close();
+        } catch (IOException ignored) {
+            // Nothing left to do with a file that can't be closed
+        }
+        file = null;
+    }
+
+    private void fileFailed(IOException e) {
+        // Keep logging to the console rather than stopping the game
+        System.err.println(LogLevel.ERROR.prefix + "Can't write the log file, only logging to the console: " + e.getMessage());
+        closeFile();
+    }
+}
@@ -0,0 +1,73 @@
+package com.toxicrain.core.lua;
+
+import com.toxicrain.core.json.KeyInfoParser;
+import com.toxicrain.factories.GameFactory;
+import org.luaj.vm2.LuaString;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_UNKNOWN;
+
+/**
+ * Holds the state of every key in keybinds.json as a single Lua table.
+ * The key names are converted into GLFW keys once in {@link #bind()},
+ * so scripts can read all of their input with one call per frame.
+ *
+ * @author strubium
+ */
+public class LuaInputState {
+
+    private final LuaTable table = new LuaTable();
+    private final Map<LuaValue, Integer> keyCodeCache = new HashMap<>();
+    private LuaString[] actionNames = new LuaString[0];
+    private int[] keyCodes = new int[0];
+
+    /**
+     * Converts every keybinding into a GLFW key. Call this after {@link KeyInfoParser#loadKeyInfo()}
+     */
+    public void bind() {
+        Map<String, String> bindings = KeyInfoParser.getKeyBindings();
+        actionNames = new LuaString[bindings.size()];
+        keyCodes = new int[bindings.size()];
+
+        int i = 0;
+        for (Map.Entry<String, String> binding : bindings.entrySet()) {
+            actionNames[i] = LuaValue.valueOf(binding.getKey());
+            keyCodes[i] = KeyInfoParser.convertToGLFWBind(binding.getValue());
+            table.set(actionNames[i], LuaValue.FALSE);
+            i++;
+        }
+    }
+
+    /**
+     * Updates the table with the current state of every bound key
+     *
+     * @return the same table every call, keyed by the action names in keybinds.json
+     */
+    public LuaTable refresh() {
+        for (int i = 0; i < keyCodes.length; i++) {
+            boolean pressed = keyCodes[i] != GLFW_KEY_UNKNOWN && GameFactory.mouseUtils.isKeyPressed(keyCodes[i]);
+            table.rawset(actionNames[i], LuaValue.valueOf(pressed));
+        }
+        return table;
+    }
+
+    /**
+     * Converts a key name like "key_w" into a GLFW key, only doing the string conversion
+     * the first time a name is seen
+     *
+     * @param keyName the Lua string holding the key name
+     * @return the GLFW key
+     */
+    public int getKeyCode(LuaValue keyName) {
+        Integer keyCode = keyCodeCache.get(keyName);
+        if (keyCode == null) {
+            keyCode = KeyInfoParser.convertToGLFWBind(keyName.tojstring());
+            keyCodeCache.put(keyName, keyCode);
+        }
+        return keyCode;
+    }
+}
@@ -3,8 +3,13 @@ package com.toxicrain.core.lua;
 import com.toxicrain.core.GameEngine;
 import com.toxicrain.core.Logger;
 import com.toxicrain.core.json.KeyInfoParser;
+import com.toxicrain.core.jfr.LuaScriptEvent;
 import com.toxicrain.core.json.MapInfoParser;
+import com.toxicrain.core.render.BatchRenderer;
+import com.toxicrain.core.render.RenderStats;
 import com.toxicrain.factories.GameFactory;
+import com.toxicrain.sound.SoundCategory;
+import com.toxicrain.sound.SoundInfo;
 import com.toxicrain.sound.SoundSystem;
 import com.toxicrain.util.FileUtils;
 import org.luaj.vm2.*;
@@ -14,6 +19,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.toxicrain.factories.GameFactory.luaEngine;
 
@@ -24,6 +31,16 @@ public class LuaManager {
     private static final List<String> tickScripts = new ArrayList<>();
     private static final List<String> mapAutorunScripts = new ArrayList<>();
     private static final List<String> imguiScripts = new ArrayList<>();
+    private static final List<String> coroutineScripts = new ArrayList<>();
+    private static final LuaInputState inputState = new LuaInputState();
+    private static final LuaSpriteQueue spriteQueue = new LuaSpriteQueue();
+    private static final LuaTable renderStatsTable = new LuaTable();
+    /** LuaJ can't run on two threads at once, so this is held whenever Lua runs */
+    private static final ReentrantLock lock = new ReentrantLock();
+    /** Work from ImGui scripts that changes the game, run by the game thread in {@link #runDeferred()} */
+    private static final ConcurrentLinkedQueue<Runnable> deferred = new ConcurrentLinkedQueue<>();
+    /** If ImGui scripts are running now. Only used while holding the lock. */
+    private static boolean runningImgui;
 
     public LuaManager(Globals globals) {
         this.globals = globals;
@@ -104,25 +121,74 @@ public class LuaManager {
         globals.set("sleep", new LuaFunction() {
             @Override
             public LuaValue call(LuaValue millis) {
-                try {
-                    Thread.sleep(millis.tolong());
-                    return LuaValue.TRUE;
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
+                // Sleeping the game thread would freeze the game, so only coroutines may sleep
+                if (!GameFactory.luaScheduler.isInCoroutine()) {
+                    Logger.printERROR("sleep can only be used in a coroutine, use startCoroutine or runScriptAsync");
                     return LuaValue.FALSE;
                 }
+                GameFactory.luaScheduler.waitSeconds(millis.todouble() / 1000.0);
+                return LuaValue.TRUE;
+            }
+        });
+
+        globals.set("startCoroutine", new LuaFunction() {
+            @Override
+            public LuaValue call(LuaValue function) {
+                GameFactory.luaScheduler.start(function.checkfunction(), "startCoroutine");
+                return LuaValue.TRUE;
+            }
+        });
+
+        globals.set("runScriptAsync", new LuaFunction() {
+            @Override
+            public LuaValue call(LuaValue script) {
+                return LuaValue.valueOf(startScript(script.tojstring(), "resources/scripts/"));
+            }
+        });
+
+        globals.set("wait", new LuaFunction() {
+            @Override
+            public LuaValue call(LuaValue seconds) {
+                GameFactory.luaScheduler.waitSeconds(seconds.checkdouble());
+                return LuaValue.TRUE;
+            }
+        });
+
+        globals.set("waitFrames", new LuaFunction() {
+            @Override
+            public LuaValue call(LuaValue frames) {
+                GameFactory.luaScheduler.waitFrames(frames.checkint());
+                return LuaValue.TRUE;
+            }
+        });
+
+        globals.set("waitFor", new LuaFunction() {
+            @Override
+            public LuaValue call(LuaValue event) {
+                GameFactory.luaScheduler.waitFor(event.checkjstring());
+                return LuaValue.TRUE;
+            }
+        });
+
+        globals.set("signal", new LuaFunction() {
+            @Override
+            public LuaValue call(LuaValue event) {
+                return LuaValue.valueOf(GameFactory.luaScheduler.signal(event.checkjstring()));
             }
         });
 
         globals.set("loadMap", new LuaFunction() {
             @Override
             public LuaValue call(LuaValue arg) {
-                try {
-                    Logger.printLOG("Loading Map Data");
-                    MapInfoParser.parseMapFile(String.valueOf(arg));
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
+                // The game thread reads the map every frame, so from an ImGui script it is loaded there
+                runOnGameThread(() -> {
+                    try {
+                        Logger.printLOG("Loading Map Data");
+                        MapInfoParser.parseMapFile(String.valueOf(arg));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
                 return arg;
             }
         });
@@ -130,13 +196,30 @@ public class LuaManager {
         globals.set("isKeyPressed", new LuaFunction() {
             @Override
             public LuaValue call(LuaValue arg) {
-                if (GameFactory.mouseUtils.isKeyPressed(KeyInfoParser.convertToGLFWBind(arg.toString()))) {
+                if (GameFactory.mouseUtils.isKeyPressed(inputState.getKeyCode(arg))) {
                     return LuaValue.TRUE;
                 }
                 return LuaValue.FALSE;
             }
         });
 
+        globals.set("getInputState", new LuaFunction() {
+            @Override
+            public LuaValue call() {
+                // The same table is returned every call, so scripts should not keep values between frames
+                return inputState.refresh();
+            }
+        });
+
+        globals.set("drawSprites", new LuaFunction() {
+            @Override
+            public LuaValue call(LuaValue sprites) {
+                return LuaValue.valueOf(spriteQueue.addAll(sprites.checktable()));
+            }
+        });
+
+        // The ImGui functions only work on the main thread, in imgui_ scripts.
+        // Tick scripts run on the simulation thread, so they must not call them.
         globals.set("beginWindow", new LuaFunction() {
             @Override
             public LuaValue call(LuaValue title) {
@@ -305,19 +388,87 @@ public class LuaManager {
         globals.set("playSound", new LuaFunction() {
             @Override
             public LuaValue call(LuaValue sound) {
-                GameFactory.soundSystem.play(SoundSystem.getSound(String.valueOf(sound)));
+                runOnGameThread(() -> GameFactory.soundSystem.play(SoundSystem.getSound(String.valueOf(sound))));
                 return LuaValue.valueOf(String.valueOf(sound));
             }
         });
 
+        globals.set("playSoundOneShot", new LuaFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                // Without a position the sound plays at the listener, but is still a game sound
+                SoundInfo sound = SoundSystem.getSound(args.checkjstring(1));
+                float gain = (float) args.optdouble(2, 1);
+                float pitch = (float) args.optdouble(3, 1);
+                float x = (float) args.optdouble(4, 0);
+                float y = (float) args.optdouble(5, 0);
+                boolean positional = !args.isnil(4);
+                if (runningImgui) {
+                    // Started on the game thread next update, so there is no handle yet
+                    deferred.add(() -> GameFactory.soundSystem.playOneShot(sound, SoundCategory.SFX, 0, gain, pitch, x, y, positional));
+                    return LuaValue.valueOf(-1);
+                }
+                return LuaValue.valueOf(GameFactory.soundSystem.playOneShot(sound, SoundCategory.SFX, 0, gain, pitch, x, y, positional));
+            }
+        });
+
+        globals.set("playMusic", new LuaFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                String music = args.checkjstring(1);
+                boolean loop = args.optboolean(2, true);
+                float fadeDuration = (float) args.optdouble(3, 0);
+                runOnGameThread(() -> GameFactory.soundSystem.playMusic(music, loop, fadeDuration));
+                return LuaValue.NONE;
+            }
+        });
+
+        globals.set("stopMusic", new LuaFunction() {
+            @Override
+            public LuaValue call() {
+                runOnGameThread(GameFactory.soundSystem::stopMusic);
+                return LuaValue.NONE;
+            }
+        });
+
         globals.set("changeWindowTitle", new LuaFunction() {
             @Override
             public LuaValue call(LuaValue title) {
-                GameEngine.windowManager.setWindowTitle(title.tojstring());
+                if (!GameEngine.isHeadless()) {
+                    // GLFW, so it has to happen on the main thread
+                    String windowTitle = title.tojstring();
+                    GameFactory.jobSystem.runOnMainThread(() -> GameEngine.windowManager.setWindowTitle(windowTitle));
+                }
                 return LuaValue.valueOf(String.valueOf(title));
             }
         });
 
+        globals.set("getRenderStats", new LuaFunction() {
+            @Override
+            public LuaValue call() {
+                // The same table is returned every call, so scripts should not keep values between frames
+                RenderStats stats = GameFactory.renderStats;
+                renderStatsTable.rawset("drawCalls", LuaValue.valueOf(stats.getDrawCalls()));
+                renderStatsTable.rawset("textureBinds", LuaValue.valueOf(stats.getTextureBinds()));
+                renderStatsTable.rawset("quads", LuaValue.valueOf(stats.getQuads()));
+                renderStatsTable.rawset("uploadedBytes", LuaValue.valueOf(stats.getUploadedBytes()));
+                renderStatsTable.rawset("forcedFlushes", LuaValue.valueOf(stats.getForcedFlushes()));
+                return renderStatsTable;
+            }
+        });
+
+        globals.set("recordRenderStats", new LuaFunction() {
+            @Override
+            public LuaValue call(LuaValue path) {
+                // nil stops recording
+                if (path.isnil()) {
+                    GameFactory.renderStats.stopCsv();
+                    return LuaValue.TRUE;
+                }
+                return LuaValue.valueOf(GameFactory.renderStats.startCsv(FileUtils.getCurrentWorkingDirectory(path.tojstring())));
+            }
+        });
+
         globals.set("getLangFromKey", new LuaFunction() {
             @Override
             public LuaValue call(LuaValue key) {
@@ -329,6 +480,71 @@ public class LuaManager {
         // Add more functions as needed
     }
 
+    /**
+     * Converts the keybinds into GLFW keys for getInputState.
+     * Must be called after {@link KeyInfoParser#loadKeyInfo()}
+     */
+    public static void bindInputState() {
+        inputState.bind();
+    }
+
+    /**
+     * Adds every sprite queued by drawSprites to the batch
+     *
+     * @param batchRenderer the batch to add the sprites to
+     */
+    public static void flushSprites(BatchRenderer batchRenderer) {
+        lock.lock();
+        try {
+            spriteQueue.flush(batchRenderer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs work that changes the game now, or on the game thread in {@link #runDeferred()} if called
+     * from an ImGui script. ImGui scripts run on the main thread while the simulation thread updates,
+     * so they must not touch the map or the sound voices themselves.
+     */
+    private static void runOnGameThread(Runnable work) {
+        if (runningImgui) {
+            deferred.add(work);
+        } else {
+            work.run();
+        }
+    }
+
+    /**
+     * Runs the work ImGui scripts asked for since the last call. Only called on the game thread, at the start of an update.
+     */
+    public static void runDeferred() {
+        Runnable work;
+        while ((work = deferred.poll()) != null) {
+            try {
+                work.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Stops other threads from running Lua until {@link #unlock()}. Take it around any Lua
+     * that doesn't go through {@link #loadScript(String, String)}, like resuming coroutines.
+     * It can be taken more than once by the same thread.
+     */
+    public static void lock() {
+        lock.lock();
+    }
+
+    /**
+     * Lets other threads run Lua again after {@link #lock()}
+     */
+    public static void unlock() {
+        lock.unlock();
+    }
+
     /**
      * Determines if the given file name indicates that it is an "init" script.
      *
@@ -379,6 +595,16 @@ public class LuaManager {
         return fileName.startsWith("autorun_");
     }
 
+    /**
+     * Determines if the given file name indicates that it is a "coroutine" script.
+     *
+     * @param fileName the name of the Lua file
+     * @return true if the file is a "coroutine" script, false otherwise
+     */
+    public static boolean isCoroutineFile(String fileName) {
+        return fileName.startsWith("coroutine_");
+    }
+
 
     public static void categorizeScripts(String directoryPath) {
         File directory = new File(FileUtils.getCurrentWorkingDirectory(directoryPath));
@@ -395,6 +621,8 @@ public class LuaManager {
                     imguiScripts.add(file.getName());
                 }else if (isMapAutorunFile(file.getName())) {
                     mapAutorunScripts.add(file.getName());
+                } else if (isCoroutineFile(file.getName())) {
+                    coroutineScripts.add(file.getName());
                 }
             }
         }
@@ -421,7 +649,18 @@ public class LuaManager {
     }
 
     /**
-     * Executes all tick scripts.
+     * Starts all coroutine scripts. They keep running across ticks until they finish.
+     */
+    public static void startCoroutineScripts() {
+        for (String script : coroutineScripts) {
+            Logger.printLOG("Starting coroutine script: " + script);
+            startScript(script, "resources/scripts/");
+        }
+    }
+
+    /**
+     * Executes all tick scripts. They run on the simulation thread when it is used,
+     * so they must not call the ImGui functions like beginWindow or createButton.
      */
     public static void executeTickScripts() {
         for (String script : tickScripts) {
@@ -435,7 +674,7 @@ public class LuaManager {
     public static void executeMapScript(String mapName) {
         for (String script : mapAutorunScripts) {
             if(script.endsWith(mapName + ".lua")){
-                Logger.printLOG("Loading: " + script);
+                Logger.info("Loading: {}", script);
                 loadScript(script, "resources/scripts/");
             }
 
@@ -443,11 +682,19 @@ public class LuaManager {
     }
     
     /**
-     * Executes all Lua scripts.
+     * Executes all ImGui scripts. Only called on the main thread. Anything they do that changes
+     * the game, like loading a map or playing a sound, is deferred to the game thread.
      */
     public static void executeAllImguiScripts() {
-        for (String script : imguiScripts) {
-            loadScript(script, "resources/scripts/");
+        lock.lock();
+        try {
+            runningImgui = true;
+            for (String script : imguiScripts) {
+                loadScript(script, "resources/scripts/");
+            }
+        } finally {
+            runningImgui = false;
+            lock.unlock();
         }
     }
 
@@ -467,16 +714,51 @@ public class LuaManager {
      * @param relativePath the relative path to the script  Ex: "resources/scripts/"
      */
     public static void loadScript(String scriptPath, String relativePath) {
+        LuaScriptEvent event = new LuaScriptEvent();
+        event.begin();
+        lock.lock();
         try {
-            Globals globals = luaEngine.getGlobals();
-            String script = FileUtils.readFile(FileUtils.getCurrentWorkingDirectory(relativePath + scriptPath));  // Read the script content
-            LuaValue chunk = globals.load(script, scriptPath);  // Load the script from content
+            LuaValue chunk = compileScript(scriptPath, relativePath);
             chunk.call();  // Execute the script
+            event.succeeded = true;
         } catch (FileNotFoundException e) {
             Logger.printERROR("Error loading Script! FileNotFound");
             e.printStackTrace();
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            lock.unlock();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.script = scriptPath;
+            event.commit();
         }
     }
+
+    /**
+     * Loads a Lua script and starts it as a coroutine, so it can use wait, waitFrames and waitFor.
+     *
+     * @param scriptPath the path to the Lua script file
+     * @param relativePath the relative path to the script  Ex: "resources/scripts/"
+     * @return true if the script was loaded and started
+     */
+    public static boolean startScript(String scriptPath, String relativePath) {
+        try {
+            GameFactory.luaScheduler.start(compileScript(scriptPath, relativePath), scriptPath);
+            return true;
+        } catch (FileNotFoundException e) {
+            Logger.printERROR("Error loading Script! FileNotFound");
+            e.printStackTrace();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    private static LuaValue compileScript(String scriptPath, String relativePath) throws IOException {
+        Globals globals = luaEngine.getGlobals();
+        String script = FileUtils.readFile(FileUtils.getCurrentWorkingDirectory(relativePath + scriptPath));  // Read the script content
+        return globals.load(script, scriptPath);  // Load the script from content
+    }
 }
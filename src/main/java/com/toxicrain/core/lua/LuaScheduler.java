@@ -0,0 +1,192 @@
+package com.toxicrain.core.lua;
+
+import com.toxicrain.core.Logger;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaThread;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Runs Lua functions as coroutines that can wait without blocking the game.
+ * A coroutine calls wait, waitFrames or waitFor, which yields back to the engine,
+ * and {@link #tick(float)} resumes it once the wait is over.
+ *
+ * <p>Waiting coroutines are kept in queues sorted by the time or frame they wake up,
+ * so each tick only looks at the coroutines that are ready.</p>
+ *
+ * @author strubium
+ */
+public class LuaScheduler {
+
+    private final Globals globals;
+    private final PriorityQueue<Task> timeQueue = new PriorityQueue<>((a, b) -> {
+        int compare = Double.compare(a.wakeTime, b.wakeTime);
+        return compare != 0 ? compare : Long.compare(a.sequence, b.sequence);
+    });
+    private final PriorityQueue<Task> frameQueue = new PriorityQueue<>((a, b) -> {
+        int compare = Long.compare(a.wakeFrame, b.wakeFrame);
+        return compare != 0 ? compare : Long.compare(a.sequence, b.sequence);
+    });
+    private final Map<String, List<Task>> eventWaiters = new HashMap<>();
+    private final List<Task> ready = new ArrayList<>();
+
+    private double time;
+    private long frame;
+    private long nextSequence;
+    private Task current;
+
+    public LuaScheduler(Globals globals) {
+        this.globals = globals;
+    }
+
+    private static class Task {
+        final LuaThread thread;
+        final String name;
+        double wakeTime;
+        long wakeFrame;
+        long sequence;
+        boolean waiting;
+
+        Task(LuaThread thread, String name) {
+            this.thread = thread;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Starts a Lua function as a coroutine. It first runs on the next tick.
+     *
+     * @param function the function to run
+     * @param name the name used when logging errors
+     */
+    public void start(LuaValue function, String name) {
+        Task task = new Task(new LuaThread(globals, function), name);
+        wakeAt(task, time);
+    }
+
+    /**
+     * Checks if the code calling this is running inside a coroutine started by this scheduler
+     */
+    public boolean isInCoroutine() {
+        return current != null && globals.running == current.thread;
+    }
+
+    /**
+     * Makes the running coroutine wait for some time
+     *
+     * @param seconds how long to wait
+     */
+    public void waitSeconds(double seconds) {
+        Task task = checkCurrent("wait");
+        wakeAt(task, time + Math.max(0, seconds));
+        globals.yield(LuaValue.NONE);
+    }
+
+    /**
+     * Makes the running coroutine wait for a number of ticks
+     *
+     * @param frames how many ticks to wait, at least 1
+     */
+    public void waitFrames(int frames) {
+        Task task = checkCurrent("waitFrames");
+        wakeAtFrame(task, frame + Math.max(1, frames));
+        globals.yield(LuaValue.NONE);
+    }
+
+    /**
+     * Makes the running coroutine wait until the event is signalled
+     *
+     * @param event the name of the event
+     */
+    public void waitFor(String event) {
+        Task task = checkCurrent("waitFor");
+        task.waiting = true;
+        eventWaiters.computeIfAbsent(event, key -> new ArrayList<>()).add(task);
+        globals.yield(LuaValue.NONE);
+    }
+
+    /**
+     * Wakes every coroutine waiting on the event. They resume on the next tick.
+     *
+     * @param event the name of the event
+     * @return the number of coroutines woken
+     */
+    public int signal(String event) {
+        List<Task> waiters = eventWaiters.remove(event);
+        if (waiters == null) return 0;
+        for (Task task : waiters) {
+            wakeAt(task, time);
+        }
+        return waiters.size();
+    }
+
+    /**
+     * Resumes every coroutine whose wait is over
+     *
+     * @param deltaTime the time since the last tick, in seconds
+     */
+    public void tick(float deltaTime) {
+        time += deltaTime;
+        frame++;
+
+        while (!timeQueue.isEmpty() && timeQueue.peek().wakeTime <= time) {
+            ready.add(timeQueue.poll());
+        }
+        while (!frameQueue.isEmpty() && frameQueue.peek().wakeFrame <= frame) {
+            ready.add(frameQueue.poll());
+        }
+
+        for (int i = 0; i < ready.size(); i++) {
+            resume(ready.get(i));
+        }
+        ready.clear();
+    }
+
+    private void resume(Task task) {
+        task.waiting = false;
+        current = task;
+        Varargs result;
+        try {
+            result = task.thread.resume(LuaValue.NONE);
+        } finally {
+            current = null;
+        }
+
+        if (!result.arg1().toboolean()) {
+            Logger.printERROR("Error in coroutine " + task.name + ": " + result.tojstring(2));
+            return;
+        }
+        if (task.thread.state.status != LuaThread.STATUS_DEAD && !task.waiting) {
+            // Yielded with coroutine.yield(), so run it again next tick
+            wakeAtFrame(task, frame + 1);
+        }
+    }
+
+    private Task checkCurrent(String function) {
+        if (!isInCoroutine()) {
+            throw new LuaError(function + " can only be called from a coroutine started with startCoroutine or runScriptAsync");
+        }
+        return current;
+    }
+
+    private void wakeAt(Task task, double wakeTime) {
+        task.waiting = true;
+        task.wakeTime = wakeTime;
+        task.sequence = nextSequence++;
+        timeQueue.add(task);
+    }
+
+    private void wakeAtFrame(Task task, long wakeFrame) {
+        task.waiting = true;
+        task.wakeFrame = wakeFrame;
+        task.sequence = nextSequence++;
+        frameQueue.add(task);
+    }
+}
@@ -0,0 +1,106 @@
+package com.toxicrain.core.lua;
+
+import com.toxicrain.core.Color;
+import com.toxicrain.core.Constants;
+import com.toxicrain.core.render.BatchRenderer;
+import com.toxicrain.texture.TextureInfo;
+import com.toxicrain.texture.TextureSystem;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collects sprites sent from Lua with drawSprites and hands them to the
+ * {@link BatchRenderer} during the next render. The sprite data is kept in
+ * reusable arrays so a script can submit many sprites with one call.
+ *
+ * @author strubium
+ */
+public class LuaSpriteQueue {
+
+    private static final LuaValue KEY_TEXTURE = LuaValue.valueOf("texture");
+    private static final LuaValue KEY_X = LuaValue.valueOf("x");
+    private static final LuaValue KEY_Y = LuaValue.valueOf("y");
+    private static final LuaValue KEY_Z = LuaValue.valueOf("z");
+    private static final LuaValue KEY_ANGLE = LuaValue.valueOf("angle");
+    private static final LuaValue KEY_SCALE = LuaValue.valueOf("scale");
+
+    private static final float[] WHITE = Color.toFloatArray(Color.WHITE);
+
+    private final Map<LuaValue, TextureInfo> textureCache = new HashMap<>();
+    private TextureInfo[] textures = new TextureInfo[64];
+    private float[] data = new float[64 * 5]; // x, y, z, angle, scale
+    private int count;
+
+    /**
+     * Adds every sprite in the table to the queue.
+     * Each entry is a table like {texture = "name", x = 0, y = 0, z = 1.01, angle = 0, scale = 1},
+     * where z, angle and scale are optional.
+     *
+     * @param sprites the Lua array of sprite tables
+     * @return the number of sprites added
+     */
+    public int addAll(LuaTable sprites) {
+        int length = sprites.length();
+        ensureCapacity(count + length);
+
+        int added = 0;
+        for (int i = 1; i <= length; i++) {
+            LuaValue sprite = sprites.get(i);
+            if (!sprite.istable()) continue;
+
+            TextureInfo texture = getTexture(sprite.get(KEY_TEXTURE));
+            if (texture == null) continue;
+
+            int index = count * 5;
+            textures[count] = texture;
+            data[index] = (float) sprite.get(KEY_X).optdouble(0);
+            data[index + 1] = (float) sprite.get(KEY_Y).optdouble(0);
+            data[index + 2] = (float) sprite.get(KEY_Z).optdouble(Constants.npcZLevel);
+            data[index + 3] = (float) sprite.get(KEY_ANGLE).optdouble(0);
+            data[index + 4] = (float) sprite.get(KEY_SCALE).optdouble(1);
+            count++;
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * Sends every queued sprite to the batch and empties the queue
+     *
+     * @param batchRenderer the batch the sprites are added to
+     */
+    public void flush(BatchRenderer batchRenderer) {
+        for (int i = 0; i < count; i++) {
+            int index = i * 5;
+            batchRenderer.addTexture(textures[i], data[index], data[index + 1], data[index + 2],
+                    data[index + 3], data[index + 4], data[index + 4], WHITE);
+            textures[i] = null;
+        }
+        count = 0;
+    }
+
+    private TextureInfo getTexture(LuaValue name) {
+        if (!name.isstring()) return null;
+        if (textureCache.containsKey(name)) {
+            return textureCache.get(name);
+        }
+        // Unknown names are cached as null too, so a missing texture is only looked up and warned about once
+        TextureInfo texture = TextureSystem.getTexture(name.tojstring());
+        textureCache.put(name, texture);
+        return texture;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= textures.length) return;
+        int newSize = Math.max(size, textures.length * 2);
+        TextureInfo[] newTextures = new TextureInfo[newSize];
+        System.arraycopy(textures, 0, newTextures, 0, count);
+        textures = newTextures;
+        float[] newData = new float[newSize * 5];
+        System.arraycopy(data, 0, newData, 0, count * 5);
+        data = newData;
+    }
+}
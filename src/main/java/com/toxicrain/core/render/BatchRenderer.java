@@ -3,18 +3,25 @@ package com.toxicrain.core.render;
 import com.toxicrain.texture.TextureInfo;
 import com.toxicrain.core.json.GameInfoParser;
 import com.toxicrain.core.Color;
+import com.toxicrain.core.interfaces.IRenderBackend;
+import com.toxicrain.core.jfr.BatchFlushEvent;
+import lombok.Getter;
 import org.lwjgl.BufferUtils;
 
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL15.*;
-
 /**
  * The BatchRenderer class handles rendering multiple textures in a batch
  * to improve performance by reducing the number of draw calls.
+ * The batches are drawn by an {@link IRenderBackend}.
+ *
+ * <p>Textures added one at a time can only come from one thread. For big sets of quads, like the
+ * visible map, {@link #beginSegments(int)} gives out a {@link BatchSegment} per thread to fill at
+ * the same time. {@link #addSegments(int)} queues them, and when the batch is drawn their quads are
+ * sorted by texture and uploaded first, before the textures added one at a time.</p>
  *
  * @author strubium
  */
@@ -26,25 +33,53 @@ public class BatchRenderer {
     private final FloatBuffer texCoordBuffer;
     private final FloatBuffer colorBuffer;
     private final List<TextureVertexInfo> textureVertexInfos;
-    private final int vertexVboId;
-    private final int texCoordVboId;
-    private final int colorVboId;
+    private final IRenderBackend backend;
+    /** What this renderer did in the last frame */
+    @Getter
+    private final RenderStats stats = new RenderStats();
+    /** If the batch being drawn was full, for the flight recorder */
+    private boolean forcedFlush;
+    /** Quads each new segment has room for before it grows */
+    private static final int SEGMENT_CAPACITY = 1024;
+    private static final int LAYER_SHIFT = 56;
+    private static final int MAX_LAYER = 0x7F;
+    private static final int TEXTURE_SHIFT = 32;
+    private static final long TEXTURE_MASK = 0xFFFFFFL;
+    /** The colors of each light level, from {@link Color#LIGHT_LEVEL_0} to {@link Color#LIGHT_LEVEL_20} */
+    private static final float[][] LIGHT_COLORS = new float[21][];
+
+    static {
+        for (int i = 0; i < LIGHT_COLORS.length; i++) {
+            LIGHT_COLORS[i] = Color.toFloatArray(Color.values()[Color.LIGHT_LEVEL_0.ordinal() + i]);
+        }
+    }
+
+    private BatchSegment[] segments = new BatchSegment[0];
+    /** How many segments were queued by {@link #addSegments(int)} for the next {@link #renderBatch()} */
+    private int queuedSegments;
+    private int[] segmentStarts = new int[0];
+    /** The order the queued quads are drawn in: layer, then texture, then where they were added */
+    private long[] sortKeys = new long[0];
 
 
     /**
-     * Constructs a BatchRenderer and initializes the vertex, texture coordinate, and color buffers
-     * as well as the Vertex Buffer Objects (VBOs).
+     * Constructs a BatchRenderer that draws with OpenGL
      */
     public BatchRenderer() {
+        this(new GLRenderBackend());
+    }
+
+    /**
+     * Constructs a BatchRenderer and initializes the vertex, texture coordinate, and color buffers.
+     *
+     * @param backend what the batches are drawn with
+     */
+    public BatchRenderer(IRenderBackend backend) {
+        this.backend = backend;
         vertexBuffer = BufferUtils.createFloatBuffer(MAX_TEXTURES * 6 * 3); // 2 triangles per quad, 3 vertices per triangle
         texCoordBuffer = BufferUtils.createFloatBuffer(MAX_TEXTURES * 6 * 2); // 2 triangles per quad, 2 coords per vertex
         colorBuffer = BufferUtils.createFloatBuffer(MAX_TEXTURES * 6 * 4); // 2 triangles per quad, 4 colors per vertex
         textureVertexInfos = new ArrayList<>(MAX_TEXTURES);
-
-        // Generate VBOs
-        vertexVboId = glGenBuffers();
-        texCoordVboId = glGenBuffers();
-        colorVboId = glGenBuffers();
     }
 
     private static class TextureVertexInfo {
@@ -69,14 +104,29 @@ public class BatchRenderer {
         }
     }
 
+    /**
+     * Clears the screen and moves the view to the camera
+     *
+     * @param cameraX the x position of the camera
+     * @param cameraY the y position of the camera
+     * @param cameraZ the distance of the camera from the map
+     */
+    public void beginFrame(float cameraX, float cameraY, float cameraZ) {
+        backend.beginFrame(cameraX, cameraY, cameraZ);
+    }
+
+    /**
+     * Finishes the frame, so its counts show up in {@link #getStats()}
+     */
+    public void endFrame() {
+        stats.endFrame();
+    }
+
     public void beginBatch() {
-        // Enable necessary OpenGL states
-        glEnable(GL_TEXTURE_2D);
-        glEnableClientState(GL_VERTEX_ARRAY);
-        glEnableClientState(GL_TEXTURE_COORD_ARRAY);
-        glEnableClientState(GL_COLOR_ARRAY);
+        backend.beginBatch();
 
         textureVertexInfos.clear();
+        queuedSegments = 0;
         vertexBuffer.clear();
         texCoordBuffer.clear();
         colorBuffer.clear();
@@ -105,6 +155,7 @@ public class BatchRenderer {
         float[] triangleColors = generateTriangleColors(color);
 
         textureVertexInfos.add(new TextureVertexInfo(textureInfo.textureId, triangleVertices, triangleTexCoords, triangleColors));
+        stats.addQuad();
     }
 
 
@@ -133,6 +184,7 @@ public class BatchRenderer {
         float[] triangleColors = generateTriangleColors(color);
 
         textureVertexInfos.add(new TextureVertexInfo(textureInfo.textureId, triangleVertices, triangleTexCoords, triangleColors));
+        stats.addQuad();
     }
 
     /**
@@ -160,18 +212,88 @@ public class BatchRenderer {
         float[] triangleColors = generateTriangleColors(color);
 
         textureVertexInfos.add(new TextureVertexInfo(textureInfo.textureId, triangleVertices, triangleTexCoords, triangleColors));
+        stats.addQuad();
     }
 
-// Helper Methods
+    /**
+     * Gets empty segments to fill from different threads, one per thread or part of the work.
+     * Hand them back with {@link #addSegments(int)} once they are all filled.
+     *
+     * @param count how many segments are needed
+     * @return the segments, the first count of them are empty and ready to fill
+     */
+    public BatchSegment[] beginSegments(int count) {
+        if (segments.length < count) {
+            int old = segments.length;
+            segments = Arrays.copyOf(segments, count);
+            for (int i = old; i < count; i++) {
+                segments[i] = new BatchSegment(SEGMENT_CAPACITY);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            segments[i].clear();
+        }
+        return segments;
+    }
+
+    /**
+     * Queues the filled segments from {@link #beginSegments(int)} to be drawn with the batch.
+     * Only call this once every thread filling them is done.
+     *
+     * @param count how many segments were filled
+     */
+    public void addSegments(int count) {
+        int total = 0;
+        if (segmentStarts.length < count + 1) {
+            segmentStarts = new int[count + 1];
+        }
+        for (int i = 0; i < count; i++) {
+            segmentStarts[i] = total;
+            total += segments[i].count;
+        }
+        segmentStarts[count] = total;
+        if (sortKeys.length < total) {
+            sortKeys = new long[Math.max(total, sortKeys.length * 2)];
+        }
+
+        // One key per quad, so a single sort puts them in the order they are drawn.
+        // The index at the bottom keeps quads with the same layer and texture in the order they were added.
+        for (int i = 0; i < count; i++) {
+            BatchSegment segment = segments[i];
+            int start = segmentStarts[i];
+            for (int quad = 0; quad < segment.count; quad++) {
+                long layer = Math.min(segment.layers[quad], MAX_LAYER);
+                long texture = segment.textureIds[quad] & TEXTURE_MASK;
+                sortKeys[start + quad] = layer << LAYER_SHIFT | texture << TEXTURE_SHIFT | (start + quad);
+                stats.addQuad();
+            }
+        }
+        Arrays.sort(sortKeys, 0, total);
+        queuedSegments = count;
+    }
+
+// Helper Methods, package-private and static so the benchmarks can call them without a GL context
 
     private void handleBatchLimit() {
         if (textureVertexInfos.size() >= MAX_TEXTURES) {
+            stats.addForcedFlush();
+            forcedFlush = true;
             renderBatch();
+            forcedFlush = false;
             beginBatch();
         }
     }
 
-    private float[] createRotatedVertices(TextureInfo textureInfo, float x, float y, float z, float angle, float scaleX, float scaleY) {
+    static float[] createRotatedVertices(TextureInfo textureInfo, float x, float y, float z, float angle, float scaleX, float scaleY) {
+        float[] rotatedVertices = new float[12];
+        writeRotatedVertices(textureInfo, x, y, z, angle, scaleX, scaleY, rotatedVertices);
+        return rotatedVertices;
+    }
+
+    /**
+     * Writes the four corners of a rotated and scaled texture into an array, 3 floats per corner
+     */
+    static void writeRotatedVertices(TextureInfo textureInfo, float x, float y, float z, float angle, float scaleX, float scaleY, float[] rotatedVertices) {
         float aspectRatio = (float) textureInfo.width / textureInfo.height;
         float[] originalVertices = {
                 -aspectRatio * scaleX, -scaleY, 0.0f,
@@ -183,7 +305,6 @@ public class BatchRenderer {
         float cosTheta = (float) Math.cos(angle);
         float sinTheta = (float) Math.sin(angle);
 
-        float[] rotatedVertices = new float[12];
         for (int i = 0; i < 4; i++) {
             int index = i * 3;
             float vx = originalVertices[index];
@@ -192,10 +313,9 @@ public class BatchRenderer {
             rotatedVertices[index + 1] = y + (vx * sinTheta + vy * cosTheta);
             rotatedVertices[index + 2] = z;
         }
-        return rotatedVertices;
     }
 
-    private float[] generateTriangleVertices(float[] rotatedVertices) {
+    static float[] generateTriangleVertices(float[] rotatedVertices) {
         return new float[] {
                 rotatedVertices[0], rotatedVertices[1], rotatedVertices[2],
                 rotatedVertices[3], rotatedVertices[4], rotatedVertices[5],
@@ -207,7 +327,7 @@ public class BatchRenderer {
         };
     }
 
-    private float[] createTexCoords() {
+    static float[] createTexCoords() {
         return new float[] {
                 0.0f, 0.0f,
                 1.0f, 0.0f,
@@ -216,7 +336,7 @@ public class BatchRenderer {
         };
     }
 
-    private float[] generateTriangleTexCoords(float[] texCoords) {
+    static float[] generateTriangleTexCoords(float[] texCoords) {
         return new float[] {
                 texCoords[0], texCoords[1],
                 texCoords[2], texCoords[3],
@@ -228,7 +348,7 @@ public class BatchRenderer {
         };
     }
 
-    private float[] generateTriangleColors(float[] color) {
+    static float[] generateTriangleColors(float[] color) {
         float[] triangleColors = new float[24];
         for (int i = 0; i < 6; i++) {
             System.arraycopy(color, 0, triangleColors, i * 4, 4);
@@ -236,18 +356,25 @@ public class BatchRenderer {
         return triangleColors;
     }
 
-    private float calculateRotationAngle(float x, float y, float posX, float posY) {
+    private static float calculateRotationAngle(float x, float y, float posX, float posY) {
         return (float) Math.atan2(posY - y, posX - x);
     }
 
-    private float[] determineColorBasedOnLightLevel(float lightLevel) {
+    private static float[] determineColorBasedOnLightLevel(float lightLevel) {
+        return getLightColor(lightLevel);
+    }
+
+    /**
+     * Gets the color of a light level. The array is shared, so it must not be changed.
+     */
+    static float[] getLightColor(float lightLevel) {
         if (lightLevel >= 1.0f) {
-            return Color.toFloatArray(Color.LIGHT_LEVEL_20); // Highest light level
+            return LIGHT_COLORS[20]; // Highest light level
         } else if (lightLevel > 0) {
             int level = (int) (lightLevel * 19);
-            return Color.toFloatArray(Color.values()[level + Color.LIGHT_LEVEL_1.ordinal()]);
+            return LIGHT_COLORS[level + 1];
         } else {
-            return Color.toFloatArray(Color.LIGHT_LEVEL_0); // Lowest light level
+            return LIGHT_COLORS[0]; // Lowest light level
         }
     }
 
@@ -269,7 +396,7 @@ public class BatchRenderer {
      *
      * @return The normalized light level at the vertices, within the range [0.0, 1.0].
      */
-    private float calculateLightLevel(List<float[]> lightPositions, float[] vertices) {
+    static float calculateLightLevel(List<float[]> lightPositions, float[] vertices) {
         float totalLightLevel = 0.0f;
         for (float[] lightPos : lightPositions) {
             float lightX = lightPos[0];
@@ -299,7 +426,11 @@ public class BatchRenderer {
      */
     public void renderBatch() {
         // Early exit if there are no textures to render
-        if (textureVertexInfos.isEmpty()) return;
+        if (textureVertexInfos.isEmpty() && queuedSegments == 0) return;
+
+        if (queuedSegments > 0) {
+            renderSegments();
+        }
 
         int currentTextureId = -1;
 
@@ -317,7 +448,7 @@ public class BatchRenderer {
                     vertexBuffer.flip();
                     texCoordBuffer.flip();
                     colorBuffer.flip();
-                    renderCurrentBatch(); // Render the batch
+                    renderCurrentBatch(currentTextureId); // Render the batch
 
                     // Clear buffers for the next batch
                     vertexBuffer.clear();
@@ -325,7 +456,8 @@ public class BatchRenderer {
                     colorBuffer.clear();
                 }
                 // Bind the new texture
-                glBindTexture(GL_TEXTURE_2D, info.textureId);
+                backend.bindTexture(info.textureId);
+                stats.addTextureBind();
                 currentTextureId = info.textureId;
             }
 
@@ -340,36 +472,95 @@ public class BatchRenderer {
             vertexBuffer.flip();
             texCoordBuffer.flip();
             colorBuffer.flip();
-            renderCurrentBatch();
+            renderCurrentBatch(currentTextureId);
         }
 
-        // Disable OpenGL states and clean up
-        glDisableClientState(GL_VERTEX_ARRAY);
-        glDisableClientState(GL_TEXTURE_COORD_ARRAY);
-        glDisableClientState(GL_COLOR_ARRAY);
-        glDisable(GL_TEXTURE_2D);
-
-        // Unbind any buffers
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        backend.endBatch();
     }
 
-    private void renderCurrentBatch() {
-        // Upload vertex data to VBO
-        glBindBuffer(GL_ARRAY_BUFFER, vertexVboId);
-        glBufferData(GL_ARRAY_BUFFER, vertexBuffer, GL_DYNAMIC_DRAW);
-        glVertexPointer(3, GL_FLOAT, 0, 0);
+    /**
+     * Draws the quads of the queued segments in the order of their sort keys, one draw call per texture
+     * unless a texture has more quads than fit in the buffers
+     */
+    private void renderSegments() {
+        int total = segmentStarts[queuedSegments];
+        int currentTextureId = -1;
+        int segmentIndex = 0;
+        vertexBuffer.clear();
+        texCoordBuffer.clear();
+        colorBuffer.clear();
+
+        for (int i = 0; i < total; i++) {
+            long key = sortKeys[i];
+            int index = (int) key;
+            int textureId = (int) (key >>> TEXTURE_SHIFT & TEXTURE_MASK);
+            if (textureId != currentTextureId || vertexBuffer.remaining() < BatchSegment.VERTEX_FLOATS) {
+                if (vertexBuffer.position() > 0) {
+                    forcedFlush = textureId == currentTextureId;
+                    if (forcedFlush) {
+                        stats.addForcedFlush();
+                    }
+                    vertexBuffer.flip();
+                    texCoordBuffer.flip();
+                    colorBuffer.flip();
+                    renderCurrentBatch(currentTextureId);
+                    forcedFlush = false;
+                    vertexBuffer.clear();
+                    texCoordBuffer.clear();
+                    colorBuffer.clear();
+                }
+                if (textureId != currentTextureId) {
+                    backend.bindTexture(textureId);
+                    stats.addTextureBind();
+                    currentTextureId = textureId;
+                }
+            }
 
-        // Upload texture coordinate data to VBO
-        glBindBuffer(GL_ARRAY_BUFFER, texCoordVboId);
-        glBufferData(GL_ARRAY_BUFFER, texCoordBuffer, GL_DYNAMIC_DRAW);
-        glTexCoordPointer(2, GL_FLOAT, 0, 0);
+            // Find the segment the quad is in, the starts are in order so a binary search works
+            if (index < segmentStarts[segmentIndex] || index >= segmentStarts[segmentIndex + 1]) {
+                segmentIndex = Arrays.binarySearch(segmentStarts, 0, queuedSegments + 1, index);
+                if (segmentIndex < 0) {
+                    segmentIndex = -segmentIndex - 2;
+                }
+                // Skip empty segments that start at the same index
+                while (segmentStarts[segmentIndex + 1] <= index) {
+                    segmentIndex++;
+                }
+            }
+            BatchSegment segment = segments[segmentIndex];
+            int quad = index - segmentStarts[segmentIndex];
+            vertexBuffer.put(segment.vertices, quad * BatchSegment.VERTEX_FLOATS, BatchSegment.VERTEX_FLOATS);
+            texCoordBuffer.put(segment.texCoords, quad * BatchSegment.TEX_COORD_FLOATS, BatchSegment.TEX_COORD_FLOATS);
+            colorBuffer.put(segment.colors, quad * BatchSegment.COLOR_FLOATS, BatchSegment.COLOR_FLOATS);
+        }
 
-        // Upload color data to VBO
-        glBindBuffer(GL_ARRAY_BUFFER, colorVboId);
-        glBufferData(GL_ARRAY_BUFFER, colorBuffer, GL_DYNAMIC_DRAW);
-        glColorPointer(4, GL_FLOAT, 0, 0);
+        if (vertexBuffer.position() > 0) {
+            vertexBuffer.flip();
+            texCoordBuffer.flip();
+            colorBuffer.flip();
+            renderCurrentBatch(currentTextureId);
+        }
+        queuedSegments = 0;
+        vertexBuffer.clear();
+        texCoordBuffer.clear();
+        colorBuffer.clear();
+    }
 
-        glDrawArrays(GL_TRIANGLES, 0, vertexBuffer.limit() / 3);
+    private void renderCurrentBatch(int textureId) {
+        BatchFlushEvent event = new BatchFlushEvent();
+        event.begin();
+        long bytes = (long) (vertexBuffer.remaining() + texCoordBuffer.remaining() + colorBuffer.remaining()) * Float.BYTES;
+        int quads = vertexBuffer.remaining() / 18;
+        stats.addDrawCall(bytes);
+        backend.drawTriangles(vertexBuffer, texCoordBuffer, colorBuffer);
+        event.end();
+        if (event.shouldCommit()) {
+            event.textureId = textureId;
+            event.quads = quads;
+            event.bytes = bytes;
+            event.forced = forcedFlush;
+            event.commit();
+        }
     }
 
     /**
@@ -378,11 +569,6 @@ public class BatchRenderer {
      * @param enabled true to enable blending, false to disable
      */
     public void setBlendingEnabled(boolean enabled) {
-        if (enabled) {
-            glEnable(GL_BLEND);
-            glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
-        } else {
-            glDisable(GL_BLEND);
-        }
+        backend.setBlendingEnabled(enabled);
     }
 }
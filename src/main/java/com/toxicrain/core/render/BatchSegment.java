@@ -0,0 +1,110 @@
+package com.toxicrain.core.render;
+
+import com.toxicrain.texture.TextureInfo;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A part of the vertex stream that one thread fills with quads, so a {@link BatchRenderer}
+ * can have many threads building quads at once. The arrays are kept between frames and only
+ * grow, so filling a segment doesn't allocate once it is big enough.
+ *
+ * <p>Get the segments from {@link BatchRenderer#beginSegments(int)}, give each thread its own,
+ * then hand them back with {@link BatchRenderer#addSegments(int)}.</p>
+ *
+ * @author strubium
+ */
+public class BatchSegment {
+    static final int VERTEX_FLOATS = 18;
+    static final int TEX_COORD_FLOATS = 12;
+    static final int COLOR_FLOATS = 24;
+    /** The texture coordinates of a quad, in the same order as {@link BatchRenderer#generateTriangleTexCoords} */
+    private static final float[] TEX_COORDS = {
+            0.0f, 0.0f, 1.0f, 0.0f, 1.0f, 1.0f,
+            0.0f, 0.0f, 1.0f, 1.0f, 0.0f, 1.0f
+    };
+
+    float[] vertices;
+    float[] texCoords;
+    float[] colors;
+    int[] textureIds;
+    int[] layers;
+    /** How many quads are in the segment */
+    @Getter
+    int count;
+    private final float[] corners = new float[12];
+
+    BatchSegment(int capacity) {
+        capacity = Math.max(1, capacity);
+        vertices = new float[capacity * VERTEX_FLOATS];
+        texCoords = new float[capacity * TEX_COORD_FLOATS];
+        colors = new float[capacity * COLOR_FLOATS];
+        textureIds = new int[capacity];
+        layers = new int[capacity];
+    }
+
+    void clear() {
+        count = 0;
+    }
+
+    /**
+     * Adds a lit texture, the same as {@link BatchRenderer#addTextureLit}
+     *
+     * @param textureInfo the texture information
+     * @param x the x-coordinate of the texture
+     * @param y the y-coordinate of the texture
+     * @param z the z-coordinate of the texture
+     * @param angle the rotation angle in radians
+     * @param scaleX the scale factor along the x-axis
+     * @param scaleY the scale factor along the y-axis
+     * @param lightPositions the list of light positions
+     * @param layer where the texture is in a stack of textures at the same spot, 0 for the bottom.
+     *              Quads are sorted by texture when merged, but lower layers are always drawn first.
+     */
+    public void addTextureLit(TextureInfo textureInfo, float x, float y, float z, float angle, float scaleX, float scaleY,
+                              List<float[]> lightPositions, int layer) {
+        BatchRenderer.writeRotatedVertices(textureInfo, x, y, z, angle, scaleX, scaleY, corners);
+        float lightLevel = BatchRenderer.calculateLightLevel(lightPositions, corners);
+        float[] color = BatchRenderer.getLightColor(lightLevel);
+        add(textureInfo.textureId, layer, color[0], color[1], color[2], color[3]);
+    }
+
+    /**
+     * Writes the quad in {@link #corners} as two triangles
+     */
+    private void add(int textureId, int layer, float red, float green, float blue, float alpha) {
+        if (count == textureIds.length) {
+            grow();
+        }
+        textureIds[count] = textureId;
+        layers[count] = layer;
+
+        // Corners 0, 1, 2 then 0, 2, 3, like generateTriangleVertices
+        int v = count * VERTEX_FLOATS;
+        System.arraycopy(corners, 0, vertices, v, 9);
+        System.arraycopy(corners, 0, vertices, v + 9, 3);
+        System.arraycopy(corners, 6, vertices, v + 12, 6);
+
+        System.arraycopy(TEX_COORDS, 0, texCoords, count * TEX_COORD_FLOATS, TEX_COORD_FLOATS);
+
+        int c = count * COLOR_FLOATS;
+        for (int i = 0; i < 6; i++, c += 4) {
+            colors[c] = red;
+            colors[c + 1] = green;
+            colors[c + 2] = blue;
+            colors[c + 3] = alpha;
+        }
+        count++;
+    }
+
+    private void grow() {
+        int capacity = textureIds.length * 2;
+        vertices = Arrays.copyOf(vertices, capacity * VERTEX_FLOATS);
+        texCoords = Arrays.copyOf(texCoords, capacity * TEX_COORD_FLOATS);
+        colors = Arrays.copyOf(colors, capacity * COLOR_FLOATS);
+        textureIds = Arrays.copyOf(textureIds, capacity);
+        layers = Arrays.copyOf(layers, capacity);
+    }
+}
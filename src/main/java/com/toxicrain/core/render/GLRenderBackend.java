@@ -0,0 +1,96 @@
+package com.toxicrain.core.render;
+
+import com.toxicrain.core.interfaces.IRenderBackend;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * Draws batches with OpenGL, uploading them to Vertex Buffer Objects (VBOs).
+ * Needs a current GL context.
+ *
+ * @author strubium
+ */
+public class GLRenderBackend implements IRenderBackend {
+    private final int vertexVboId;
+    private final int texCoordVboId;
+    private final int colorVboId;
+
+    /**
+     * Creates the backend and its VBOs
+     */
+    public GLRenderBackend() {
+        vertexVboId = glGenBuffers();
+        texCoordVboId = glGenBuffers();
+        colorVboId = glGenBuffers();
+    }
+
+    @Override
+    public void beginFrame(float cameraX, float cameraY, float cameraZ) {
+        // Clear the color and depth buffers
+        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+
+        // Set up the view matrix
+        glMatrixMode(GL_MODELVIEW);
+        glLoadIdentity();
+        glTranslatef(-cameraX, -cameraY, -cameraZ);
+    }
+
+    @Override
+    public void beginBatch() {
+        // Enable necessary OpenGL states
+        glEnable(GL_TEXTURE_2D);
+        glEnableClientState(GL_VERTEX_ARRAY);
+        glEnableClientState(GL_TEXTURE_COORD_ARRAY);
+        glEnableClientState(GL_COLOR_ARRAY);
+    }
+
+    @Override
+    public void bindTexture(int textureId) {
+        glBindTexture(GL_TEXTURE_2D, textureId);
+    }
+
+    @Override
+    public void drawTriangles(FloatBuffer vertices, FloatBuffer texCoords, FloatBuffer colors) {
+        // Upload vertex data to VBO
+        glBindBuffer(GL_ARRAY_BUFFER, vertexVboId);
+        glBufferData(GL_ARRAY_BUFFER, vertices, GL_DYNAMIC_DRAW);
+        glVertexPointer(3, GL_FLOAT, 0, 0);
+
+        // Upload texture coordinate data to VBO
+        glBindBuffer(GL_ARRAY_BUFFER, texCoordVboId);
+        glBufferData(GL_ARRAY_BUFFER, texCoords, GL_DYNAMIC_DRAW);
+        glTexCoordPointer(2, GL_FLOAT, 0, 0);
+
+        // Upload color data to VBO
+        glBindBuffer(GL_ARRAY_BUFFER, colorVboId);
+        glBufferData(GL_ARRAY_BUFFER, colors, GL_DYNAMIC_DRAW);
+        glColorPointer(4, GL_FLOAT, 0, 0);
+
+        glDrawArrays(GL_TRIANGLES, 0, vertices.remaining() / 3);
+    }
+
+    @Override
+    public void endBatch() {
+        // Disable OpenGL states and clean up
+        glDisableClientState(GL_VERTEX_ARRAY);
+        glDisableClientState(GL_TEXTURE_COORD_ARRAY);
+        glDisableClientState(GL_COLOR_ARRAY);
+        glDisable(GL_TEXTURE_2D);
+
+        // Unbind any buffers
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    @Override
+    public void setBlendingEnabled(boolean enabled) {
+        if (enabled) {
+            glEnable(GL_BLEND);
+            glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        } else {
+            glDisable(GL_BLEND);
+        }
+    }
+}
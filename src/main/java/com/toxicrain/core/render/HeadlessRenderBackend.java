@@ -0,0 +1,61 @@
+package com.toxicrain.core.render;
+
+import com.toxicrain.core.interfaces.IRenderBackend;
+import lombok.Getter;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A render backend that draws nothing and only counts what would have been sent to the GPU.
+ * Used by headless runs to measure building frames without a window or GL context.
+ *
+ * @author strubium
+ */
+@Getter
+public class HeadlessRenderBackend implements IRenderBackend {
+    private long frames;
+    private long drawCalls;
+    private long textureBinds;
+    private long vertices;
+    private long uploadedBytes;
+
+    @Override
+    public void beginFrame(float cameraX, float cameraY, float cameraZ) {
+        frames++;
+    }
+
+    @Override
+    public void beginBatch() {
+    }
+
+    @Override
+    public void bindTexture(int textureId) {
+        textureBinds++;
+    }
+
+    @Override
+    public void drawTriangles(FloatBuffer vertices, FloatBuffer texCoords, FloatBuffer colors) {
+        drawCalls++;
+        this.vertices += vertices.remaining() / 3;
+        uploadedBytes += (long) (vertices.remaining() + texCoords.remaining() + colors.remaining()) * Float.BYTES;
+    }
+
+    @Override
+    public void endBatch() {
+    }
+
+    @Override
+    public void setBlendingEnabled(boolean enabled) {
+    }
+
+    /**
+     * Sets every counter back to zero
+     */
+    public void resetCounters() {
+        frames = 0;
+        drawCalls = 0;
+        textureBinds = 0;
+        vertices = 0;
+        uploadedBytes = 0;
+    }
+}
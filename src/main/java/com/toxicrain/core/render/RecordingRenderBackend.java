@@ -0,0 +1,50 @@
+package com.toxicrain.core.render;
+
+import com.toxicrain.core.interfaces.IRenderBackend;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A render backend that draws nothing and records every call into a {@link RenderSnapshot} instead,
+ * so a frame can be built on the simulation thread and drawn on the render thread.
+ *
+ * @author strubium
+ */
+public class RecordingRenderBackend implements IRenderBackend {
+    /** The snapshot the calls go in, changed every frame */
+    @Getter
+    @Setter
+    private RenderSnapshot target;
+
+    @Override
+    public void beginFrame(float cameraX, float cameraY, float cameraZ) {
+        target.recordBeginFrame(cameraX, cameraY, cameraZ);
+    }
+
+    @Override
+    public void beginBatch() {
+        target.recordBeginBatch();
+    }
+
+    @Override
+    public void bindTexture(int textureId) {
+        target.recordBindTexture(textureId);
+    }
+
+    @Override
+    public void drawTriangles(FloatBuffer vertices, FloatBuffer texCoords, FloatBuffer colors) {
+        target.recordDrawTriangles(vertices, texCoords, colors);
+    }
+
+    @Override
+    public void endBatch() {
+        target.recordEndBatch();
+    }
+
+    @Override
+    public void setBlendingEnabled(boolean enabled) {
+        target.recordSetBlending(enabled);
+    }
+}
@@ -0,0 +1,180 @@
+package com.toxicrain.core.render;
+
+import com.toxicrain.core.interfaces.IRenderBackend;
+import org.lwjgl.BufferUtils;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Everything a frame sends to a render backend, recorded so it can be drawn later on another thread.
+ *
+ * <p>The simulation thread fills a snapshot with a {@link RecordingRenderBackend} while it builds
+ * the frame, then hands it to the render thread through a {@link SnapshotExchange}, which plays it
+ * back to the real backend with {@link #replay(IRenderBackend)}. The vertex data is copied into
+ * direct buffers that grow as needed and are reused every frame, so recording doesn't allocate
+ * once the buffers are big enough.</p>
+ *
+ * @author strubium
+ */
+public class RenderSnapshot {
+    private static final int BEGIN_FRAME = 0;
+    private static final int BEGIN_BATCH = 1;
+    private static final int BIND_TEXTURE = 2;
+    private static final int DRAW_TRIANGLES = 3;
+    private static final int END_BATCH = 4;
+    private static final int SET_BLENDING = 5;
+
+    /** The calls, each an op code followed by its arguments */
+    private int[] ops = new int[256];
+    private int opCount;
+    private FloatBuffer vertices;
+    private FloatBuffer texCoords;
+    private FloatBuffer colors;
+
+    /**
+     * Creates an empty snapshot
+     *
+     * @param quads how many quads to make room for before the buffers have to grow
+     */
+    public RenderSnapshot(int quads) {
+        vertices = BufferUtils.createFloatBuffer(Math.max(1, quads) * 6 * 3);
+        texCoords = BufferUtils.createFloatBuffer(Math.max(1, quads) * 6 * 2);
+        colors = BufferUtils.createFloatBuffer(Math.max(1, quads) * 6 * 4);
+    }
+
+    /**
+     * Empties the snapshot, keeping its buffers
+     */
+    public void clear() {
+        opCount = 0;
+        vertices.clear();
+        texCoords.clear();
+        colors.clear();
+    }
+
+    /**
+     * Checks if nothing has been recorded since the last {@link #clear()}
+     */
+    public boolean isEmpty() {
+        return opCount == 0;
+    }
+
+    /**
+     * Makes every recorded call on a backend, in the order they were recorded
+     *
+     * @param backend what to draw with, like the {@link GLRenderBackend} on the render thread
+     */
+    public void replay(IRenderBackend backend) {
+        int vertexEnd = vertices.position();
+        int texCoordEnd = texCoords.position();
+        int colorEnd = colors.position();
+        int vertexStart = 0;
+        int texCoordStart = 0;
+        int colorStart = 0;
+
+        int i = 0;
+        while (i < opCount) {
+            switch (ops[i++]) {
+                case BEGIN_FRAME:
+                    backend.beginFrame(Float.intBitsToFloat(ops[i]), Float.intBitsToFloat(ops[i + 1]), Float.intBitsToFloat(ops[i + 2]));
+                    i += 3;
+                    break;
+                case BEGIN_BATCH:
+                    backend.beginBatch();
+                    break;
+                case BIND_TEXTURE:
+                    backend.bindTexture(ops[i++]);
+                    break;
+                case DRAW_TRIANGLES:
+                    vertices.limit(vertexStart + ops[i]).position(vertexStart);
+                    texCoords.limit(texCoordStart + ops[i + 1]).position(texCoordStart);
+                    colors.limit(colorStart + ops[i + 2]).position(colorStart);
+                    backend.drawTriangles(vertices, texCoords, colors);
+                    vertexStart += ops[i];
+                    texCoordStart += ops[i + 1];
+                    colorStart += ops[i + 2];
+                    i += 3;
+                    break;
+                case END_BATCH:
+                    backend.endBatch();
+                    break;
+                case SET_BLENDING:
+                    backend.setBlendingEnabled(ops[i++] != 0);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown render op at " + (i - 1));
+            }
+        }
+
+        // Leave the buffers as they were, so the snapshot can be replayed again
+        vertices.limit(vertices.capacity()).position(vertexEnd);
+        texCoords.limit(texCoords.capacity()).position(texCoordEnd);
+        colors.limit(colors.capacity()).position(colorEnd);
+    }
+
+    void recordBeginFrame(float cameraX, float cameraY, float cameraZ) {
+        ensureOps(4);
+        ops[opCount++] = BEGIN_FRAME;
+        ops[opCount++] = Float.floatToRawIntBits(cameraX);
+        ops[opCount++] = Float.floatToRawIntBits(cameraY);
+        ops[opCount++] = Float.floatToRawIntBits(cameraZ);
+    }
+
+    void recordBeginBatch() {
+        ensureOps(1);
+        ops[opCount++] = BEGIN_BATCH;
+    }
+
+    void recordBindTexture(int textureId) {
+        ensureOps(2);
+        ops[opCount++] = BIND_TEXTURE;
+        ops[opCount++] = textureId;
+    }
+
+    void recordDrawTriangles(FloatBuffer vertices, FloatBuffer texCoords, FloatBuffer colors) {
+        ensureOps(4);
+        ops[opCount++] = DRAW_TRIANGLES;
+        ops[opCount++] = vertices.remaining();
+        ops[opCount++] = texCoords.remaining();
+        ops[opCount++] = colors.remaining();
+        this.vertices = append(this.vertices, vertices);
+        this.texCoords = append(this.texCoords, texCoords);
+        this.colors = append(this.colors, colors);
+    }
+
+    void recordEndBatch() {
+        ensureOps(1);
+        ops[opCount++] = END_BATCH;
+    }
+
+    void recordSetBlending(boolean enabled) {
+        ensureOps(2);
+        ops[opCount++] = SET_BLENDING;
+        ops[opCount++] = enabled ? 1 : 0;
+    }
+
+    private void ensureOps(int count) {
+        if (opCount + count > ops.length) {
+            int[] grown = new int[Math.max(ops.length * 2, opCount + count)];
+            System.arraycopy(ops, 0, grown, 0, opCount);
+            ops = grown;
+        }
+    }
+
+    /**
+     * Copies the remaining floats of a source buffer, leaving the source as it was.
+     * Doubles the buffer first if they don't fit.
+     */
+    private static FloatBuffer append(FloatBuffer buffer, FloatBuffer source) {
+        if (buffer.remaining() < source.remaining()) {
+            FloatBuffer grown = BufferUtils.createFloatBuffer(Math.max(buffer.capacity() * 2, buffer.position() + source.remaining()));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+        int position = source.position();
+        buffer.put(source);
+        source.position(position);
+        return buffer;
+    }
+}
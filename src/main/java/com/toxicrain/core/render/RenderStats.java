@@ -0,0 +1,140 @@
+package com.toxicrain.core.render;
+
+import com.toxicrain.core.Logger;
+import lombok.Getter;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Counts the work a {@link BatchRenderer} does each frame: draw calls, texture binds, quads,
+ * bytes of vertex data uploaded and batches that had to be flushed early because they were full.
+ *
+ * <p>The getters return the counts of the last finished frame. Each frame can also be
+ * written as a line of a CSV file, to compare batching changes over a play session.
+ * The CSV file can be started and stopped from any thread, like the GUI on the main thread
+ * while frames end on the simulation thread, so every use of it holds a lock.</p>
+ *
+ * @author strubium
+ */
+public class RenderStats {
+    private static final String CSV_HEADER = "frame,drawCalls,textureBinds,quads,uploadedBytes,forcedFlushes";
+
+    private int currentDrawCalls;
+    private int currentTextureBinds;
+    private int currentQuads;
+    private long currentUploadedBytes;
+    private int currentForcedFlushes;
+
+    @Getter
+    private long frame;
+    @Getter
+    private int drawCalls;
+    @Getter
+    private int textureBinds;
+    @Getter
+    private int quads;
+    @Getter
+    private long uploadedBytes;
+    @Getter
+    private int forcedFlushes;
+
+    /** Held for every use of {@link #csv} */
+    private final Object csvLock = new Object();
+    private BufferedWriter csv;
+
+    void addDrawCall(long bytes) {
+        currentDrawCalls++;
+        currentUploadedBytes += bytes;
+    }
+
+    void addTextureBind() {
+        currentTextureBinds++;
+    }
+
+    void addQuad() {
+        currentQuads++;
+    }
+
+    void addForcedFlush() {
+        currentForcedFlushes++;
+    }
+
+    /**
+     * Finishes the frame, making its counts the ones returned by the getters and starting the next frame at zero
+     */
+    public void endFrame() {
+        frame++;
+        drawCalls = currentDrawCalls;
+        textureBinds = currentTextureBinds;
+        quads = currentQuads;
+        uploadedBytes = currentUploadedBytes;
+        forcedFlushes = currentForcedFlushes;
+
+        currentDrawCalls = 0;
+        currentTextureBinds = 0;
+        currentQuads = 0;
+        currentUploadedBytes = 0;
+        currentForcedFlushes = 0;
+
+        synchronized (csvLock) {
+            if (csv != null) {
+                try {
+                    csv.write(frame + "," + drawCalls + "," + textureBinds + "," + quads + "," + uploadedBytes + "," + forcedFlushes);
+                    csv.newLine();
+                } catch (IOException e) {
+                    Logger.printERROR("Error writing render stats: " + e.getMessage());
+                    stopCsv();
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts writing the counts of every frame to a CSV file, replacing the file if it exists
+     *
+     * @param path the path of the CSV file
+     * @return true if the file was opened
+     */
+    public boolean startCsv(String path) {
+        synchronized (csvLock) {
+            stopCsv();
+            try {
+                csv = new BufferedWriter(new FileWriter(path));
+                csv.write(CSV_HEADER);
+                csv.newLine();
+                Logger.printLOG("Recording render stats to " + path);
+                return true;
+            } catch (IOException e) {
+                Logger.printERROR("Error opening render stats file: " + e.getMessage());
+                csv = null;
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Stops writing to the CSV file, if one is open
+     */
+    public void stopCsv() {
+        synchronized (csvLock) {
+            if (csv == null) return;
+            try {
+                csv.close();
+            } catch (IOException e) {
+                Logger.printERROR("Error closing render stats file: " + e.getMessage());
+            }
+            csv = null;
+        }
+    }
+
+    /**
+     * Checks if the counts are being written to a CSV file
+     */
+    public boolean isRecordingCsv() {
+        synchronized (csvLock) {
+            return csv != null;
+        }
+    }
+}
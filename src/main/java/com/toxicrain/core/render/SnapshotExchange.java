@@ -0,0 +1,118 @@
+package com.toxicrain.core.render;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands finished {@link RenderSnapshot}s from the simulation thread to the render thread.
+ *
+ * <p>There are three snapshots: the one the simulation thread is filling, the newest finished one,
+ * and the one the render thread is drawing. The simulation thread can build the next frame while
+ * the render thread draws the last one, but it waits instead of getting more than one frame ahead,
+ * so no frame is built only to be thrown away. The lock is only held to swap the snapshots around,
+ * never while one is filled or drawn.</p>
+ *
+ * @author strubium
+ */
+public class SnapshotExchange {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private final Condition taken = lock.newCondition();
+
+    /** Only used by the simulation thread */
+    private RenderSnapshot back;
+    /** The newest finished snapshot the render thread hasn't taken yet, or null */
+    private RenderSnapshot ready;
+    /** The snapshot the simulation thread fills next, or null while the render thread hasn't taken the ready one */
+    private RenderSnapshot spare;
+    /** Only used by the render thread */
+    private RenderSnapshot front;
+    private boolean closed;
+
+    /**
+     * Creates the exchange and its three snapshots
+     *
+     * @param quads how many quads each snapshot makes room for up front
+     */
+    public SnapshotExchange(int quads) {
+        back = new RenderSnapshot(quads);
+        spare = new RenderSnapshot(quads);
+        front = new RenderSnapshot(quads);
+    }
+
+    /**
+     * Gets the empty snapshot to build the next frame in. Only called by the simulation thread.
+     */
+    public RenderSnapshot getBack() {
+        back.clear();
+        return back;
+    }
+
+    /**
+     * Hands the snapshot from {@link #getBack()} to the render thread. If the render thread hasn't
+     * taken the last one yet, waits for it. Only called by the simulation thread.
+     *
+     * @return false if the exchange was closed and the simulation should stop
+     */
+    public boolean publish() {
+        lock.lock();
+        try {
+            while (spare == null && !closed) {
+                taken.awaitUninterruptibly();
+            }
+            if (closed) return false;
+            ready = back;
+            back = spare;
+            spare = null;
+            published.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the newest finished snapshot, waiting a little for one if there is no new one yet.
+     * The snapshot belongs to the render thread until the next call. Only called by the render thread.
+     *
+     * @param timeoutNanos the longest to wait for a new snapshot
+     * @return the new snapshot, or the last one again if none was finished in time
+     */
+    public RenderSnapshot takeLatest(long timeoutNanos) {
+        lock.lock();
+        try {
+            long remaining = timeoutNanos;
+            while (ready == null && !closed && remaining > 0) {
+                try {
+                    remaining = published.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (ready != null) {
+                spare = front;
+                front = ready;
+                ready = null;
+                taken.signal();
+            }
+            return front;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the exchange, so a simulation thread waiting in {@link #publish()} returns
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            taken.signalAll();
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.toxicrain.core.render;
+
+import com.toxicrain.artifacts.TileGrid;
+import com.toxicrain.core.json.MapInfoParser;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Finds the map tiles the camera can see, so only those are added to the batch.
+ * Only the cells under the view are looked at, so the cost follows the size of
+ * the view and not the size of the map.
+ *
+ * @author strubium
+ */
+public class ViewCuller {
+    /** Extra room around the view, so tiles and wide textures at the edge are never cut off */
+    private static final float MARGIN = 2.0f;
+
+    private int[] visible = new int[1024];
+    private int[] layers = new int[1024];
+    /** How many tiles were found by the last {@link #cull} */
+    @Getter
+    private int count;
+
+    /**
+     * Finds the tiles in view of a camera looking straight down at the map
+     *
+     * @param cameraX the x position of the camera
+     * @param cameraY the y position of the camera
+     * @param cameraZ the distance of the camera from the map
+     * @param fov the vertical field of view in degrees
+     * @param aspectRatio the width of the view divided by its height
+     */
+    public void cull(float cameraX, float cameraY, float cameraZ, float fov, float aspectRatio) {
+        count = 0;
+        // One snapshot for the whole cull, so a map load can't mix two grids
+        TileGrid.Snapshot grid = TileGrid.getSnapshot();
+        if (grid.getWidth() <= 0 || grid.getHeight() <= 0) return;
+
+        float halfHeight = cameraZ * (float) Math.tan(Math.toRadians(fov) / 2.0) + MARGIN;
+        float halfWidth = (halfHeight - MARGIN) * aspectRatio + MARGIN;
+
+        // World to cell, the same as TileGrid
+        int minCol = Math.max(0, (int) Math.floor((cameraX - halfWidth + 1) * 0.5f));
+        int maxCol = Math.min(grid.getWidth() - 1, (int) Math.floor((cameraX + halfWidth + 1) * 0.5f));
+        int minRow = Math.max(0, (int) Math.floor((1 - (cameraY + halfHeight)) * 0.5f));
+        int maxRow = Math.min(grid.getHeight() - 1, (int) Math.floor((1 - (cameraY - halfHeight)) * 0.5f));
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int start = grid.getCellTilesStart(col, row);
+                int end = grid.getCellTilesEnd(col, row);
+                // Backwards, so stacked tiles are drawn in the same order as before culling
+                for (int i = end - 1; i >= start; i--) {
+                    if (count == visible.length) {
+                        visible = Arrays.copyOf(visible, count * 2);
+                        layers = Arrays.copyOf(layers, count * 2);
+                    }
+                    layers[count] = end - 1 - i;
+                    visible[count++] = grid.getCellTile(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the tiles found by the last {@link #cull}, as indices into the {@link MapInfoParser} lists.
+     * Only the first {@link #getCount()} are valid.
+     */
+    public int[] getVisible() {
+        return visible;
+    }
+
+    /**
+     * Gets where each tile found by the last {@link #cull} is in the stack of tiles in its cell,
+     * 0 for the one drawn first. Matches {@link #getVisible()}.
+     */
+    public int[] getLayers() {
+        return layers;
+    }
+}
@@ -2,20 +2,33 @@ package com.toxicrain.factories;
 
 import com.toxicrain.artifacts.NPC;
 import com.toxicrain.artifacts.Player;
-import com.toxicrain.artifacts.Projectile;
+import com.toxicrain.artifacts.ProjectilePool;
 import com.toxicrain.artifacts.Weapon;
+import com.toxicrain.artifacts.behavior.BehaviorSequence;
+import com.toxicrain.artifacts.behavior.FollowPlayerSeeingBehavior;
+import com.toxicrain.artifacts.behavior.LookAtPlayerSeeingBehavior;
+import com.toxicrain.artifacts.pathfinding.PathfindingService;
 import com.toxicrain.core.GameEngine;
 import com.toxicrain.core.LangHelper;
+import com.toxicrain.core.ecs.BehaviorScheduler;
+import com.toxicrain.core.ecs.EntityStore;
+import com.toxicrain.core.ecs.MovementSystem;
+import com.toxicrain.core.ecs.SpriteRenderSystem;
 import com.toxicrain.core.Logger;
 import com.toxicrain.core.lua.LuaManager;
-import com.toxicrain.core.json.MapInfoParser;
+import com.toxicrain.core.jobs.JobSystem;
+import com.toxicrain.core.json.GameInfoParser;
 import com.toxicrain.core.lua.LuaEngine;
+import com.toxicrain.core.lua.LuaScheduler;
+import com.toxicrain.core.render.RenderStats;
 import com.toxicrain.gui.ImguiHandler;
+import com.toxicrain.physics.CollisionSystem;
 import com.toxicrain.gui.GuiLuaWrapper;
 import com.toxicrain.sound.SoundInfo;
 import com.toxicrain.sound.SoundSystem;
 import com.toxicrain.texture.TextureSystem;
 import com.toxicrain.util.MouseUtils;
+import org.lwjgl.system.MemoryUtil;
 
 import java.util.Locale;
 
@@ -27,8 +40,14 @@ public class GameFactory {
     public static SoundSystem soundSystem;
 
     public static Player player;
-    public static Projectile projectile;
-    public static NPC character;
+    public static EntityStore entityStore;
+    public static BehaviorScheduler behaviorScheduler;
+    public static MovementSystem movementSystem;
+    public static SpriteRenderSystem spriteRenderSystem;
+    public static ProjectilePool projectilePool;
+    public static PathfindingService pathfindingService;
+    public static CollisionSystem collisionSystem;
+    public static RenderStats renderStats;
     public static MouseUtils mouseUtils;
     public static Weapon pistol;
     public static Weapon rifle;
@@ -37,24 +56,56 @@ public class GameFactory {
     public static LuaEngine luaEngine;
     public static GuiLuaWrapper guiLuaWrapper;
     public static LuaManager functionManager;
+    public static LuaScheduler luaScheduler;
     public static LangHelper langHelper;
+    public static JobSystem jobSystem;
 
 
 
     public static void load(){
-        player = new Player(5, 5, 5, TextureSystem.getTexture("playerTexture"), false);
         imguiApp = new ImguiHandler(windowManager.getWindow());
         imguiApp.initialize();
         soundSystem = new SoundSystem();
-
-        projectile = new Projectile(MapInfoParser.playerx,MapInfoParser.playery,0.001f,0, TextureSystem.getTexture("playerTexture"));
-        character = new NPC(12,-4,1);
         mouseUtils = new MouseUtils(windowManager.getWindow());
+        loadWorld();
+    }
+
+    /**
+     * Loads everything but the window, GUI and sound, for headless runs
+     */
+    public static void loadHeadless(){
+        mouseUtils = new MouseUtils(MemoryUtil.NULL);
+        loadWorld();
+    }
+
+    private static void loadWorld(){
+        player = new Player(5, 5, 5, TextureSystem.getTexture("playerTexture"), false);
+        entityStore = new EntityStore(1024);
+        behaviorScheduler = new BehaviorScheduler();
+        movementSystem = new MovementSystem();
+        spriteRenderSystem = new SpriteRenderSystem();
+        collisionSystem = new CollisionSystem();
+        pathfindingService = new PathfindingService();
+        pathfindingService.start();
+        projectilePool = new ProjectilePool(GameInfoParser.maxProjectiles, TextureSystem.getTexture("playerTexture"));
+        new NPC(entityStore, 12,-4,1, new BehaviorSequence(new FollowPlayerSeeingBehavior(00.1f), new LookAtPlayerSeeingBehavior()));
+
+        pistol = new Weapon("Pistol", 3, 20,1,1, 4);
+        rifle = new Weapon("Rifle", 3, 20,1,1, 10);
+        shotgun = new Weapon("Shotgun", 30, 20,4,5, 1.2f);
 
-        pistol = new Weapon("Pistol", 3, 20,1,1);
-        rifle = new Weapon("Rifle", 3, 20,1,1);
-        shotgun = new Weapon("Shotgun", 30, 20,4,5);
+    }
 
+    /**
+     * Starts the job system, on the thread that owns the GL context
+     *
+     * @param reservedThreads how many threads the engine keeps busy itself, so the workers get the other cores
+     */
+    public static void loadJobs(int reservedThreads){
+        int workers = GameInfoParser.jobThreads > 0 ? GameInfoParser.jobThreads : JobSystem.getDefaultWorkerCount(reservedThreads);
+        jobSystem = new JobSystem(workers);
+        jobSystem.setMainThread(Thread.currentThread());
+        Logger.info("Started the job system with {} workers", workers);
     }
 
     public static void loadShaders(){
@@ -64,6 +115,7 @@ public class GameFactory {
     public static void loadlua(){
         luaEngine = new LuaEngine();
         guiLuaWrapper = new GuiLuaWrapper();
+        luaScheduler = new LuaScheduler(luaEngine.getGlobals());
         functionManager = new LuaManager(luaEngine.getGlobals());
 
     }
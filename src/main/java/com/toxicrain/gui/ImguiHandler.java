@@ -1,5 +1,8 @@
 package com.toxicrain.gui;
 
+import com.toxicrain.core.FrameProfiler;
+import com.toxicrain.core.MemoryTelemetry;
+import com.toxicrain.core.render.RenderStats;
 import com.toxicrain.core.json.SettingsInfoParser;
 import com.toxicrain.factories.GameFactory;
 import com.toxicrain.util.FileUtils;
@@ -43,6 +46,8 @@ public class ImguiHandler {
     private String selectedFile = null;
     private final ImString fileContent = new ImString(1024 * 18); // 18KB initial buffer size
     private Clip audioClip;
+    private float[] frameTimes = new float[0];
+    private float[] allocatedKilobytes = new float[0];
 
     /**
      * Constructor for ImguiHandler.
@@ -139,6 +144,90 @@ public class ImguiHandler {
         ImGui.end();
     }
 
+    /**
+     * Draws a graph of recent frame times and a table of how long each phase takes,
+     * then how much each frame allocated and how often the GC ran.
+     *
+     * @param title the title of the window
+     * @param profiler the profiler to show
+     * @param memory the memory telemetry to show, or null to leave it out
+     */
+    public void drawProfilerUI(String title, FrameProfiler profiler, MemoryTelemetry memory) {
+        ImGui.begin(title);
+
+        if (frameTimes.length < profiler.getCapacity()) {
+            frameTimes = new float[profiler.getCapacity()];
+        }
+        int count = profiler.getTimesMillis(FrameProfiler.FRAME, frameTimes);
+        float p99 = profiler.getPercentileMillis(FrameProfiler.FRAME, 99);
+        ImGui.plotLines("##frameTimes", frameTimes, count, 0,
+                String.format("frame %.2f ms", count > 0 ? frameTimes[count - 1] : 0f), 0, Math.max(p99 * 1.5f, 16.7f), 0, 80);
+
+        if (ImGui.beginTable("phases", 4)) {
+            ImGui.tableSetupColumn("Phase");
+            ImGui.tableSetupColumn("p50 ms");
+            ImGui.tableSetupColumn("p95 ms");
+            ImGui.tableSetupColumn("p99 ms");
+            ImGui.tableHeadersRow();
+            for (int phase = 0; phase < FrameProfiler.getPhaseCount(); phase++) {
+                ImGui.tableNextRow();
+                ImGui.tableNextColumn();
+                ImGui.text(FrameProfiler.getPhaseName(phase));
+                ImGui.tableNextColumn();
+                ImGui.text(String.format("%.3f", profiler.getPercentileMillis(phase, 50)));
+                ImGui.tableNextColumn();
+                ImGui.text(String.format("%.3f", profiler.getPercentileMillis(phase, 95)));
+                ImGui.tableNextColumn();
+                ImGui.text(String.format("%.3f", profiler.getPercentileMillis(phase, 99)));
+            }
+            ImGui.endTable();
+        }
+
+        if (memory != null && memory.getFrameCount() > 0) {
+            ImGui.separator();
+            if (allocatedKilobytes.length < memory.getCapacity()) {
+                allocatedKilobytes = new float[memory.getCapacity()];
+            }
+            int frames = memory.getAllocatedKilobytes(allocatedKilobytes);
+            ImGui.plotHistogram("##allocated", allocatedKilobytes, frames, 0,
+                    String.format("allocated %.1f KB", allocatedKilobytes[frames - 1]), 0, Float.MAX_VALUE, 0, 60);
+            ImGui.text(String.format("Allocation rate: %.2f MB/s (%.1f KB/frame)",
+                    memory.getAllocationRateMegabytes(), memory.getAverageAllocatedBytes() / 1024.0));
+            ImGui.text(String.format("GC: %d of %d frames, %d ms", memory.getGcFrameCount(), frames, memory.getGcMillis()));
+            ImGui.text(String.format("Frame avg with GC %.2f ms, without %.2f ms",
+                    memory.getAverageFrameMillis(true), memory.getAverageFrameMillis(false)));
+            ImGui.text(String.format("Slowest 1%% of frames with a GC: %.0f%%", memory.getSlowFramesWithGc(99) * 100));
+            ImGui.text(String.format("Direct buffers: %d, %.1f KB",
+                    memory.getDirectBufferCount(), memory.getDirectBytes(frames - 1) / 1024.0));
+        }
+
+        ImGui.end();
+    }
+
+    /**
+     * Draws what the batch renderer did last frame, with a button to record it to a CSV file.
+     *
+     * @param stats the stats to show
+     */
+    public void drawRenderStatsUI(RenderStats stats) {
+        ImGui.begin("Render Stats");
+        ImGui.text("Draw calls: " + stats.getDrawCalls());
+        ImGui.text("Texture binds: " + stats.getTextureBinds());
+        ImGui.text("Quads: " + stats.getQuads());
+        ImGui.text(String.format("Uploaded: %.1f KB", stats.getUploadedBytes() / 1024.0));
+        ImGui.text("Forced flushes: " + stats.getForcedFlushes());
+
+        if (stats.isRecordingCsv()) {
+            if (ImGui.button("Stop recording")) {
+                stats.stopCsv();
+            }
+        } else if (ImGui.button("Record to render_stats.csv")) {
+            stats.startCsv(FileUtils.getCurrentWorkingDirectory("render_stats.csv"));
+        }
+
+        ImGui.end();
+    }
+
     /**
      * Draws the file editor UI using ImGui.
      */
@@ -0,0 +1,164 @@
+package com.toxicrain.physics;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * A sweep-and-prune broadphase that finds which bodies might be touching.
+ *
+ * <p>Bodies are added every tick as bounds. {@link #findPairs()} sorts them by their left edge
+ * with a radix sort, then walks the sorted list and only compares bodies whose x ranges overlap,
+ * so the work grows with the number of bodies plus the number of close pairs instead of with
+ * every body against every other. Every array is kept between ticks and only grows, so a tick
+ * that fits in the last tick's arrays allocates nothing.</p>
+ *
+ * @author strubium
+ */
+public class Broadphase {
+    private float[] minX = new float[64];
+    private float[] maxX = new float[64];
+    private float[] minY = new float[64];
+    private float[] maxY = new float[64];
+    private int[] layer = new int[64];
+    private int[] layerMask = new int[64];
+    @Getter
+    private int bodyCount;
+
+    // Radix sort buffers
+    private int[] keys = new int[64];
+    private int[] keysSwap = new int[64];
+    private int[] order = new int[64];
+    private int[] orderSwap = new int[64];
+    private final int[] radixCount = new int[256];
+
+    private int[] pairA = new int[256];
+    private int[] pairB = new int[256];
+    @Getter
+    private int pairCount;
+
+    /**
+     * Removes every body, ready for the next tick
+     */
+    public void clear() {
+        bodyCount = 0;
+        pairCount = 0;
+    }
+
+    /**
+     * Adds a body
+     *
+     * @param minX the left edge of the body
+     * @param minY the bottom edge of the body
+     * @param maxX the right edge of the body
+     * @param maxY the top edge of the body
+     * @param layer the layer bit of the body, like 1 for players
+     * @param layerMask the layer bits this body can touch
+     * @return the index of the body
+     */
+    public int add(float minX, float minY, float maxX, float maxY, int layer, int layerMask) {
+        if (bodyCount == this.minX.length) {
+            grow(bodyCount * 2);
+        }
+        int body = bodyCount++;
+        this.minX[body] = minX;
+        this.maxX[body] = maxX;
+        this.minY[body] = minY;
+        this.maxY[body] = maxY;
+        this.layer[body] = layer;
+        this.layerMask[body] = layerMask;
+        return body;
+    }
+
+    /**
+     * Finds every pair of bodies whose bounds overlap and whose layers can touch
+     *
+     * @return the number of pairs found
+     */
+    public int findPairs() {
+        pairCount = 0;
+        sortByMinX();
+
+        for (int i = 0; i < bodyCount; i++) {
+            int a = order[i];
+            float right = maxX[a];
+            for (int j = i + 1; j < bodyCount; j++) {
+                int b = order[j];
+                if (minX[b] > right) break; // Everything after this starts further right
+                if (minY[a] > maxY[b] || minY[b] > maxY[a]) continue;
+                if ((layerMask[a] & layer[b]) == 0 && (layerMask[b] & layer[a]) == 0) continue;
+                addPair(a, b);
+            }
+        }
+        return pairCount;
+    }
+
+    public int getPairA(int pair) {
+        return pairA[pair];
+    }
+
+    public int getPairB(int pair) {
+        return pairB[pair];
+    }
+
+    private void addPair(int a, int b) {
+        if (pairCount == pairA.length) {
+            pairA = Arrays.copyOf(pairA, pairCount * 2);
+            pairB = Arrays.copyOf(pairB, pairCount * 2);
+        }
+        pairA[pairCount] = a;
+        pairB[pairCount] = b;
+        pairCount++;
+    }
+
+    /**
+     * Sorts the bodies by minX with an LSD radix sort, 8 bits a pass
+     */
+    private void sortByMinX() {
+        int n = bodyCount;
+        for (int i = 0; i < n; i++) {
+            // Flip the float bits so the ints sort in the same order as the floats
+            int bits = Float.floatToIntBits(minX[i]);
+            keys[i] = bits ^ ((bits >> 31) | 0x80000000);
+            order[i] = i;
+        }
+
+        int[] count = radixCount;
+        for (int shift = 0; shift < 32; shift += 8) {
+            Arrays.fill(count, 0);
+            for (int i = 0; i < n; i++) {
+                count[(keys[i] >>> shift) & 0xFF]++;
+            }
+            int total = 0;
+            for (int bucket = 0; bucket < 256; bucket++) {
+                int bucketCount = count[bucket];
+                count[bucket] = total;
+                total += bucketCount;
+            }
+            for (int i = 0; i < n; i++) {
+                int destination = count[(keys[i] >>> shift) & 0xFF]++;
+                keysSwap[destination] = keys[i];
+                orderSwap[destination] = order[i];
+            }
+            int[] swap = keys;
+            keys = keysSwap;
+            keysSwap = swap;
+            swap = order;
+            order = orderSwap;
+            orderSwap = swap;
+        }
+    }
+
+    private void grow(int capacity) {
+        minX = Arrays.copyOf(minX, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        layer = Arrays.copyOf(layer, capacity);
+        layerMask = Arrays.copyOf(layerMask, capacity);
+        keys = new int[capacity];
+        keysSwap = new int[capacity];
+        order = new int[capacity];
+        orderSwap = new int[capacity];
+    }
+}
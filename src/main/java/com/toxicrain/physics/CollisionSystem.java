@@ -0,0 +1,163 @@
+package com.toxicrain.physics;
+
+import com.toxicrain.artifacts.Player;
+import com.toxicrain.artifacts.ProjectilePool;
+import com.toxicrain.core.ecs.EntityStore;
+import com.toxicrain.core.interfaces.ISystem;
+import com.toxicrain.core.json.GameInfoParser;
+import com.toxicrain.factories.GameFactory;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Finds collisions between the player, NPCs and projectiles.
+ *
+ * <p>Every tick each body is added to the {@link Broadphase} with its bounds, the candidate pairs
+ * it finds are checked exactly by the {@link Narrowphase}, and the touching pairs are kept as
+ * contacts. Projectiles that hit something other than whoever fired them are spent.</p>
+ *
+ * @author strubium
+ */
+public class CollisionSystem implements ISystem {
+    public static final int LAYER_PLAYER = 1;
+    public static final int LAYER_NPC = 1 << 1;
+    public static final int LAYER_PROJECTILE = 1 << 2;
+
+    public static final int SHAPE_CIRCLE = 0;
+    public static final int SHAPE_BOX = 1;
+
+    private static final float NPC_RADIUS = 0.5f;
+    private static final float PROJECTILE_RADIUS = 0.1f;
+
+    private final Broadphase broadphase = new Broadphase();
+
+    // Bodies, indexed the same as in the broadphase
+    private int[] layer = new int[64];
+    private int[] reference = new int[64]; // Entity slot or projectile index
+    private int[] shape = new int[64];
+    private float[] centerX = new float[64];
+    private float[] centerY = new float[64];
+    private float[] halfWidth = new float[64]; // The radius for circles
+    private float[] halfHeight = new float[64];
+
+    private int[] contactA = new int[64];
+    private int[] contactB = new int[64];
+    @Getter
+    private int contactCount;
+
+    @Override
+    public void update(EntityStore store, float deltaTime) {
+        broadphase.clear();
+
+        Player player = GameFactory.player;
+        addBody(LAYER_PLAYER, LAYER_NPC | LAYER_PROJECTILE, -1, SHAPE_CIRCLE,
+                player.getPosX(), player.getPosY(), GameInfoParser.playerSize, GameInfoParser.playerSize);
+
+        for (int slot = 0; slot < store.getCount(); slot++) {
+            if (store.has(slot, EntityStore.POSITION | EntityStore.AI)) {
+                float radius = NPC_RADIUS * store.scale[slot];
+                addBody(LAYER_NPC, LAYER_PLAYER | LAYER_NPC | LAYER_PROJECTILE, slot, SHAPE_CIRCLE,
+                        store.posX[slot], store.posY[slot], radius, radius);
+            }
+        }
+
+        ProjectilePool projectiles = GameFactory.projectilePool;
+        for (int i = 0; i < projectiles.getCount(); i++) {
+            // Projectiles never test against each other
+            addBody(LAYER_PROJECTILE, LAYER_PLAYER | LAYER_NPC, i, SHAPE_CIRCLE,
+                    projectiles.getX(i), projectiles.getY(i), PROJECTILE_RADIUS, PROJECTILE_RADIUS);
+        }
+
+        contactCount = 0;
+        int pairs = broadphase.findPairs();
+        for (int pair = 0; pair < pairs; pair++) {
+            int a = broadphase.getPairA(pair);
+            int b = broadphase.getPairB(pair);
+            if (overlaps(a, b)) {
+                addContact(a, b);
+            }
+        }
+
+        for (int contact = 0; contact < contactCount; contact++) {
+            handleProjectileHit(store, projectiles, contactA[contact], contactB[contact]);
+            handleProjectileHit(store, projectiles, contactB[contact], contactA[contact]);
+        }
+    }
+
+    public int getContactA(int contact) {
+        return contactA[contact];
+    }
+
+    public int getContactB(int contact) {
+        return contactB[contact];
+    }
+
+    public int getLayer(int body) {
+        return layer[body];
+    }
+
+    /**
+     * Gets what a body stands for: the entity slot of an NPC, the index of a projectile, or -1 for the player
+     */
+    public int getReference(int body) {
+        return reference[body];
+    }
+
+    private void handleProjectileHit(EntityStore store, ProjectilePool projectiles, int projectile, int target) {
+        if (layer[projectile] != LAYER_PROJECTILE) return;
+
+        int owner = projectiles.getOwner(reference[projectile]);
+        int targetOwner = layer[target] == LAYER_PLAYER ? ProjectilePool.PLAYER_OWNER : store.getId(reference[target]);
+        if (owner != targetOwner) {
+            projectiles.kill(reference[projectile]);
+        }
+    }
+
+    private boolean overlaps(int a, int b) {
+        if (shape[a] == SHAPE_CIRCLE && shape[b] == SHAPE_CIRCLE) {
+            return Narrowphase.circleCircle(centerX[a], centerY[a], halfWidth[a], centerX[b], centerY[b], halfWidth[b]);
+        }
+        if (shape[a] == SHAPE_BOX && shape[b] == SHAPE_BOX) {
+            return Narrowphase.boxBox(centerX[a], centerY[a], halfWidth[a], halfHeight[a],
+                    centerX[b], centerY[b], halfWidth[b], halfHeight[b]);
+        }
+        int circle = shape[a] == SHAPE_CIRCLE ? a : b;
+        int box = circle == a ? b : a;
+        return Narrowphase.circleBox(centerX[circle], centerY[circle], halfWidth[circle],
+                centerX[box], centerY[box], halfWidth[box], halfHeight[box]);
+    }
+
+    private void addBody(int bodyLayer, int layerMask, int bodyReference, int bodyShape,
+                         float x, float y, float bodyHalfWidth, float bodyHalfHeight) {
+        int body = broadphase.add(x - bodyHalfWidth, y - bodyHalfHeight, x + bodyHalfWidth, y + bodyHalfHeight,
+                bodyLayer, layerMask);
+        if (body == layer.length) {
+            int capacity = body * 2;
+            layer = Arrays.copyOf(layer, capacity);
+            reference = Arrays.copyOf(reference, capacity);
+            shape = Arrays.copyOf(shape, capacity);
+            centerX = Arrays.copyOf(centerX, capacity);
+            centerY = Arrays.copyOf(centerY, capacity);
+            halfWidth = Arrays.copyOf(halfWidth, capacity);
+            halfHeight = Arrays.copyOf(halfHeight, capacity);
+        }
+        layer[body] = bodyLayer;
+        reference[body] = bodyReference;
+        shape[body] = bodyShape;
+        centerX[body] = x;
+        centerY[body] = y;
+        halfWidth[body] = bodyHalfWidth;
+        halfHeight[body] = bodyHalfHeight;
+    }
+
+    private void addContact(int a, int b) {
+        if (contactCount == contactA.length) {
+            contactA = Arrays.copyOf(contactA, contactCount * 2);
+            contactB = Arrays.copyOf(contactB, contactCount * 2);
+        }
+        contactA[contactCount] = a;
+        contactB[contactCount] = b;
+        contactCount++;
+    }
+}
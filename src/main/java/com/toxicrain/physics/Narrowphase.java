@@ -0,0 +1,31 @@
+package com.toxicrain.physics;
+
+/**
+ * Exact overlap tests between circles and axis-aligned boxes,
+ * run on the pairs found by the {@link Broadphase}
+ *
+ * @author strubium
+ */
+public class Narrowphase {
+
+    public static boolean circleCircle(float ax, float ay, float aRadius, float bx, float by, float bRadius) {
+        float deltaX = bx - ax;
+        float deltaY = by - ay;
+        float radius = aRadius + bRadius;
+        return deltaX * deltaX + deltaY * deltaY <= radius * radius;
+    }
+
+    public static boolean boxBox(float ax, float ay, float aHalfWidth, float aHalfHeight,
+                                 float bx, float by, float bHalfWidth, float bHalfHeight) {
+        return Math.abs(bx - ax) <= aHalfWidth + bHalfWidth && Math.abs(by - ay) <= aHalfHeight + bHalfHeight;
+    }
+
+    public static boolean circleBox(float cx, float cy, float radius, float bx, float by, float halfWidth, float halfHeight) {
+        // The closest point on the box to the circle
+        float closestX = Math.max(bx - halfWidth, Math.min(cx, bx + halfWidth));
+        float closestY = Math.max(by - halfHeight, Math.min(cy, by + halfHeight));
+        float deltaX = cx - closestX;
+        float deltaY = cy - closestY;
+        return deltaX * deltaX + deltaY * deltaY <= radius * radius;
+    }
+}
@@ -0,0 +1,135 @@
+package com.toxicrain.physics;
+
+import com.toxicrain.artifacts.TileGrid;
+
+/**
+ * Moves axis-aligned boxes through the {@link TileGrid} without letting them pass into solid tiles.
+ *
+ * <p>Each move sweeps the box along its motion and finds the time of impact with the first
+ * solid tile in the way. The box stops just short of it, the part of the motion going into the
+ * wall is dropped and the rest is swept again, so the box slides along walls. Every tile the
+ * sweep passes over is checked, so fast movers can't tunnel through thin walls.</p>
+ *
+ * @author strubium
+ */
+public class SweptCollision {
+    /** Half the size of a tile */
+    private static final float TILE_HALF_SIZE = 1.0f;
+    /** How far from a wall a box is stopped, so it is never exactly touching */
+    private static final float SKIN = 0.001f;
+    /** How many times the motion is allowed to slide in one move */
+    private static final int MAX_SLIDES = 3;
+
+    /**
+     * Moves a box as far as it can go along a motion, sliding along any walls it hits
+     *
+     * @param x the x position of the center of the box
+     * @param y the y position of the center of the box
+     * @param halfWidth half the width of the box
+     * @param halfHeight half the height of the box
+     * @param deltaX the x motion
+     * @param deltaY the y motion
+     * @param out gets the new x position at [0] and y position at [1]
+     * @return true if the box hit a wall
+     */
+    public static boolean move(float x, float y, float halfWidth, float halfHeight, float deltaX, float deltaY, float[] out) {
+        boolean hit = false;
+        for (int slide = 0; slide < MAX_SLIDES && (deltaX != 0 || deltaY != 0); slide++) {
+            float earliest = 1;
+            float normalX = 0;
+            float normalY = 0;
+
+            // Every cell the box could touch during this motion
+            float sizeX = halfWidth + TILE_HALF_SIZE;
+            float sizeY = halfHeight + TILE_HALF_SIZE;
+            int minCol = toCol(Math.min(x, x + deltaX) - halfWidth);
+            int maxCol = toCol(Math.max(x, x + deltaX) + halfWidth);
+            int minRow = toRow(Math.max(y, y + deltaY) + halfHeight);
+            int maxRow = toRow(Math.min(y, y + deltaY) - halfHeight);
+
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int col = minCol; col <= maxCol; col++) {
+                    if (!TileGrid.isSolid(col, row)) continue;
+
+                    // Sweep the center point against the tile grown by the box size
+                    float tileX = col * 2;
+                    float tileY = row * -2;
+                    float entryX, exitX, entryY, exitY;
+                    if (deltaX > 0) {
+                        entryX = (tileX - sizeX - x) / deltaX;
+                        exitX = (tileX + sizeX - x) / deltaX;
+                    } else if (deltaX < 0) {
+                        entryX = (tileX + sizeX - x) / deltaX;
+                        exitX = (tileX - sizeX - x) / deltaX;
+                    } else if (Math.abs(x - tileX) < sizeX) {
+                        entryX = Float.NEGATIVE_INFINITY;
+                        exitX = Float.POSITIVE_INFINITY;
+                    } else {
+                        continue;
+                    }
+                    if (deltaY > 0) {
+                        entryY = (tileY - sizeY - y) / deltaY;
+                        exitY = (tileY + sizeY - y) / deltaY;
+                    } else if (deltaY < 0) {
+                        entryY = (tileY + sizeY - y) / deltaY;
+                        exitY = (tileY - sizeY - y) / deltaY;
+                    } else if (Math.abs(y - tileY) < sizeY) {
+                        entryY = Float.NEGATIVE_INFINITY;
+                        exitY = Float.POSITIVE_INFINITY;
+                    } else {
+                        continue;
+                    }
+
+                    float entry = Math.max(entryX, entryY);
+                    float exit = Math.min(exitX, exitY);
+                    // Already overlapping (entry < 0) is ignored, so a box stuck in a wall can walk out
+                    if (entry > exit || entry < 0 || entry >= earliest) continue;
+
+                    earliest = entry;
+                    if (entryX > entryY) {
+                        normalX = deltaX > 0 ? -1 : 1;
+                        normalY = 0;
+                    } else {
+                        normalX = 0;
+                        normalY = deltaY > 0 ? -1 : 1;
+                    }
+                }
+            }
+
+            if (normalX == 0 && normalY == 0) {
+                // Nothing in the way
+                x += deltaX;
+                y += deltaY;
+                break;
+            }
+
+            hit = true;
+            // Move up to the wall, keeping a small gap
+            float length = (float) Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+            float time = Math.max(0, earliest - SKIN / length);
+            x += deltaX * time;
+            y += deltaY * time;
+
+            // Slide: keep the rest of the motion that runs along the wall
+            float remaining = 1 - time;
+            if (normalX != 0) {
+                deltaX = 0;
+                deltaY *= remaining;
+            } else {
+                deltaY = 0;
+                deltaX *= remaining;
+            }
+        }
+        out[0] = x;
+        out[1] = y;
+        return hit;
+    }
+
+    private static int toCol(float x) {
+        return (int) Math.floor((x + TILE_HALF_SIZE) * 0.5f);
+    }
+
+    private static int toRow(float y) {
+        return (int) Math.floor((TILE_HALF_SIZE - y) * 0.5f);
+    }
+}
@@ -0,0 +1,226 @@
+package com.toxicrain.sound;
+
+import com.toxicrain.core.Logger;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.lwjgl.openal.AL10.*;
+
+/**
+ * The AudioMixer runs one background thread that changes the gain of OpenAL sources over time.
+ * Fades, crossfades and ducking are sent to it as ramp commands through a lock-free queue,
+ * and every active ramp is stepped in the same loop, so no sound ever needs its own thread.
+ *
+ * <p>Only one ramp can run on a source at a time, a new ramp on the same source replaces the old one.
+ * A ramp can be tied to the sound that was playing when it was sent, by a voice handle or a generation
+ * counter. Once another sound starts on the source the ramp is dropped, and a ramp that stops its source
+ * checks again under {@link VoicePool#startLock} right before stopping.</p>
+ *
+ * @author strubium
+ */
+public class AudioMixer implements Runnable {
+
+    /** How often the ramps are stepped, in milliseconds */
+    private static final long STEP_MILLIS = 10;
+
+    private final ConcurrentLinkedQueue<Ramp> commands = new ConcurrentLinkedQueue<>();
+    private final VoicePool voicePool;
+    private Thread thread;
+    private volatile boolean running;
+
+    // Active ramps, only touched by the mixer thread
+    private Ramp[] ramps = new Ramp[32];
+    private int rampCount;
+
+    public AudioMixer(VoicePool voicePool) {
+        this.voicePool = voicePool;
+    }
+
+    private static class Ramp {
+        final int source;
+        /** The voice handle the ramp is for, or -1 for a source outside the pool */
+        final int handle;
+        /** Counts the sounds started on a source outside the pool, or null if the ramp isn't tied to one sound */
+        final AtomicInteger sourceGeneration;
+        final int generation;
+        final float targetGain;
+        final float duration;
+        final boolean stopAtEnd;
+        final boolean cancel;
+        float startGain;
+        float elapsed;
+
+        Ramp(int source, int handle, AtomicInteger sourceGeneration, float targetGain, float duration, boolean stopAtEnd, boolean cancel) {
+            this.source = source;
+            this.handle = handle;
+            this.sourceGeneration = sourceGeneration;
+            this.generation = sourceGeneration != null ? sourceGeneration.get() : 0;
+            this.targetGain = targetGain;
+            this.duration = duration;
+            this.stopAtEnd = stopAtEnd;
+            this.cancel = cancel;
+        }
+    }
+
+    /**
+     * Starts the mixer thread
+     */
+    public void start() {
+        running = true;
+        thread = new Thread(this, "RainEngine Audio Mixer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the mixer thread and waits for it to finish
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    /**
+     * Changes the gain of a source over time
+     *
+     * @param source the OpenAL source
+     * @param targetGain the gain at the end of the ramp
+     * @param duration how long the ramp takes in seconds, 0 sets the gain on the next step
+     * @param stopAtEnd if the source should be stopped when the ramp ends
+     */
+    public void ramp(int source, float targetGain, float duration, boolean stopAtEnd) {
+        commands.add(new Ramp(source, -1, null, targetGain, duration, stopAtEnd, false));
+    }
+
+    /**
+     * Changes the gain of a source over time, for the sound playing on it now. The ramp is dropped
+     * if the generation changes before it ends, so it never fades or stops a sound started after it.
+     *
+     * @param source the OpenAL source
+     * @param generation counts the sounds started on the source, increased before each new sound starts
+     * @param targetGain the gain at the end of the ramp
+     * @param duration how long the ramp takes in seconds
+     * @param stopAtEnd if the source should be stopped when the ramp ends
+     */
+    public void ramp(int source, AtomicInteger generation, float targetGain, float duration, boolean stopAtEnd) {
+        commands.add(new Ramp(source, -1, generation, targetGain, duration, stopAtEnd, false));
+    }
+
+    /**
+     * Changes the gain of a pool voice over time. The ramp is dropped if the voice
+     * is reused for another sound before it ends, or already was.
+     *
+     * @param handle the voice handle from the {@link VoicePool}
+     * @param targetGain the gain at the end of the ramp
+     * @param duration how long the ramp takes in seconds
+     * @param stopAtEnd if the voice should be stopped when the ramp ends
+     */
+    public void rampVoice(int handle, float targetGain, float duration, boolean stopAtEnd) {
+        if (handle < 0 || !voicePool.isCurrentGeneration(handle)) return;
+        commands.add(new Ramp(voicePool.getSource(VoicePool.getVoice(handle)), handle, null, targetGain, duration, stopAtEnd, false));
+    }
+
+    /**
+     * Stops any ramp running on a source, leaving its gain where it is
+     *
+     * @param source the OpenAL source
+     */
+    public void cancel(int source) {
+        commands.add(new Ramp(source, -1, null, 0, 0, false, true));
+    }
+
+    @Override
+    public void run() {
+        long lastTime = System.nanoTime();
+        while (running) {
+            long now = System.nanoTime();
+            float deltaTime = (now - lastTime) / 1_000_000_000.0f;
+            lastTime = now;
+
+            try {
+                processCommands();
+                stepRamps(deltaTime);
+            } catch (Exception e) {
+                Logger.printERROR("Audio mixer error: " + e.getMessage());
+            }
+
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(STEP_MILLIS));
+        }
+    }
+
+    private void processCommands() {
+        Ramp command;
+        while ((command = commands.poll()) != null) {
+            int existing = findRamp(command.source);
+            if (existing != -1) {
+                removeRamp(existing);
+            }
+            if (command.cancel) continue;
+
+            command.startGain = alGetSourcef(command.source, AL_GAIN);
+            if (rampCount == ramps.length) {
+                Ramp[] newRamps = new Ramp[ramps.length * 2];
+                System.arraycopy(ramps, 0, newRamps, 0, rampCount);
+                ramps = newRamps;
+            }
+            ramps[rampCount++] = command;
+        }
+    }
+
+    private void stepRamps(float deltaTime) {
+        for (int i = rampCount - 1; i >= 0; i--) {
+            Ramp ramp = ramps[i];
+            if (isStale(ramp)) {
+                // The source is playing a different sound now
+                removeRamp(i);
+                continue;
+            }
+
+            ramp.elapsed += deltaTime;
+            float progress = ramp.duration <= 0 ? 1 : Math.min(1, ramp.elapsed / ramp.duration);
+            alSourcef(ramp.source, AL_GAIN, ramp.startGain + (ramp.targetGain - ramp.startGain) * progress);
+
+            if (progress >= 1) {
+                if (ramp.stopAtEnd) {
+                    // A sound may have started since the check above, so check again while no sound can start
+                    synchronized (voicePool.startLock) {
+                        if (!isStale(ramp)) {
+                            alSourceStop(ramp.source);
+                        }
+                    }
+                }
+                removeRamp(i);
+            }
+        }
+    }
+
+    private boolean isStale(Ramp ramp) {
+        if (ramp.handle != -1) {
+            return !voicePool.isCurrentGeneration(ramp.handle);
+        }
+        return ramp.sourceGeneration != null && ramp.sourceGeneration.get() != ramp.generation;
+    }
+
+    private int findRamp(int source) {
+        for (int i = 0; i < rampCount; i++) {
+            if (ramps[i].source == source) return i;
+        }
+        return -1;
+    }
+
+    private void removeRamp(int index) {
+        ramps[index] = ramps[--rampCount];
+        ramps[rampCount] = null;
+    }
+}
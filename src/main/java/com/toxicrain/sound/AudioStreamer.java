@@ -0,0 +1,82 @@
+package com.toxicrain.sound;
+
+import com.toxicrain.core.Logger;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The AudioStreamer runs one background thread that keeps every {@link StreamingSource} fed,
+ * so decoding music never happens on the game thread.
+ *
+ * @author strubium
+ */
+public class AudioStreamer implements Runnable {
+
+    /** How often the streams are checked, in milliseconds. Must be well under the length of one buffer */
+    private static final long UPDATE_MILLIS = 25;
+
+    private final CopyOnWriteArrayList<StreamingSource> streams = new CopyOnWriteArrayList<>();
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Starts the streamer thread
+     */
+    public void start() {
+        running = true;
+        thread = new Thread(this, "RainEngine Audio Streamer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops every stream and the streamer thread
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        for (StreamingSource stream : streams) {
+            stream.stop();
+        }
+        streams.clear();
+    }
+
+    /**
+     * Starts playing a stream and keeps it fed until it ends or is stopped
+     *
+     * @param stream the stream to play
+     */
+    public void add(StreamingSource stream) {
+        stream.play();
+        streams.add(stream);
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            for (StreamingSource stream : streams) {
+                try {
+                    if (!stream.update()) {
+                        stream.stop();
+                        streams.remove(stream);
+                    }
+                } catch (Exception e) {
+                    Logger.printERROR("Audio stream error: " + e.getMessage());
+                    stream.stop();
+                    streams.remove(stream);
+                }
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(UPDATE_MILLIS));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.toxicrain.sound;
+
+import com.toxicrain.core.interfaces.IStreamDecoder;
+import com.toxicrain.util.FileUtils;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.stb.STBVorbisInfo;
+import org.lwjgl.system.MemoryStack;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.stb.STBVorbis.*;
+
+/**
+ * Streams an ogg vorbis file with stb_vorbis. The compressed file is memory-mapped
+ * and decoded a chunk at a time into one reused buffer.
+ *
+ * @author strubium
+ */
+public class OggStreamDecoder implements IStreamDecoder {
+
+    private final ByteBuffer file; // Kept so the mapping lives as long as the decoder
+    private final long handle;
+    private final int channels;
+    private final int sampleRate;
+    private ByteBuffer pcm;
+    private ShortBuffer pcmShorts;
+
+    /**
+     * Maps an ogg file and opens it with stb_vorbis
+     *
+     * @param filePath the path to the ogg file
+     * @throws IOException if the file can't be read or is not a valid ogg vorbis file
+     */
+    public OggStreamDecoder(String filePath) throws IOException {
+        this.file = FileUtils.mapFile(filePath);
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer error = stack.mallocInt(1);
+            handle = stb_vorbis_open_memory(file, error, null);
+            if (handle == 0) {
+                throw new IOException("Failed to open ogg file: " + filePath + " (error " + error.get(0) + ")");
+            }
+
+            STBVorbisInfo info = STBVorbisInfo.malloc(stack);
+            stb_vorbis_get_info(handle, info);
+            channels = info.channels();
+            sampleRate = info.sample_rate();
+        }
+
+        if (channels != 1 && channels != 2) {
+            stb_vorbis_close(handle);
+            throw new IOException("Unsupported ogg format: " + channels + " channels");
+        }
+    }
+
+    @Override
+    public int getFormat() {
+        return channels == 1 ? AL_FORMAT_MONO16 : AL_FORMAT_STEREO16;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public ByteBuffer read(int maxBytes) {
+        if (pcm == null || pcm.capacity() < maxBytes) {
+            pcm = BufferUtils.createByteBuffer(maxBytes);
+            pcmShorts = pcm.asShortBuffer();
+        }
+        pcm.clear();
+        pcmShorts.clear().limit(maxBytes / 2);
+        int samples = stb_vorbis_get_samples_short_interleaved(handle, channels, pcmShorts);
+        pcm.limit(samples * channels * 2);
+        return pcm;
+    }
+
+    @Override
+    public void rewind() {
+        stb_vorbis_seek_start(handle);
+    }
+
+    @Override
+    public void close() {
+        stb_vorbis_close(handle);
+    }
+}
@@ -0,0 +1,81 @@
+package com.toxicrain.sound;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Converts 24 bit, 32 bit and float wav samples, which OpenAL has no format for, to 16 bit.
+ * The samples are moved in bulk through arrays so the conversion loops are plain array loops
+ * that the JIT can vectorize. The arrays are kept, so a converter used for every chunk of a
+ * stream doesn't allocate.
+ *
+ * @author strubium
+ */
+class SampleConverter {
+    /** How many samples are converted per bulk copy */
+    private static final int CONVERT_BLOCK = 4096;
+
+    private final int bytesPerSample;
+    private final boolean floatSamples;
+    private final float[] floats;
+    private final byte[] bytes;
+    private final short[] shorts = new short[CONVERT_BLOCK];
+
+    /**
+     * @param bytesPerSample how many bytes each sample of the input has, 3 or 4
+     * @param floatSamples if the input is 32 bit float instead of integer samples
+     */
+    SampleConverter(int bytesPerSample, boolean floatSamples) {
+        this.bytesPerSample = bytesPerSample;
+        this.floatSamples = floatSamples;
+        floats = floatSamples ? new float[CONVERT_BLOCK] : null;
+        bytes = floatSamples ? null : new byte[CONVERT_BLOCK * bytesPerSample];
+    }
+
+    /**
+     * Gets how many bytes the 16 bit samples take for the given input bytes
+     */
+    int getOutputBytes(int inputBytes) {
+        return inputBytes / bytesPerSample * 2;
+    }
+
+    /**
+     * Converts every whole sample left in the input, writing them to the output from its position
+     *
+     * @param in the input samples, its position is moved past what was read
+     * @param out must have room for {@link #getOutputBytes(int)} of the input's remaining bytes
+     */
+    void convert(ByteBuffer in, ByteBuffer out) {
+        ShortBuffer outShorts = out.order(ByteOrder.nativeOrder()).asShortBuffer();
+        int samples = in.remaining() / bytesPerSample;
+        if (floatSamples) {
+            FloatBuffer inFloats = in.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            for (int done = 0; done < samples; ) {
+                int count = Math.min(samples - done, CONVERT_BLOCK);
+                inFloats.get(floats, 0, count);
+                for (int i = 0; i < count; i++) {
+                    float sample = Math.max(-1.0f, Math.min(1.0f, floats[i]));
+                    shorts[i] = (short) (sample * 32767.0f);
+                }
+                outShorts.put(shorts, 0, count);
+                done += count;
+            }
+            in.position(in.position() + samples * 4);
+        } else {
+            // Keep the top two bytes of each sample. Little-endian, so the most significant byte is last
+            int high = bytesPerSample - 1;
+            for (int done = 0; done < samples; ) {
+                int count = Math.min(samples - done, CONVERT_BLOCK);
+                in.get(bytes, 0, count * bytesPerSample);
+                for (int i = 0, b = 0; i < count; i++, b += bytesPerSample) {
+                    shorts[i] = (short) ((bytes[b + high] << 8) | (bytes[b + high - 1] & 0xFF));
+                }
+                outShorts.put(shorts, 0, count);
+                done += count;
+            }
+        }
+        out.position(out.position() + samples * 2);
+    }
+}
@@ -0,0 +1,23 @@
+package com.toxicrain.sound;
+
+/**
+ * The SoundCategory enum groups sounds so each group can only use
+ * a limited number of voices from the {@link VoicePool}
+ *
+ * @author strubium
+ */
+public enum SoundCategory {
+    SFX(24, true),
+    MUSIC(2, false),
+    UI(6, false);
+
+    /** The default number of voices this category may use at once */
+    public final int defaultVoiceLimit;
+    /** If sounds in this category are placed in the world, or always play at the listener */
+    public final boolean positional;
+
+    SoundCategory(int defaultVoiceLimit, boolean positional) {
+        this.defaultVoiceLimit = defaultVoiceLimit;
+        this.positional = positional;
+    }
+}
@@ -1,6 +1,9 @@
 package com.toxicrain.sound;
 
 import com.toxicrain.core.Logger;
+import com.toxicrain.core.interfaces.IPositional;
+import com.toxicrain.core.interfaces.IStreamDecoder;
+import com.toxicrain.core.json.GameInfoParser;
 import com.toxicrain.util.FileUtils;
 import org.lwjgl.openal.AL;
 import org.lwjgl.openal.ALC;
@@ -14,8 +17,10 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.openal.AL11.AL_LINEAR_DISTANCE_CLAMPED;
 import static org.lwjgl.openal.ALC10.*;
 import static org.lwjgl.system.MemoryUtil.NULL;
 
@@ -23,8 +28,14 @@ public class SoundSystem {
     private long device;
     private long context;
     private int sourceId;
-    private float currentVolume = 1.0f;  // Default volume (full)
-    private boolean isFading = false;
+    /** Counts the sounds started on sourceId, so a fade only ever stops the sound it was started for */
+    private final AtomicInteger sourceGeneration = new AtomicInteger();
+    /** The volume of sourceId as last set, the mixer applies it on its next step */
+    private volatile float volume = 1.0f;
+    private VoicePool voicePool;
+    private AudioMixer mixer;
+    private AudioStreamer streamer;
+    private StreamingSource music;
 
     // Map to store all loaded sounds with file names
     private static final Map<String, SoundInfo> sounds = new HashMap<>();
@@ -51,7 +62,7 @@ public class SoundSystem {
                         // Store the sound with its file name (without extension) as the key
                         String soundName = path.getFileName().toString().replaceFirst("[.][^.]+$", ""); // remove extension
                         sounds.put(soundName, sound);
-                        Logger.printLOG("Loaded sound: " + soundName);
+                        Logger.debug("Loaded sound: {}", soundName);
                     });
         } catch (IOException e) {
             throw new RuntimeException("Failed to load sounds from directory: " + soundDirectory, e);
@@ -66,7 +77,7 @@ public class SoundSystem {
      */
     public static SoundInfo getSound(String soundName) {
         if (!sounds.containsKey(soundName)) {
-            Logger.printLOG("Sound not found: " + soundName);
+            Logger.warn("Sound not found: {}", soundName);
             return null;  // Return null or throw an exception if sound is not found
         }
         return sounds.get(soundName);
@@ -75,6 +86,26 @@ public class SoundSystem {
     public void init() {
         initOpenAL();
         sourceId = createSoundSource();
+        alSourcei(sourceId, AL_SOURCE_RELATIVE, AL_TRUE); // Plays at the listener
+        voicePool = new VoicePool(GameInfoParser.maxSoundVoices, GameInfoParser.maxSoundDistance);
+        mixer = new AudioMixer(voicePool);
+        mixer.start();
+        streamer = new AudioStreamer();
+        streamer.start();
+    }
+
+    /**
+     * Gives finished one-shot voices back to the pool, moves the listener
+     * and moves every voice attached to something in the world. Call this once per tick.
+     *
+     * @param listenerX the x position of the listener, normally the camera
+     * @param listenerY the y position of the listener, normally the camera
+     */
+    public void update(float listenerX, float listenerY) {
+        voicePool.update();
+        alListener3f(AL_POSITION, listenerX, listenerY, 0);
+        voicePool.setListener(listenerX, listenerY);
+        voicePool.updatePositions();
     }
 
     private void initOpenAL() {
@@ -98,6 +129,9 @@ public class SoundSystem {
         // Create OpenAL capabilities
         ALCCapabilities alcCapabilities = ALC.createCapabilities(device);
         AL.createCapabilities(alcCapabilities);
+
+        // Positional sounds fade out linearly and are silent past the max distance
+        alDistanceModel(AL_LINEAR_DISTANCE_CLAMPED);
     }
 
     public static SoundInfo loadSound(String filePath) {
@@ -108,8 +142,9 @@ public class SoundSystem {
 
         WavInfo wavData = null;
         try {
-            ByteBuffer wavBuffer = FileUtils.ioResourceToByteBuffer(FileUtils.getCurrentWorkingDirectory(filePath));
-            wavData = WAVDecoder.decode(wavBuffer);
+            // Mapped and decoded as a view, so the samples are only copied once, by OpenAL
+            ByteBuffer wavBuffer = FileUtils.mapFile(FileUtils.getCurrentWorkingDirectory(filePath));
+            wavData = WAVDecoder.to16Bit(WAVDecoder.decode(wavBuffer));
             alBufferData(bufferId, wavData.format, wavData.data, wavData.samplerate);
 
             long fileSize = FileUtils.getFileSize(filePath);
@@ -142,12 +177,144 @@ public class SoundSystem {
     public void play(SoundInfo soundInfo) {
         int state = alGetSourcei(sourceId, AL_SOURCE_STATE);
         if (state != AL_PLAYING) {
-            Logger.printLOG("Playing sound");
-            alSourcei(sourceId, AL_BUFFER, soundInfo.bufferId);
-            alSourcePlay(sourceId);
+            Logger.debug("Playing sound {}", soundInfo.bufferId);
+            synchronized (voicePool.startLock) {
+                sourceGeneration.incrementAndGet();
+                alSourcei(sourceId, AL_BUFFER, soundInfo.bufferId);
+                alSourcePlay(sourceId);
+            }
         }
     }
 
+    /**
+     * Plays a sound once on a free voice, so it can overlap with other sounds.
+     *
+     * @param soundInfo the sound to play
+     * @param gain the volume of the sound
+     * @param pitch the pitch of the sound
+     * @param x the x position of the sound
+     * @param y the y position of the sound
+     * @return the handle of the voice playing the sound, or -1 if no voice was free
+     */
+    public int playOneShot(SoundInfo soundInfo, float gain, float pitch, float x, float y) {
+        return playOneShot(soundInfo, SoundCategory.SFX, 0, gain, pitch, x, y);
+    }
+
+    /**
+     * Plays a sound once on a free voice, so it can overlap with other sounds.
+     * If no voice is free, the lowest priority voice is stolen.
+     *
+     * @param soundInfo the sound to play
+     * @param category the category the sound belongs to
+     * @param priority higher priority sounds can steal voices from lower priority sounds
+     * @param gain the volume of the sound
+     * @param pitch the pitch of the sound
+     * @param x the x position of the sound
+     * @param y the y position of the sound
+     * @return the handle of the voice playing the sound, or -1 if no voice could be used
+     */
+    public int playOneShot(SoundInfo soundInfo, SoundCategory category, int priority, float gain, float pitch, float x, float y) {
+        return voicePool.play(soundInfo, category, priority, gain, pitch, x, y);
+    }
+
+    /**
+     * Plays a sound once on a free voice, choosing if it is placed in the world.
+     * Sounds that aren't positional play at the listener but still count against their own category.
+     *
+     * @param soundInfo the sound to play
+     * @param category the category the sound belongs to
+     * @param priority higher priority sounds can steal voices from lower priority sounds
+     * @param gain the volume of the sound
+     * @param pitch the pitch of the sound
+     * @param x the x position of the sound
+     * @param y the y position of the sound
+     * @param positional if the sound is placed at x and y, or plays at the listener
+     * @return the handle of the voice playing the sound, or -1 if no voice could be used
+     */
+    public int playOneShot(SoundInfo soundInfo, SoundCategory category, int priority, float gain, float pitch, float x, float y, boolean positional) {
+        return voicePool.play(soundInfo, category, priority, gain, pitch, x, y, positional);
+    }
+
+    /**
+     * Plays a sound once, attached to something in the world like an NPC or projectile,
+     * so the sound follows it as it moves. Sounds out of hearing range are not played.
+     *
+     * @param soundInfo the sound to play
+     * @param target what the sound is attached to
+     * @param gain the volume of the sound
+     * @param pitch the pitch of the sound
+     * @return the handle of the voice playing the sound, or -1 if no voice could be used
+     */
+    public int playAttached(SoundInfo soundInfo, IPositional target, float gain, float pitch) {
+        return voicePool.play(soundInfo, target, 0, gain, pitch);
+    }
+
+    /**
+     * Stops a voice started with playOneShot. Does nothing if that sound already finished.
+     *
+     * @param handle the handle returned by playOneShot
+     */
+    public void stopOneShot(int handle) {
+        voicePool.stop(handle);
+    }
+
+    /**
+     * Streams a music track from the /sound folder, replacing any music already playing.
+     * Only a few small buffers are decoded at a time, so long tracks don't have to fit in memory.
+     *
+     * @param musicName the name of the ogg or wav file (without extension)
+     * @param loop if the music should start again when it ends
+     * @param fadeDuration how long the music takes to fade in, in seconds
+     */
+    public void playMusic(String musicName, boolean loop, float fadeDuration) {
+        stopMusic();
+
+        IStreamDecoder decoder;
+        try {
+            decoder = openStream(musicName);
+        } catch (IOException e) {
+            Logger.printERROR("Error opening music: " + musicName + " (" + e.getMessage() + ")");
+            return;
+        }
+        if (decoder == null) {
+            Logger.warn("Music not found: {}", musicName);
+            return;
+        }
+
+        music = new StreamingSource(decoder, loop);
+        if (fadeDuration > 0) {
+            alSourcef(music.getSourceId(), AL_GAIN, 0.0f);
+            mixer.ramp(music.getSourceId(), 1.0f, fadeDuration, false);
+        }
+        streamer.add(music);
+    }
+
+    /**
+     * Stops the music started with playMusic
+     */
+    public void stopMusic() {
+        if (music != null) {
+            mixer.cancel(music.getSourceId());
+            music.stop();
+            music = null;
+        }
+    }
+
+    private static IStreamDecoder openStream(String musicName) throws IOException {
+        String basePath = FileUtils.getCurrentWorkingDirectory("resources/sound/" + musicName);
+        if (Files.isRegularFile(Paths.get(basePath + ".ogg"))) {
+            return new OggStreamDecoder(basePath + ".ogg");
+        }
+        if (Files.isRegularFile(Paths.get(basePath + ".wav"))) {
+            return new WavStreamDecoder(basePath + ".wav");
+        }
+        return null;
+    }
+
+    public VoicePool getVoicePool() {
+        return voicePool;
+    }
+
     public void play(SoundInfo soundInfo, boolean fadeIn, float fadeDuration) {
         if (fadeIn) {
             fadeIn(soundInfo, fadeDuration);
@@ -157,6 +324,7 @@ public class SoundSystem {
     }
 
     public void stop() {
+        mixer.cancel(sourceId);
         int state = alGetSourcei(sourceId, AL_SOURCE_STATE);
         if (state == AL_PLAYING) {
             alSourceStop(sourceId);
@@ -178,6 +346,19 @@ public class SoundSystem {
     }
 
     public void cleanup() {
+        if (streamer != null) {
+            streamer.stop();
+            streamer = null;
+            music = null;
+        }
+        if (mixer != null) {
+            mixer.stop();
+            mixer = null;
+        }
+        if (voicePool != null) {
+            voicePool.cleanup();
+            voicePool = null;
+        }
         if (context != NULL) {
             alcDestroyContext(context);
             context = NULL;
@@ -189,54 +370,80 @@ public class SoundSystem {
     }
 
     private void fadeIn(SoundInfo soundInfo, float duration) {
-        new Thread(() -> {
-            try {
-                alSourcei(sourceId, AL_BUFFER, soundInfo.bufferId);
-                setVolume(0.0f);  // Start at zero volume
-                alSourcePlay(sourceId);
-                isFading = true;
+        mixer.cancel(sourceId);
+        synchronized (voicePool.startLock) {
+            // Any fade out still running was for the old sound, this makes the mixer drop it
+            sourceGeneration.incrementAndGet();
+            alSourcei(sourceId, AL_BUFFER, soundInfo.bufferId);
+            alSourcef(sourceId, AL_GAIN, 0.0f);  // Start at zero volume
+            alSourcePlay(sourceId);
+        }
+        volume = 1.0f;
+        mixer.ramp(sourceId, sourceGeneration, 1.0f, duration, false);
+    }
 
-                float increment = 1.0f / (duration * 1000 / 10);  // Every 10ms, increase volume
+    private void fadeOut(float duration) {
+        volume = 0.0f;
+        mixer.ramp(sourceId, sourceGeneration, 0.0f, duration, true);
+    }
 
-                while (currentVolume < 1.0f && isFading) {
-                    currentVolume = Math.min(1.0f, currentVolume + increment);
-                    setVolume(currentVolume);
-                    Thread.sleep(10);  // Update volume every 10ms
-                }
+    /**
+     * Fades a one-shot voice to a new volume. Does nothing if that sound already finished.
+     *
+     * @param handle the handle returned by playOneShot
+     * @param gain the volume at the end of the fade
+     * @param duration how long the fade takes in seconds
+     * @param stopAtEnd if the voice should stop when the fade ends
+     */
+    public void fadeVoice(int handle, float gain, float duration, boolean stopAtEnd) {
+        if (!voicePool.isCurrent(handle)) return;
+        mixer.rampVoice(handle, gain, duration, stopAtEnd);
+    }
 
-                isFading = false;
-            } catch (InterruptedException e) {
-                Logger.printERROR("Fade-in interrupted.");
-            }
-        }).start();
+    /**
+     * Fades out a one-shot voice while fading in a new sound in its place
+     *
+     * @param fromVoice the handle of the voice to fade out, or -1 to only fade in
+     * @param soundInfo the sound to fade in
+     * @param category the category of the new sound
+     * @param gain the volume the new sound fades in to
+     * @param duration how long the crossfade takes in seconds
+     * @return the voice playing the new sound, or -1 if no voice could be used
+     */
+    public int crossfade(int fromVoice, SoundInfo soundInfo, SoundCategory category, float gain, float duration) {
+        fadeVoice(fromVoice, 0.0f, duration, true);
+        int toVoice = playOneShot(soundInfo, category, 1, 0.0f, 1.0f, 0, 0, false); // At the listener, not the world origin
+        fadeVoice(toVoice, gain, duration, false);
+        return toVoice;
     }
 
-    private void fadeOut(float duration) {
-        new Thread(() -> {
-            try {
-                isFading = true;
-                float decrement = currentVolume / (duration * 1000 / 10);  // Every 10ms, decrease volume
-
-                while (currentVolume > 0.0f && isFading) {
-                    currentVolume = Math.max(0.0f, currentVolume - decrement);
-                    setVolume(currentVolume);
-                    Thread.sleep(10);  // Update volume every 10ms
-                }
-
-                alSourceStop(sourceId);
-                isFading = false;
-            } catch (InterruptedException e) {
-                Logger.printERROR("Fade-out interrupted.");
+    /**
+     * Fades every voice in a category to a new volume, for example to lower
+     * the music while a voice line plays
+     *
+     * @param category the category to duck
+     * @param gain the volume to fade to
+     * @param duration how long the fade takes in seconds
+     */
+    public void duck(SoundCategory category, float gain, float duration) {
+        for (int voice = 0; voice < voicePool.getVoiceCount(); voice++) {
+            if (voicePool.isActive(voice, category)) {
+                mixer.rampVoice(voicePool.getHandle(voice), gain, duration, false);
             }
-        }).start();
+        }
     }
 
     public void setVolume(float volume) {
-        currentVolume = volume;
-        alSourcef(sourceId, AL_GAIN, volume);
+        this.volume = volume;
+        // Goes through the mixer so it replaces any fade that is still running
+        mixer.ramp(sourceId, volume, 0, false);
     }
 
+    /**
+     * Gets the volume last set with setVolume or a fade. It is the volume the sound is at or fading to,
+     * so it is right straight after setVolume, before the mixer has applied it.
+     */
     public float getVolume() {
-        return currentVolume;
+        return volume;
     }
 }
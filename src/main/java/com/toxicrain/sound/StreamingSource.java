@@ -0,0 +1,125 @@
+package com.toxicrain.sound;
+
+import com.toxicrain.core.interfaces.IStreamDecoder;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.openal.AL10.*;
+
+/**
+ * A StreamingSource plays a long sound, like music, through a small ring of OpenAL buffers.
+ * Only {@link #BUFFER_COUNT} chunks are ever decoded at once, and the {@link AudioStreamer}
+ * refills each buffer once OpenAL has finished playing it.
+ *
+ * @author strubium
+ */
+public class StreamingSource {
+
+    /** The number of buffers queued on the source */
+    public static final int BUFFER_COUNT = 4;
+    /** The size of each buffer in bytes, about 0.4 seconds of 44.1kHz 16 bit stereo */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private final IStreamDecoder decoder;
+    private final int[] buffers = new int[BUFFER_COUNT];
+    @Getter
+    private final int sourceId;
+    private final boolean looping;
+    private boolean endOfStream;
+    private boolean stopped;
+
+    /**
+     * Creates the source and its buffers. Call {@link #play()} to start it.
+     *
+     * @param decoder where the samples are read from
+     * @param looping if the sound should start again when it ends
+     */
+    public StreamingSource(IStreamDecoder decoder, boolean looping) {
+        this.decoder = decoder;
+        this.looping = looping;
+        this.sourceId = alGenSources();
+        if (sourceId == 0) {
+            throw new IllegalStateException("Failed to generate OpenAL source. Error code: " + alGetError());
+        }
+        alGenBuffers(buffers);
+        // Streamed sounds follow the listener
+        alSourcei(sourceId, AL_SOURCE_RELATIVE, AL_TRUE);
+    }
+
+    /**
+     * Fills every buffer and starts playing
+     */
+    public synchronized void play() {
+        int queued = 0;
+        for (int buffer : buffers) {
+            if (!fill(buffer)) break;
+            alSourceQueueBuffers(sourceId, buffer);
+            queued++;
+        }
+        if (queued > 0) {
+            alSourcePlay(sourceId);
+        }
+    }
+
+    /**
+     * Refills the buffers OpenAL has finished with. Called by the {@link AudioStreamer}.
+     *
+     * @return false once the sound has finished and can be removed
+     */
+    public synchronized boolean update() {
+        if (stopped) return false;
+
+        int processed = alGetSourcei(sourceId, AL_BUFFERS_PROCESSED);
+        while (processed-- > 0) {
+            int buffer = alSourceUnqueueBuffers(sourceId);
+            if (fill(buffer)) {
+                alSourceQueueBuffers(sourceId, buffer);
+            }
+        }
+
+        int queued = alGetSourcei(sourceId, AL_BUFFERS_QUEUED);
+        if (alGetSourcei(sourceId, AL_SOURCE_STATE) != AL_PLAYING) {
+            if (queued == 0) {
+                // Every buffer has played and there is nothing left to read
+                return false;
+            }
+            // The buffers ran dry before they were refilled, so start again
+            alSourcePlay(sourceId);
+        }
+        return true;
+    }
+
+    /**
+     * Stops the sound and frees its OpenAL source and buffers
+     */
+    public synchronized void stop() {
+        if (stopped) return;
+        stopped = true;
+        alSourceStop(sourceId);
+        alSourcei(sourceId, AL_BUFFER, 0); // Unqueues every buffer
+        alDeleteSources(sourceId);
+        alDeleteBuffers(buffers);
+        decoder.close();
+    }
+
+    public synchronized boolean isStopped() {
+        return stopped;
+    }
+
+    private boolean fill(int buffer) {
+        if (endOfStream) return false;
+
+        ByteBuffer chunk = decoder.read(BUFFER_SIZE);
+        if (!chunk.hasRemaining() && looping) {
+            decoder.rewind();
+            chunk = decoder.read(BUFFER_SIZE);
+        }
+        if (!chunk.hasRemaining()) {
+            endOfStream = true;
+            return false;
+        }
+        alBufferData(buffer, decoder.getFormat(), chunk, decoder.getSampleRate());
+        return true;
+    }
+}
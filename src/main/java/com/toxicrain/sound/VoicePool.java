@@ -0,0 +1,391 @@
+package com.toxicrain.sound;
+
+import com.toxicrain.core.Logger;
+import com.toxicrain.core.interfaces.IPositional;
+import com.toxicrain.core.jfr.VoiceStealEvent;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.lwjgl.openal.AL10.*;
+
+/**
+ * The VoicePool class holds a fixed number of OpenAL sources (voices)
+ * that are created once and reused for every sound.
+ *
+ * <p>Free voices are kept on a stack so getting one is O(1). When no voice is free,
+ * or the category is at its limit, the lowest priority (then oldest) voice is stolen.
+ * Finished voices are given back in {@link #update()}.</p>
+ *
+ * <p>Playing a sound returns a handle, the voice index tagged with the generation of the voice.
+ * Once the voice is reused for another sound the handle no longer matches, so stopping or fading
+ * an old handle does nothing instead of cutting off the new sound.</p>
+ *
+ * <p>Positional sounds that start further than the audible range from the listener
+ * are culled before they claim a voice. Sounds attached to an {@link IPositional}
+ * are moved together in {@link #updatePositions()}.</p>
+ *
+ * @author strubium
+ */
+public class VoicePool {
+    /** How many low bits of a handle hold the voice index */
+    private static final int VOICE_BITS = 8;
+    private static final int VOICE_MASK = (1 << VOICE_BITS) - 1;
+    /** The generation bits kept in a handle, so handles are never negative */
+    private static final int GENERATION_MASK = 0x7FFFFF;
+    /** The most voices a pool can have, so every voice index fits in a handle */
+    public static final int MAX_VOICES = 1 << VOICE_BITS;
+
+    private final int[] sources;
+    private final int[] priorities;
+    private final int[] categories;
+    private final long[] startOrder;
+    private final boolean[] active;
+    private final AtomicIntegerArray generations;
+    private final IPositional[] attached;
+    private final int[] freeStack;
+    private int freeCount;
+
+    private final float maxDistanceSquared;
+    private float listenerX, listenerY;
+
+    private final int[] categoryActive = new int[SoundCategory.values().length];
+    private final int[] categoryLimits = new int[SoundCategory.values().length];
+    private long nextStart;
+    /**
+     * Held while a sound starts, on a voice or on any other source, and by the {@link AudioMixer}
+     * while it stops a source at the end of a fade. The mixer checks the generation again while holding it,
+     * so a fade can't stop a sound that started after the fade was sent.
+     * Voices are also only given back while holding it, so the free stack and category counts
+     * never change on two threads at once.
+     */
+    final Object startLock = new Object();
+
+    /**
+     * Creates the pool and all of its OpenAL sources.
+     * Must be called after the OpenAL context is current.
+     *
+     * @param voiceCount the number of voices in the pool
+     * @param maxDistance how far from the listener a positional sound can be heard
+     */
+    public VoicePool(int voiceCount, float maxDistance) {
+        if (voiceCount > MAX_VOICES) {
+            Logger.warn("maxSoundVoices is {}, but only {} voices are supported", voiceCount, MAX_VOICES);
+            voiceCount = MAX_VOICES;
+        }
+        sources = new int[voiceCount];
+        priorities = new int[voiceCount];
+        categories = new int[voiceCount];
+        startOrder = new long[voiceCount];
+        active = new boolean[voiceCount];
+        generations = new AtomicIntegerArray(voiceCount);
+        attached = new IPositional[voiceCount];
+        freeStack = new int[voiceCount];
+        maxDistanceSquared = maxDistance * maxDistance;
+
+        for (int i = 0; i < voiceCount; i++) {
+            sources[i] = alGenSources();
+            if (sources[i] == 0) {
+                throw new IllegalStateException("Failed to generate OpenAL source. Error code: " + alGetError());
+            }
+            // Full volume within 2 units, the width of one tile, fading to silent at the audible range
+            alSourcef(sources[i], AL_REFERENCE_DISTANCE, 2.0f);
+            alSourcef(sources[i], AL_MAX_DISTANCE, maxDistance);
+            freeStack[freeCount++] = voiceCount - 1 - i;
+        }
+        for (SoundCategory category : SoundCategory.values()) {
+            categoryLimits[category.ordinal()] = Math.min(category.defaultVoiceLimit, voiceCount);
+        }
+    }
+
+    /**
+     * Plays a sound once on any voice. The voice is given back to the pool when the sound ends.
+     *
+     * @param soundInfo the sound to play
+     * @param category the category the sound belongs to
+     * @param priority higher priority sounds can steal voices from lower priority sounds
+     * @param gain the volume of the sound
+     * @param pitch the pitch of the sound
+     * @param x the x position of the sound, ignored if the category is not positional
+     * @param y the y position of the sound, ignored if the category is not positional
+     * @return the handle of the voice playing the sound, or -1 if no voice could be used or the sound is out of range
+     */
+    public int play(SoundInfo soundInfo, SoundCategory category, int priority, float gain, float pitch, float x, float y) {
+        return play(soundInfo, category, priority, gain, pitch, x, y, category.positional);
+    }
+
+    /**
+     * Plays a sound once on any voice. The voice is given back to the pool when the sound ends.
+     *
+     * @param soundInfo the sound to play
+     * @param category the category the sound belongs to
+     * @param priority higher priority sounds can steal voices from lower priority sounds
+     * @param gain the volume of the sound
+     * @param pitch the pitch of the sound
+     * @param x the x position of the sound, ignored if not positional
+     * @param y the y position of the sound, ignored if not positional
+     * @param positional if the sound is placed in the world, or plays at the listener whatever its category is
+     * @return the handle of the voice playing the sound, or -1 if no voice could be used or the sound is out of range
+     */
+    public int play(SoundInfo soundInfo, SoundCategory category, int priority, float gain, float pitch, float x, float y, boolean positional) {
+        if (soundInfo == null) return -1;
+        if (positional && !isAudible(x, y)) return -1;
+
+        synchronized (startLock) {
+            int voice = acquire(category.ordinal(), priority);
+            if (voice == -1) return -1;
+
+            int source = sources[voice];
+            alSourcei(source, AL_BUFFER, soundInfo.bufferId);
+            alSourcef(source, AL_GAIN, gain);
+            alSourcef(source, AL_PITCH, pitch);
+            if (positional) {
+                alSourcei(source, AL_SOURCE_RELATIVE, AL_FALSE);
+                alSource3f(source, AL_POSITION, x, y, 0);
+            } else {
+                // Plays at the listener no matter where it is
+                alSourcei(source, AL_SOURCE_RELATIVE, AL_TRUE);
+                alSource3f(source, AL_POSITION, 0, 0, 0);
+            }
+            alSourcePlay(source);
+            return getHandle(voice);
+        }
+    }
+
+    /**
+     * Plays a sound once, attached to something in the world so it follows it as it moves
+     *
+     * @param soundInfo the sound to play
+     * @param target what the sound is attached to
+     * @param priority higher priority sounds can steal voices from lower priority sounds
+     * @param gain the volume of the sound
+     * @param pitch the pitch of the sound
+     * @return the handle of the voice playing the sound, or -1 if no voice could be used or the sound is out of range
+     */
+    public int play(SoundInfo soundInfo, IPositional target, int priority, float gain, float pitch) {
+        if (target.isRemoved()) return -1;
+        int handle = play(soundInfo, SoundCategory.SFX, priority, gain, pitch, target.getX(), target.getY());
+        if (handle != -1) {
+            attached[getVoice(handle)] = target;
+        }
+        return handle;
+    }
+
+    /**
+     * Moves the listener, used for distance culling. The OpenAL listener is set by the caller.
+     *
+     * @param x the x position of the listener
+     * @param y the y position of the listener
+     */
+    public void setListener(float x, float y) {
+        listenerX = x;
+        listenerY = y;
+    }
+
+    /**
+     * Moves every attached voice to the position of what it is attached to, in one pass
+     */
+    public void updatePositions() {
+        for (int i = 0; i < sources.length; i++) {
+            IPositional target = attached[i];
+            if (target == null) continue;
+            if (target.isRemoved()) {
+                attached[i] = null; // Left to finish where it was last
+            } else {
+                alSource3f(sources[i], AL_POSITION, target.getX(), target.getY(), 0);
+            }
+        }
+    }
+
+    /**
+     * Checks if a position is close enough to the listener to be heard
+     *
+     * @param x the x position
+     * @param y the y position
+     * @return true if the position is within the audible range
+     */
+    public boolean isAudible(float x, float y) {
+        float deltaX = x - listenerX;
+        float deltaY = y - listenerY;
+        return deltaX * deltaX + deltaY * deltaY <= maxDistanceSquared;
+    }
+
+    /**
+     * Gives back every voice that has finished playing. Call this once per tick.
+     */
+    public void update() {
+        synchronized (startLock) {
+            for (int i = 0; i < sources.length; i++) {
+                if (active[i] && alGetSourcei(sources[i], AL_SOURCE_STATE) == AL_STOPPED) {
+                    release(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops a voice and gives it back to the pool. Does nothing if the voice has moved on to another sound.
+     *
+     * @param handle the handle returned by {@link #play}
+     */
+    public void stop(int handle) {
+        synchronized (startLock) {
+            if (!isCurrent(handle)) return;
+            int voice = getVoice(handle);
+            alSourceStop(sources[voice]);
+            release(voice);
+        }
+    }
+
+    /**
+     * Checks if a handle still belongs to the sound it was returned for, and that sound hasn't finished
+     *
+     * @param handle the handle returned by {@link #play}
+     * @return false if the handle is -1, the sound has finished or the voice was reused
+     */
+    public boolean isCurrent(int handle) {
+        if (handle < 0) return false;
+        int voice = getVoice(handle);
+        return voice < sources.length && active[voice] && isCurrentGeneration(handle);
+    }
+
+    /**
+     * Checks if the voice of a handle hasn't been handed out again since. Unlike {@link #isCurrent(int)}
+     * this can be called from any thread.
+     *
+     * @param handle the handle returned by {@link #play}
+     */
+    public boolean isCurrentGeneration(int handle) {
+        return (generations.get(getVoice(handle)) & GENERATION_MASK) == handle >>> VOICE_BITS;
+    }
+
+    /**
+     * Gets the handle of the sound a voice is playing now
+     *
+     * @param voice the voice index
+     */
+    public int getHandle(int voice) {
+        return (generations.get(voice) & GENERATION_MASK) << VOICE_BITS | voice;
+    }
+
+    /**
+     * Gets the voice index of a handle
+     *
+     * @param handle the handle returned by {@link #play}
+     */
+    public static int getVoice(int handle) {
+        return handle & VOICE_MASK;
+    }
+
+    /**
+     * Sets how many voices a category may use at once
+     *
+     * @param category the category to limit
+     * @param limit the maximum number of voices
+     */
+    public void setCategoryLimit(SoundCategory category, int limit) {
+        categoryLimits[category.ordinal()] = Math.max(0, Math.min(limit, sources.length));
+    }
+
+    /**
+     * Gets the OpenAL source of a voice
+     *
+     * @param voice the voice index
+     * @return the OpenAL source id
+     */
+    public int getSource(int voice) {
+        return sources[voice];
+    }
+
+    /**
+     * Checks if a voice is playing a sound from the given category
+     *
+     * @param voice the voice index
+     * @param category the category to check
+     * @return true if the voice is in use by that category
+     */
+    public boolean isActive(int voice, SoundCategory category) {
+        return active[voice] && categories[voice] == category.ordinal();
+    }
+
+    /**
+     * Gets the number of voices in the pool
+     */
+    public int getVoiceCount() {
+        return sources.length;
+    }
+
+    /**
+     * Stops and deletes every OpenAL source in the pool
+     */
+    public void cleanup() {
+        for (int source : sources) {
+            alSourceStop(source);
+            alDeleteSources(source);
+        }
+        freeCount = 0;
+    }
+
+    private int acquire(int category, int priority) {
+        int voice;
+        if (categoryActive[category] >= categoryLimits[category]) {
+            // The category is full, so it can only take a voice from itself
+            voice = findVictim(category, priority);
+        } else if (freeCount > 0) {
+            voice = freeStack[--freeCount];
+        } else {
+            voice = findVictim(-1, priority);
+        }
+        if (voice == -1) return -1;
+
+        if (active[voice]) {
+            VoiceStealEvent event = new VoiceStealEvent();
+            if (event.shouldCommit()) {
+                event.voice = voice;
+                event.category = SoundCategory.values()[categories[voice]].name();
+                event.stolenPriority = priorities[voice];
+                event.priority = priority;
+                event.commit();
+            }
+            alSourceStop(sources[voice]);
+            categoryActive[categories[voice]]--;
+            attached[voice] = null;
+        }
+        active[voice] = true;
+        generations.incrementAndGet(voice);
+        categories[voice] = category;
+        priorities[voice] = priority;
+        startOrder[voice] = nextStart++;
+        categoryActive[category]++;
+        return voice;
+    }
+
+    /**
+     * Finds the lowest priority, then oldest, active voice that a sound with the given priority may steal
+     *
+     * @param category only look at this category, or -1 for every category
+     * @param priority the priority of the new sound
+     * @return the voice to steal, or -1 if every voice has a higher priority
+     */
+    private int findVictim(int category, int priority) {
+        int victim = -1;
+        for (int i = 0; i < sources.length; i++) {
+            if (!active[i] || priorities[i] > priority) continue;
+            if (category != -1 && categories[i] != category) continue;
+            if (victim == -1 || priorities[i] < priorities[victim]
+                    || (priorities[i] == priorities[victim] && startOrder[i] < startOrder[victim])) {
+                victim = i;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Gives a voice back to the free stack. Only called while holding {@link #startLock}.
+     */
+    private void release(int voice) {
+        active[voice] = false;
+        attached[voice] = null;
+        categoryActive[categories[voice]]--;
+        freeStack[freeCount++] = voice;
+    }
+}
@@ -13,6 +13,21 @@ import static org.lwjgl.openal.AL10.*;
  * @author strubium
  */
 public class WAVDecoder {
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    /**
+     * Decodes a wav without copying the samples. The data of the returned {@link WavInfo}
+     * is a view of the data chunk inside the given buffer, so the buffer must stay alive
+     * as long as the WavInfo is used.
+     * 24 bit, 32 bit and float samples have no OpenAL format. They are left as they are, with the
+     * format set to the 16 bit format they convert to, see {@link WavInfo#needsConversion()} and {@link #to16Bit(WavInfo)}.
+     *
+     * @param buffer the whole wav file
+     * @return the WavInfo holding the samples
+     * @throws IOException if the buffer is not a supported wav
+     */
     public static WavInfo decode(ByteBuffer buffer) throws IOException {
         buffer.order(ByteOrder.LITTLE_ENDIAN);
 
@@ -27,40 +42,41 @@ public class WAVDecoder {
         boolean fmtChunkFound = false;
         boolean dataChunkFound = false;
         int format = 0;
+        int audioFormat = WAVE_FORMAT_PCM;
         int sampleRate = 0;
         int numChannels = 0;
         int bitsPerSample = 0;
-        int dataSize = 0;
         ByteBuffer data = null;
 
-        while (buffer.remaining() > 0) {
+        while (buffer.remaining() >= 8) {
             int chunkId = buffer.getInt();
             int chunkSize = buffer.getInt();
 
             switch (chunkId) {
                 case 0x20746D66: // "fmt "
                     fmtChunkFound = true;
-                    int audioFormat = buffer.getShort();
+                    int fmtStart = buffer.position();
+                    audioFormat = buffer.getShort() & 0xFFFF;
                     numChannels = buffer.getShort();
                     sampleRate = buffer.getInt();
                     buffer.getInt(); // Byte rate
                     buffer.getShort(); // Block align
                     bitsPerSample = buffer.getShort();
-                    if (chunkSize > 16) {
-                        buffer.position(buffer.position() + chunkSize - 16); // Skip extra fmt bytes
+                    if (audioFormat == WAVE_FORMAT_EXTENSIBLE && chunkSize >= 26) {
+                        // The real format is the first two bytes of the sub format GUID
+                        audioFormat = buffer.getShort(fmtStart + 24) & 0xFFFF;
                     }
+                    buffer.position(fmtStart + chunkSize); // Skip extra fmt bytes
                     break;
                 case 0x61746164: // "data"
                     dataChunkFound = true;
-                    dataSize = chunkSize;
-                    data = ByteBuffer.allocateDirect(dataSize);
-                    for (int i = 0; i < dataSize; i++) {
-                        data.put(buffer.get());
-                    }
-                    data.flip();
+                    int dataSize = Math.min(chunkSize, buffer.remaining());
+                    data = buffer.slice();
+                    data.limit(dataSize);
+                    buffer.position(buffer.position() + dataSize);
                     break;
                 default:
-                    buffer.position(buffer.position() + chunkSize); // Skip other chunks
+                    buffer.position(Math.min(buffer.position() + chunkSize, buffer.limit())); // Skip other chunks
                     break;
             }
 
@@ -73,6 +89,14 @@ public class WAVDecoder {
             throw new IOException("Invalid WAV file: missing 'fmt ' or 'data' chunk");
         }
 
+        int sampleBytes = bitsPerSample / 8;
+        boolean floatSamples = audioFormat == WAVE_FORMAT_IEEE_FLOAT && bitsPerSample == 32;
+        if (floatSamples || (audioFormat == WAVE_FORMAT_PCM && (bitsPerSample == 24 || bitsPerSample == 32))) {
+            bitsPerSample = 16; // What they are converted to
+        } else if (audioFormat != WAVE_FORMAT_PCM) {
+            throw new IOException("Unsupported WAV encoding: " + audioFormat);
+        }
+
         switch (numChannels) {
             case 1:
                 switch (bitsPerSample) {
@@ -102,6 +126,24 @@ public class WAVDecoder {
                 throw new IOException("Unsupported WAV format: " + numChannels + " channels");
         }
 
-        return new WavInfo(data, format, sampleRate);
+        return new WavInfo(data, format, sampleRate, sampleBytes, floatSamples);
+    }
+
+    /**
+     * Converts all the samples of a decoded wav to 16 bit, if it needs it, into a new buffer.
+     * For sounds loaded whole. Streams convert each chunk as it is read instead.
+     *
+     * @param wavInfo the wav from {@link #decode(ByteBuffer)}
+     * @return the same wav if it needs no conversion, or a new one with 16 bit samples
+     */
+    public static WavInfo to16Bit(WavInfo wavInfo) {
+        if (!wavInfo.needsConversion()) return wavInfo;
+
+        SampleConverter converter = new SampleConverter(wavInfo.sampleBytes, wavInfo.floatSamples);
+        ByteBuffer in = wavInfo.data.duplicate();
+        ByteBuffer out = ByteBuffer.allocateDirect(converter.getOutputBytes(in.remaining())).order(ByteOrder.nativeOrder());
+        converter.convert(in, out);
+        out.flip();
+        return new WavInfo(out, wavInfo.format, wavInfo.samplerate);
     }
 }
@@ -2,6 +2,9 @@ package com.toxicrain.sound;
 
 import java.nio.ByteBuffer;
 
+import static org.lwjgl.openal.AL10.AL_FORMAT_MONO8;
+import static org.lwjgl.openal.AL10.AL_FORMAT_STEREO8;
+
 
 /**
  * The WavInfo class provides information about the given sound
@@ -11,13 +14,31 @@ import java.nio.ByteBuffer;
  */
 public class WavInfo {
     public final ByteBuffer data;
+    /** The OpenAL format of the samples, once they are converted if they need to be */
     public final int format;
     public final int samplerate;
+    /** How many bytes each sample in data has */
+    public final int sampleBytes;
+    /** If the samples in data are 32 bit floats */
+    public final boolean floatSamples;
 
     public WavInfo(ByteBuffer data, int format, int samplerate) {
+        this(data, format, samplerate, format == AL_FORMAT_MONO8 || format == AL_FORMAT_STEREO8 ? 1 : 2, false);
+    }
+
+    public WavInfo(ByteBuffer data, int format, int samplerate, int sampleBytes, boolean floatSamples) {
         this.data = data;
         this.format = format;
         this.samplerate = samplerate;
+        this.sampleBytes = sampleBytes;
+        this.floatSamples = floatSamples;
+    }
+
+    /**
+     * Checks if the samples in data have no OpenAL format and have to be converted to 16 bit first
+     */
+    public boolean needsConversion() {
+        return floatSamples || sampleBytes > 2;
     }
 
     public void free() {
@@ -0,0 +1,109 @@
+package com.toxicrain.sound;
+
+import com.toxicrain.core.interfaces.IStreamDecoder;
+import com.toxicrain.util.FileUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.lwjgl.openal.AL10.*;
+
+/**
+ * Streams a wav from a memory-mapped file. Each chunk is a view of the mapped data chunk,
+ * so the samples are handed to OpenAL without being copied on the Java side.
+ * Samples OpenAL has no format for are converted to 16 bit one chunk at a time into a
+ * reused buffer, so only one chunk of the track is ever held converted.
+ *
+ * @author strubium
+ */
+public class WavStreamDecoder implements IStreamDecoder {
+
+    private final WavInfo wavInfo;
+    /** The bytes in one sample frame of the wav, before any conversion */
+    private final int blockAlign;
+    /** Converts each chunk to 16 bit, or null if the samples are used as they are */
+    private final SampleConverter converter;
+    private ByteBuffer converted;
+    private int position;
+
+    /**
+     * Maps a wav file and reads its header
+     *
+     * @param filePath the path to the wav file
+     * @throws IOException if the file can't be read or is not a supported wav
+     */
+    public WavStreamDecoder(String filePath) throws IOException {
+        this.wavInfo = WAVDecoder.decode(FileUtils.mapFile(filePath));
+        int outputBlockAlign = getBlockAlign(wavInfo.format);
+        if (wavInfo.needsConversion()) {
+            converter = new SampleConverter(wavInfo.sampleBytes, wavInfo.floatSamples);
+            blockAlign = outputBlockAlign / 2 * wavInfo.sampleBytes;
+        } else {
+            converter = null;
+            blockAlign = outputBlockAlign;
+        }
+    }
+
+    @Override
+    public int getFormat() {
+        return wavInfo.format;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return wavInfo.samplerate;
+    }
+
+    @Override
+    public ByteBuffer read(int maxBytes) {
+        ByteBuffer data = wavInfo.data;
+        // Only hand out whole sample frames. maxBytes counts the bytes handed out, which are 16 bit once converted
+        int outputBlockAlign = converter == null ? blockAlign : blockAlign / wavInfo.sampleBytes * 2;
+        int length = Math.min(maxBytes / outputBlockAlign * blockAlign, data.limit() - position);
+
+        ByteBuffer chunk = data.duplicate();
+        chunk.position(position);
+        chunk.limit(position + length);
+        position += length;
+        if (converter == null) {
+            return chunk;
+        }
+
+        int outputBytes = converter.getOutputBytes(length);
+        if (converted == null || converted.capacity() < outputBytes) {
+            converted = ByteBuffer.allocateDirect(outputBytes).order(ByteOrder.nativeOrder());
+        }
+        converted.clear();
+        converter.convert(chunk, converted);
+        converted.flip();
+        return converted;
+    }
+
+    @Override
+    public void rewind() {
+        position = 0;
+    }
+
+    @Override
+    public void close() {
+        // The mapping is released when it is garbage collected
+    }
+
+    /**
+     * Gets the number of bytes in one sample frame of an OpenAL format
+     */
+    static int getBlockAlign(int format) {
+        switch (format) {
+            case AL_FORMAT_MONO8:
+                return 1;
+            case AL_FORMAT_MONO16:
+            case AL_FORMAT_STEREO8:
+                return 2;
+            case AL_FORMAT_STEREO16:
+                return 4;
+            default:
+                throw new IllegalArgumentException("Unknown OpenAL format: " + format);
+        }
+    }
+}
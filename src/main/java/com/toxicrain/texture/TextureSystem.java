@@ -1,15 +1,22 @@
 package com.toxicrain.texture;
 
 import com.toxicrain.core.Logger;
+import com.toxicrain.core.jfr.TextureLoadEvent;
 import com.toxicrain.util.FileUtils;
 import org.lwjgl.system.MemoryStack;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.nio.file.*;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.function.Function;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL30C.glGenerateMipmap;
@@ -24,6 +31,18 @@ public class TextureSystem {
      * Init the textures by dynamically loading all images from the /images folder
      */
     public static void initTextures() {
+        initTextures(TextureSystem::loadTexture);
+    }
+
+    /**
+     * Init the textures without a GL context, for headless runs.
+     * Only the size of each image is read and every texture gets a made up ID, nothing is uploaded.
+     */
+    public static void initHeadlessTextures() {
+        initTextures(TextureSystem::loadHeadlessTexture);
+    }
+
+    private static void initTextures(Function<String, TextureInfo> loader) {
         String textureDirectory = FileUtils.getCurrentWorkingDirectory("resources/images"); // Directory containing textures
 
         try {
@@ -38,12 +57,12 @@ public class TextureSystem {
                     .forEach(path -> {
                         // Load each texture
                         String filePath = path.toString();
-                        TextureInfo texture = loadTexture(filePath);
+                        TextureInfo texture = loader.apply(filePath);
                         if (texture != null) {
                             // Store the texture with its file name (without extension) as the key
                             String textureName = path.getFileName().toString().replaceFirst("[.][^.]+$", ""); // remove extension
                             textures.put(textureName, texture);
-                            Logger.printLOG("Loaded texture: " + textureName);
+                            Logger.debug("Loaded texture: {}", textureName);
                         } else {
                             Logger.printERROR("Failed to load texture: " + path.getFileName());
                         }
@@ -63,7 +82,7 @@ public class TextureSystem {
      */
     public static TextureInfo getTexture(String textureName) {
         if (!textures.containsKey(textureName)) {
-            Logger.printLOG("Texture not found: " + textureName);
+            Logger.warn("Texture not found: {}", textureName);
             return null;  // Return null or throw an exception if texture is not found
         }
         return textures.get(textureName);
@@ -76,6 +95,8 @@ public class TextureSystem {
      * @return TextureInfo containing texture data
      */
     public static TextureInfo loadTexture(String filePath) {
+        TextureLoadEvent event = new TextureLoadEvent();
+        event.begin();
         int width, height;
         ByteBuffer image;
 
@@ -120,10 +141,38 @@ public class TextureSystem {
             stbi_image_free(image);
         }
 
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = filePath;
+            event.textureId = textureId;
+            event.width = width;
+            event.height = height;
+            event.transparent = hasTransparency;
+            event.commit();
+        }
+
         // Return the TextureInfo with the transparency information
         return new TextureInfo(textureId, width, height, hasTransparency);
     }
 
+    private static TextureInfo loadHeadlessTexture(String filePath) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new File(filePath))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) return null;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input);
+                return new TextureInfo(textures.size() + 1, reader.getWidth(0), reader.getHeight(0), false);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            Logger.printERROR("Error reading texture size: " + filePath);
+            return null;
+        }
+    }
+
     /**
      * Check if the texture contains transparency by scanning its alpha channel.
      * Assumes the image data is in RGBA format (4 bytes per pixel).
@@ -133,7 +182,7 @@ public class TextureSystem {
      * @param height The height of the image.
      * @return true if the texture contains transparent pixels, false otherwise.
      */
-    private static boolean checkTransparency(ByteBuffer image, int width, int height) {
+    static boolean checkTransparency(ByteBuffer image, int width, int height) {
         int pixelCount = width * height;
 
         for (int i = 0; i < pixelCount; i++) {
@@ -18,7 +18,7 @@ public class FPSUtils {
         if (elapsedTime >= 1.0) {
             // Calculate FPS
             int fps = frameCount;
-            Logger.printLOG("FPS: " + fps);
+            Logger.info("FPS: {}", fps);
 
             // Reset for next second
             frameCount = 0;
@@ -2,10 +2,13 @@ package com.toxicrain.util;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -36,7 +39,7 @@ public class FileUtils {
         try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
             String currentLine;
             while ((currentLine = br.readLine()) != null) {
-                contentBuilder.append(currentLine);
+                contentBuilder.append(currentLine).append('\n');
             }
         }
         return contentBuilder.toString();
@@ -113,6 +116,21 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Memory-maps a file as read only, so its content is paged in by the OS
+     * when it is read instead of being copied onto the heap.
+     *
+     * @param filePath the path to the file
+     * @return a read only buffer over the whole file
+     * @throws IOException if an I/O error occurs
+     */
+    public static MappedByteBuffer mapFile(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
     public static ByteBuffer ioResourceToByteBuffer(String resource) throws IOException {
         Path path = Paths.get(resource);
         if (!Files.isReadable(path)) {
@@ -1,20 +1,35 @@
 package com.toxicrain.util;
 
-import com.toxicrain.artifacts.Player;
 import org.lwjgl.glfw.GLFW;
+import org.lwjgl.system.MemoryUtil;
 
-
-
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
- * The MouseUtils class provides help working with mice
+ * The MouseUtils class provides help working with mice and keys.
+ *
+ * <p>GLFW can only be asked about input on the main thread, so the main thread calls
+ * {@link #pollInput()} after polling events and the state is read from what it saw,
+ * which lets the simulation thread check input too.</p>
  */
 public class MouseUtils {
 
     private final long window;
+    /** One bit per key, set while it is held down */
+    private final AtomicLongArray keys = new AtomicLongArray(GLFW.GLFW_KEY_LAST / 64 + 1);
+    private final long[] polledKeys = new long[keys.length()];
+    /** One bit per mouse button */
+    private volatile int mouseButtons;
+    /** The mouse x and y as float bits, packed so they are always read together */
+    private volatile long mousePosition;
+    private final double[] cursorX = new double[1];
+    private final double[] cursorY = new double[1];
+    private float scrollOffset;
 
     /**
      * Constructs a MouseUtils object with the specified window handle.
+     * With a NULL window nothing is ever pressed and the mouse is always at 0, 0, for headless runs.
      *
      * @param window The window handle
      */
@@ -29,11 +44,55 @@ public class MouseUtils {
      * @return A float array containing [mouseX, mouseY] coordinates
      */
     public float[] getMousePosition() {
-        double[] mouseX = new double[1];
-        double[] mouseY = new double[1];
-        GLFW.glfwGetCursorPos(window, mouseX, mouseY);
+        long position = mousePosition;
+        return new float[]{Float.intBitsToFloat((int) (position >>> 32)), Float.intBitsToFloat((int) position)};
+    }
+
+    /**
+     * Reads the keys, mouse buttons and mouse position from GLFW. Only called on the main thread, after polling events.
+     */
+    public void pollInput() {
+        if (window == MemoryUtil.NULL) return;
+
+        Arrays.fill(polledKeys, 0);
+        for (int key = GLFW.GLFW_KEY_SPACE; key <= GLFW.GLFW_KEY_LAST; key++) {
+            if (GLFW.glfwGetKey(window, key) == GLFW.GLFW_PRESS) {
+                polledKeys[key >> 6] |= 1L << key;
+            }
+        }
+        for (int i = 0; i < polledKeys.length; i++) {
+            keys.set(i, polledKeys[i]);
+        }
+
+        int buttons = 0;
+        for (int button = 0; button <= GLFW.GLFW_MOUSE_BUTTON_LAST; button++) {
+            if (GLFW.glfwGetMouseButton(window, button) == GLFW.GLFW_PRESS) {
+                buttons |= 1 << button;
+            }
+        }
+        mouseButtons = buttons;
+
+        GLFW.glfwGetCursorPos(window, cursorX, cursorY);
+        mousePosition = ((long) Float.floatToRawIntBits((float) cursorX[0]) << 32)
+                | (Float.floatToRawIntBits((float) cursorY[0]) & 0xFFFFFFFFL);
+    }
 
-        return new float[]{(float) mouseX[0], (float) mouseY[0]};
+    /**
+     * Adds to how far the mouse wheel was scrolled, called by the scroll callback
+     *
+     * @param offset how far it was scrolled
+     */
+    public synchronized void addScroll(float offset) {
+        scrollOffset += offset;
+    }
+
+    /**
+     * Gets how far the mouse wheel was scrolled since the last call
+     */
+    public synchronized float takeScrollOffset() {
+        float offset = scrollOffset;
+        scrollOffset = 0;
+        return offset;
     }
 
     /**
@@ -69,11 +128,13 @@ public class MouseUtils {
     }
 
     public boolean isMouseButtonPressed(int button) {
-        return GLFW.glfwGetMouseButton(window, button) == GLFW.GLFW_PRESS;
+        if (button < 0 || button > GLFW.GLFW_MOUSE_BUTTON_LAST) return false;
+        return (mouseButtons & (1 << button)) != 0;
     }
 
     public boolean isKeyPressed(int button) {
-        return GLFW.glfwGetKey(window, button) == GLFW.GLFW_PRESS;
+        if (button < 0 || button > GLFW.GLFW_KEY_LAST) return false;
+        return (keys.get(button >> 6) & (1L << button)) != 0;
     }
 
 }
\ No newline at end of file
@@ -33,6 +33,27 @@ public class TextEngine {
     }
 
     public void render(BatchRenderer batchRenderer, String toWrite, int xOffset, int yOffset) {
+        // Render the texture using BatchRenderer
+        batchRenderer.addTexture(
+                prepare(toWrite),
+                xOffset,  // X coordinate based on adjusted origin
+                yOffset,   // Y coordinate based on adjusted origin
+                TEXT_SCALE,
+                0,  // Rotation (assuming 0 for no rotation)
+                1.0f, // Scale for X
+                1.0f, // Scale for Y
+                com.toxicrain.core.Color.toFloatArray(transparency, Color.WHITE)  // Applying color/transparency
+        );
+    }
+
+    /**
+     * Makes the texture for a text, if it isn't cached yet. Making it needs the GL context, so call this
+     * on the main thread for any text that is later rendered from the simulation thread.
+     *
+     * @param toWrite the text
+     * @return the texture of the text
+     */
+    public TextureInfo prepare(String toWrite) {
         // Trim the text to avoid caching issues with leading/trailing spaces
         String trimmedText = toWrite.trim();
 
@@ -55,18 +76,7 @@ public class TextEngine {
             // Cache the texture for this text
             textureCache.put(trimmedText, textureInfo);
         }
-
-        // Render the texture using BatchRenderer
-        batchRenderer.addTexture(
-                textureInfo,
-                xOffset,  // X coordinate based on adjusted origin
-                yOffset,   // Y coordinate based on adjusted origin
-                TEXT_SCALE,
-                0,  // Rotation (assuming 0 for no rotation)
-                1.0f, // Scale for X
-                1.0f, // Scale for Y
-                com.toxicrain.core.Color.toFloatArray(transparency, Color.WHITE)  // Applying color/transparency
-        );
+        return textureInfo;
     }
 
     private BufferedImage createTextImage(String text) {